@@ -0,0 +1,174 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Supplier;
+
+/**
+ * The work every benchmark measures, handed out as plain functions. JMH
+ * will not generate code for benchmarks in the default package, and a
+ * named package can not see the classes of the default package, so the
+ * benchmarks in the benchmarks package look these up once by name and
+ * then only ever call the functions they return.
+ */
+public class Fixtures
+{
+	public static Supplier<Object> tick(String engine, int size, String seed)
+	{
+		LifeEngine grid = Engines.create(engine, size, size);
+		Seed.valueOf(seed).place(grid);
+		return () ->
+		{
+			grid.tick();
+			return grid;
+		};
+	}
+	
+	public static Supplier<Object> create(String engine, int size)
+	{
+		return () -> Engines.create(engine, size, size);
+	}
+	
+	public static Supplier<Object> save(String engine, int size)
+	{
+		LifeEngine grid = Engines.create(engine, size, size);
+		Seed.SOUP.place(grid);
+		return grid::getSaveableData;
+	}
+	
+	public static Supplier<Object> load(String engine, int size)
+	{
+		LifeEngine grid = Engines.create(engine, size, size);
+		Seed.SOUP.place(grid);
+		SaveableData data = grid.getSaveableData();
+		return () ->
+		{
+			grid.loadSaveableData(data);
+			return grid;
+		};
+	}
+	
+	/**
+	 * Writes a random soup to a temporary file, either as a .gol file or
+	 * serialized the way boards used to be saved.
+	 */
+	public static Supplier<Object> writeFile(String format, int size)
+	{
+		LifeEngine grid = Engines.create(Engines.BITGRID, size, size);
+		Seed.SOUP.place(grid);
+		Path file = temporaryFile();
+		return () ->
+		{
+			write(format, grid, file);
+			return file;
+		};
+	}
+	
+	public static Supplier<Object> readFile(String format, int size)
+	{
+		LifeEngine grid = Engines.create(Engines.BITGRID, size, size);
+		Seed.SOUP.place(grid);
+		Path file = temporaryFile();
+		write(format, grid, file);
+		return () ->
+		{
+			try
+			{
+				if(format.equals("GOL"))
+					GolFile.load(file, grid);
+				else
+				{
+					try(ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file))))
+					{
+						grid.loadSaveableData((SaveableData) in.readObject());
+					}
+				}
+				return grid;
+			}
+			catch(IOException ex)
+			{
+				throw new UncheckedIOException(ex);
+			}
+			catch(ClassNotFoundException ex)
+			{
+				throw new IllegalStateException(ex);
+			}
+		};
+	}
+	
+	private static void write(String format, LifeEngine grid, Path file)
+	{
+		try
+		{
+			if(format.equals("GOL"))
+				GolFile.write(file, grid, 1, 0, 0);
+			else
+			{
+				try(ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(file))))
+				{
+					out.writeObject(grid.getSaveableData());
+				}
+			}
+		}
+		catch(IOException ex)
+		{
+			throw new UncheckedIOException(ex);
+		}
+	}
+	
+	private static Path temporaryFile()
+	{
+		try
+		{
+			Path file = Files.createTempFile("board", ".gol");
+			file.toFile().deleteOnExit();
+			return file;
+		}
+		catch(IOException ex)
+		{
+			throw new UncheckedIOException(ex);
+		}
+	}
+	
+	/**
+	 * Paints a random soup into an offscreen image the size of the whole
+	 * board, so no display is needed, one generation per frame. The soup is
+	 * first run until most of it has settled into ash, the common case in
+	 * the GUI.
+	 * 
+	 * @param repaint
+	 * FULL to paint every cell of every frame, CHANGES to paint only the
+	 * cells the engine reports as changed
+	 */
+	public static Supplier<Object> paint(int size, int cellSize, String repaint)
+	{
+		LifeEngine grid = Engines.create(Engines.BITGRID, size, size);
+		Seed.SOUP.place(grid);
+		grid.advance(10);
+		
+		int gap = 1;
+		PaintPanel paintPanel = new PaintPanel(grid, cellSize, gap, Color.BLACK, Color.WHITE, Color.GRAY, Color.LIGHT_GRAY);
+		paintPanel.setSize(paintPanel.getPreferredSize());
+		BufferedImage image = new BufferedImage(paintPanel.getWidth(), paintPanel.getHeight(), BufferedImage.TYPE_INT_RGB);
+		Graphics2D graphics = image.createGraphics();
+		boolean full = repaint.equals("FULL");
+		
+		//the first frame allocates the back buffer and paints every cell
+		paintPanel.paint(graphics);
+		return () ->
+		{
+			grid.tick();
+			if(full)
+				paintPanel.resetFirstPaint();
+			paintPanel.paint(graphics);
+			return image;
+		};
+	}
+}
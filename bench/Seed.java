@@ -0,0 +1,63 @@
+import java.util.Random;
+
+/**
+ * The patterns every benchmark is run from, placed in the middle of the
+ * board so that each engine starts out from exactly the same generation.
+ */
+public enum Seed
+{
+	RPENTOMINO(
+			".OO",
+			"OO.",
+			".O."),
+	ACORN(
+			".O.....",
+			"...O...",
+			"OO..OOO"),
+	GOSPER(
+			"........................O...........",
+			"......................O.O...........",
+			"............OO......OO............OO",
+			"...........O...O....OO............OO",
+			"OO........O.....O...OO..............",
+			"OO........O...O.OO....O.O...........",
+			"..........O.....O.......O...........",
+			"...........O...O....................",
+			"............OO......................"),
+	/**
+	 * Every cell of the board alive with a probability of one half, always
+	 * drawn from the same Random seed.
+	 */
+	SOUP;
+	
+	private String[] picture;
+	
+	private Seed(String... picture)
+	{
+		this.picture = picture;
+	}
+	
+	public void place(LifeEngine engine)
+	{
+		int numRows = engine.getNumRows();
+		int numCols = engine.getNumCols();
+		
+		if(this == SOUP)
+		{
+			Random random = new Random(0x5EED);
+			for(int row = 0; row < numRows; row++)
+				for(int col = 0; col < numCols; col++)
+					if(random.nextBoolean())
+						engine.setStatus(row, col, Grid.ALIVE);
+		}
+		else
+		{
+			int top = (numRows - picture.length) / 2;
+			int left = (numCols - picture[0].length()) / 2;
+			for(int row = 0; row < picture.length; row++)
+				for(int col = 0; col < picture[row].length(); col++)
+					if(picture[row].charAt(col) == 'O')
+						engine.setStatus(top + row, left + col, Grid.ALIVE);
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The time to build an empty board, which is no more than allocating its
+ * arrays for every engine but the ones that only store living cells.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstructionBenchmark
+{
+	@Param({ "GRID", "BITGRID", "GENERATIONS", "HASHLIFE", "SPARSE" })
+	public String engine;
+	
+	@Param({ "256", "1024" })
+	public int size;
+	
+	private Supplier<Object> create;
+	
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		create = Fixture.of("create", engine, size);
+	}
+	
+	@Benchmark
+	public Object create()
+	{
+		return create.get();
+	}
+}
@@ -0,0 +1,54 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Generations per second of every engine. Each trial starts over from the
+ * seed, so a pattern that grows, like the Gosper gun, is measured over the
+ * same stretch of its history every run.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark
+{
+	@Param({ "GRID", "BITGRID", "GENERATIONS", "HASHLIFE", "SPARSE" })
+	public String engine;
+	
+	@Param({ "256", "1024" })
+	public int size;
+	
+	@Param({ "RPENTOMINO", "ACORN", "GOSPER", "SOUP" })
+	public String seed;
+	
+	private Supplier<Object> tick;
+	
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		tick = Fixture.of("tick", engine, size, seed);
+	}
+	
+	@Benchmark
+	public Object tick()
+	{
+		return tick.get();
+	}
+}
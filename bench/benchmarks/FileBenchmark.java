@@ -0,0 +1,58 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writing a random soup to disk and reading it back, as a .gol file and
+ * serialized the way boards used to be saved.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileBenchmark
+{
+	@Param({ "GOL", "SERIALIZED" })
+	public String format;
+	
+	@Param({ "1024", "4096" })
+	public int size;
+	
+	private Supplier<Object> write;
+	private Supplier<Object> read;
+	
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		write = Fixture.of("writeFile", format, size);
+		read = Fixture.of("readFile", format, size);
+	}
+	
+	@Benchmark
+	public Object write()
+	{
+		return write.get();
+	}
+	
+	@Benchmark
+	public Object read()
+	{
+		return read.get();
+	}
+}
@@ -0,0 +1,26 @@
+package benchmarks;
+
+import java.lang.reflect.Method;
+import java.util.function.Supplier;
+
+/**
+ * Looks up the functions of the Fixtures class in the default package.
+ */
+class Fixture
+{
+	@SuppressWarnings("unchecked")
+	static Supplier<Object> of(String name, Object... args)
+	{
+		try
+		{
+			for(Method method : Class.forName("Fixtures").getMethods())
+				if(method.getName().equals(name) && method.getParameterCount() == args.length)
+					return (Supplier<Object>) method.invoke(null, args);
+		}
+		catch(ReflectiveOperationException ex)
+		{
+			throw new IllegalStateException("Could not set up " + name, ex);
+		}
+		throw new IllegalStateException("No fixture named " + name);
+	}
+}
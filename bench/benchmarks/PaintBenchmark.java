@@ -0,0 +1,54 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Frames per second of PaintPanel painting into an offscreen image, one
+ * generation of a settled soup per frame, either repainting every cell or
+ * only the cells that changed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PaintBenchmark
+{
+	@Param({ "256", "1024" })
+	public int size;
+	
+	@Param({ "1", "3" })
+	public int cellSize;
+	
+	@Param({ "FULL", "CHANGES" })
+	public String repaint;
+	
+	private Supplier<Object> paint;
+	
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		paint = Fixture.of("paint", size, cellSize, repaint);
+	}
+	
+	@Benchmark
+	public Object paint()
+	{
+		return paint.get();
+	}
+}
@@ -0,0 +1,58 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Copying a random soup out of an engine into SaveableData and back in,
+ * the same work the GUI does to save, load and switch engines.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SaveLoadBenchmark
+{
+	@Param({ "GRID", "BITGRID", "GENERATIONS", "HASHLIFE", "SPARSE" })
+	public String engine;
+	
+	@Param({ "256", "1024" })
+	public int size;
+	
+	private Supplier<Object> save;
+	private Supplier<Object> load;
+	
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		save = Fixture.of("save", engine, size);
+		load = Fixture.of("load", engine, size);
+	}
+	
+	@Benchmark
+	public Object save()
+	{
+		return save.get();
+	}
+	
+	@Benchmark
+	public Object load()
+	{
+		return load.get();
+	}
+}
@@ -0,0 +1,858 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A model of the grid that packs 64 cells into every long instead of
+ * allocating an Object per cell. Each row is stored as a run of words with
+ * an extra empty word on either side, and the whole board has an extra
+ * empty row above and below it, so the neighbors of every real cell can be
+ * read without any bounds checks. Those extra words and rows double as the
+ * halo of ghost cells, filled in according to the Boundary before every
+ * generation.
+ *
+ * The next generation is computed a whole word at a time by adding up the
+ * eight shifted neighbor words with bitwise adder logic. With more than
+ * one thread the board is split into horizontal bands of rows that are
+ * computed in parallel, every band reads only the current generation and
+ * writes only its own rows of the next one, so the workers share nothing
+ * mutable.
+ */
+public class BitGrid implements LifeEngine
+{
+	/**
+	 * Living cells are counted in tiles of 64 by 64 cells, one word wide
+	 */
+	private static final int TILE_SHIFT = 6;
+	/**
+	 * How long ticks keep counting tiles after a view last asked for them
+	 */
+	private static final long DENSITY_LEASE = 1000000000L;
+	
+	private int numRows;
+	private int numCols;
+	private int wordsPerRow;
+	private int stride;
+	private long tailMask;
+	private Boundary boundary;
+	private Rule rule;
+	private int[] eitherCounts;
+	private int[] birthCounts;
+	private int[] survivalCounts;
+	private boolean conway;
+	
+	private volatile long[] current;
+	private long[] next;
+	private long[] spare;
+	private final Pins pins = new Pins();
+	private long hash;
+	private volatile ChangeSet changes;
+	private volatile Density density;
+	private Density spareDensity;
+	private int[] tiles;
+	private volatile boolean densityWanted;
+	private volatile long densityAsked;
+	private volatile Statistics statistics;
+	private final Statistics.Tally tally = new Statistics.Tally();
+	/**
+	 * The living cells, kept up to date a word at a time as words change,
+	 * so the population never has to be counted from the board
+	 */
+	private volatile long population;
+	
+	private int threads;
+	private ForkJoinPool pool;
+	private Band[] bands;
+	private final RecursiveAction step = new RecursiveAction()
+	{
+		private static final long serialVersionUID = 6381294701766205118L;
+		
+		protected void compute()
+		{
+			invokeAll(bands);
+		}
+	};
+	
+	public BitGrid(int numRows, int numCols, int threads, Boundary boundary)
+	{
+		this.boundary = boundary;
+		setRule(Rule.CONWAY);
+		allocate(numRows, numCols);
+		setThreads(threads);
+	}
+	
+	public BitGrid(int numRows, int numCols, int threads)
+	{
+		this(numRows, numCols, threads, Boundary.DEAD);
+	}
+	
+	public BitGrid(int numRows, int numCols)
+	{
+		this(numRows, numCols, 1);
+	}
+	
+	/**
+	 * Sets how many worker threads compute each generation, a single
+	 * thread computes it on the calling thread without any pool at all.
+	 */
+	public void setThreads(int threads)
+	{
+		if(pool != null)
+			pool.shutdown();
+		this.threads = Math.max(1, threads);
+		pool = this.threads > 1 ? new ForkJoinPool(this.threads) : null;
+		bands = null;
+	}
+	
+	public int getThreads()
+	{
+		return threads;
+	}
+	
+	/**
+	 * @throws IllegalArgumentException
+	 * if the board has more words than an array can hold
+	 */
+	private void allocate(int numRows, int numCols)
+	{
+		if((numRows + 2L) * (((numCols + 63L) >>> 6) + 2L) > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("Too big for " + Engines.BITGRID + ": " + numCols + " by " + numRows);
+		this.numRows = numRows;
+		this.numCols = numCols;
+		
+		wordsPerRow = (numCols + 63) >>> 6;
+		stride = wordsPerRow + 2;
+		tailMask = (numCols & 63) == 0 ? -1L : (1L << (numCols & 63)) - 1L;
+		
+		current = new long[(numRows + 2) * stride];
+		next = new long[(numRows + 2) * stride];
+		spare = null;
+		hash = 0L;
+		density = null;
+		spareDensity = null;
+		tiles = null;
+		population = 0L;
+		bands = null;
+		if(changes != null)
+			changes.reset(numRows, numCols);
+	}
+	
+	/**
+	 * Kills every cell without allocating a new board, so one BitGrid can be
+	 * reused for many patterns.
+	 */
+	public void clear()
+	{
+		Arrays.fill(current, 0L);
+		claimNext();
+		Arrays.fill(next, 0L);
+		hash = 0L;
+		density = null;
+		population = 0L;
+		if(changes != null)
+			changes.invalidate();
+	}
+	
+	public int getNumRows()
+	{
+		return numRows;
+	}
+	
+	public int getNumCols()
+	{
+		return numCols;
+	}
+	
+	public boolean isWithinRealBounds(int row, int col)
+	{
+		return 0 <= row && 0 <= col && row < numRows && col < numCols;
+	}
+	
+	/**
+	 * @return
+	 * the index of the word holding the cell at the specified row and
+	 * column, which may be one cell outside of the board, in the halo
+	 */
+	private int indexOf(int row, int col)
+	{
+		return (row + 1) * stride + (col >> 6) + 1;
+	}
+	
+	public boolean getStatus(int row, int col)
+	{
+		return ((current[indexOf(row, col)] >>> col) & 1L) != 0L;
+	}
+	
+	public Snapshot snapshot()
+	{
+		long[] generation = pins.pin(() -> current);
+		return new Snapshot()
+		{
+			private Pyramid pyramid;
+			
+			public void close()
+			{
+				pins.release(generation);
+			}
+			
+			public boolean getStatus(int row, int col)
+			{
+				return ((generation[indexOf(row, col)] >>> col) & 1L) != 0L;
+			}
+			
+			public void getStates(int row, int col, int length, byte[] states)
+			{
+				int start = indexOf(row, 0);
+				for(int i = 0; i < length; i++)
+				{
+					int c = col + i;
+					states[i] = (byte) ((generation[start + (c >> 6)] >>> c) & 1L);
+				}
+			}
+			
+			/**
+			 * Blocks narrower than a word are counted straight from the
+			 * words, wider ones from the tile counts.
+			 */
+			public boolean getCounts(int level, int row, int col, int length, int[] counts)
+			{
+				if(level < TILE_SHIFT)
+				{
+					for(int i = 0; i < length; i++)
+						counts[i] = countBlock(generation, level, row, col + i);
+					return true;
+				}
+				
+				if(pyramid == null)
+					pyramid = pyramidOf(generation);
+				for(int i = 0; i < length; i++)
+					counts[i] = pyramid.get(level - TILE_SHIFT, row, col + i);
+				return true;
+			}
+		};
+	}
+	
+	/**
+	 * @return
+	 * the living cells, read straight from the count kept as words change
+	 */
+	public long getPopulation()
+	{
+		return population;
+	}
+	
+	/**
+	 * Finds the smallest rectangle holding every living cell a whole word
+	 * at a time.
+	 * 
+	 * @param bounds
+	 * filled with the top row, left column, bottom row and right column of
+	 * the rectangle
+	 * @return
+	 * false if there are no living cells at all
+	 */
+	public boolean getBounds(int[] bounds)
+	{
+		long[] generation = current;
+		int top = -1;
+		int bottom = -1;
+		int left = numCols;
+		int right = -1;
+		for(int row = 0; row < numRows; row++)
+		{
+			int start = indexOf(row, 0);
+			for(int word = 0; word < wordsPerRow; word++)
+			{
+				long bits = word == wordsPerRow - 1 ? generation[start + word] & tailMask : generation[start + word];
+				if(bits != 0L)
+				{
+					if(top < 0)
+						top = row;
+					bottom = row;
+					left = Math.min(left, (word << 6) + Long.numberOfTrailingZeros(bits));
+					right = Math.max(right, (word << 6) + 63 - Long.numberOfLeadingZeros(bits));
+				}
+			}
+		}
+		
+		bounds[0] = top;
+		bounds[1] = left;
+		bounds[2] = bottom;
+		bounds[3] = right;
+		return top >= 0;
+	}
+	
+	public void setStatus(int row, int col, boolean status)
+	{
+		int index = indexOf(row, col);
+		if(status == Grid.ALIVE)
+			write(index, current[index] | (1L << col));
+		else
+			write(index, current[index] & ~(1L << col));
+	}
+	
+	public void toggle(int row, int col)
+	{
+		if(isWithinRealBounds(row, col))
+			write(indexOf(row, col), current[indexOf(row, col)] ^ (1L << col));
+	}
+	
+	/**
+	 * A row is stored exactly as getRow lays it out, so it is copied out
+	 * whole.
+	 */
+	public void getRow(int row, long[] words)
+	{
+		System.arraycopy(current, indexOf(row, 0), words, 0, wordsPerRow);
+		if(wordsPerRow > 0)
+			words[wordsPerRow - 1] &= tailMask;
+	}
+	
+	public void setRow(int row, long[] words)
+	{
+		int start = indexOf(row, 0);
+		for(int word = 0; word < wordsPerRow; word++)
+			write(start + word, word == wordsPerRow - 1 ? words[word] & tailMask : words[word]);
+	}
+	
+	/**
+	 * Replaces a word of the current generation, keeping the hash in step.
+	 * The last word of a row is hashed without the ghost cells past its end.
+	 */
+	private void write(int index, long word)
+	{
+		long mask = index % stride == wordsPerRow ? tailMask : -1L;
+		hash ^= Zobrist.key(index, current[index] & mask) ^ Zobrist.key(index, word & mask);
+		int row = index / stride - 1;
+		int column = index % stride - 1;
+		if(changes != null)
+			for(long changed = (current[index] ^ word) & mask; changed != 0L; changed &= changed - 1L)
+				changes.add(row * numCols + (column << 6) + Long.numberOfTrailingZeros(changed));
+		
+		Density d = density;
+		if(d != null && d.generation == current)
+			d.pyramid.add(row >> TILE_SHIFT, column, Long.bitCount(word & mask) - Long.bitCount(current[index] & mask));
+		population += Long.bitCount(word & mask) - Long.bitCount(current[index] & mask);
+		current[index] = word;
+	}
+	
+	/**
+	 * Recording starts with the first call.
+	 */
+	public ChangeSet getChanges()
+	{
+		if(changes == null)
+			changes = new ChangeSet(numRows, numCols);
+		return changes;
+	}
+	
+	/**
+	 * Recording starts with the first call. BitGrid always counts the cells
+	 * born and killed as words change, so the first generation recorded is
+	 * as exact as the rest, and only the bounds are left uncounted until
+	 * then.
+	 */
+	public Statistics getStatistics()
+	{
+		if(statistics == null)
+			statistics = new Statistics();
+		return statistics;
+	}
+	
+	/**
+	 * @return
+	 * the hash of every word of living cells, kept up to date a word at a
+	 * time as the words change
+	 */
+	public long getHash()
+	{
+		return hash;
+	}
+	
+	/**
+	 * Moves forward 1 generation. For every word the eight neighbor words
+	 * are formed by shifting the rows above, below and beside it, and then
+	 * summed in parallel into the bit planes ones, twos, fours and eights.
+	 * The Rule is then applied by matching those planes against each
+	 * neighbor count in the Rule. B3/S23 skips the matching and is worked
+	 * out from the planes with one formula, as it runs far more than any
+	 * other Rule.
+	 */
+	public void tick()
+	{
+		fillHalo();
+		claimNext();
+		ChangeSet changes = this.changes;
+		int[] tiles = claimTiles();
+		Statistics statistics = this.statistics;
+		boolean bounded = statistics != null;
+		tally.clear();
+		
+		ChangeSet.Batch batch;
+		if(pool == null)
+		{
+			batch = changes == null ? null : changes.newBatch();
+			hash ^= tickRows(0, numRows, batch, tiles, tally, bounded);
+		}
+		else
+		{
+			if(bands == null)
+				bands = bandsOf(numRows, threads * 4);
+			for(Band band : bands)
+				band.prepare(changes, tiles, bounded);
+			step.reinitialize();
+			pool.invoke(step);
+			batch = null;
+			for(Band band : bands)
+			{
+				hash ^= band.delta;
+				if(batch == null)
+					batch = band.batch;
+				else
+					batch.addAll(band.batch);
+				tally.addAll(band.tally);
+			}
+		}
+		
+		long[] swap = current;
+		current = next;
+		next = swap;
+		Density last = density;
+		density = tiles == null ? null : new Density(current, claimPyramid(tiles));
+		if(last != null)
+			spareDensity = last;
+		if(batch != null)
+			changes.publish(batch);
+		population += tally.getBirths() - tally.getDeaths();
+		if(statistics != null)
+			statistics.record(population, tally);
+	}
+	
+	/**
+	 * Swaps in the spare buffer if a Snapshot is still reading the one the
+	 * next generation was going to be written into. Every word of the next
+	 * generation is written, so whatever the spare held does not matter.
+	 */
+	private void claimNext()
+	{
+		if(!pins.isPinned(next))
+			return;
+		long[] pinned = next;
+		next = spare != null && !pins.isPinned(spare) ? spare : new long[pinned.length];
+		spare = pinned;
+	}
+	
+	/**
+	 * @return
+	 * the emptied tile counts for the next generation to be counted into,
+	 * or null if no view has asked for them for a whole lease
+	 */
+	private int[] claimTiles()
+	{
+		if(densityWanted && System.nanoTime() - densityAsked > DENSITY_LEASE)
+			densityWanted = false;
+		if(!densityWanted)
+			return null;
+		
+		if(tiles == null)
+			tiles = new int[tileRows() * wordsPerRow];
+		else
+			Arrays.fill(tiles, 0);
+		return tiles;
+	}
+	
+	/**
+	 * @return
+	 * the pyramid of the generation before last brought up to the tiles
+	 * just counted, unless a Snapshot of that generation may still be
+	 * reading it, so the levels a view has summed are kept up to date
+	 * rather than summed again every tick
+	 */
+	private Pyramid claimPyramid(int[] tiles)
+	{
+		Density d = spareDensity;
+		Pyramid pyramid = d != null && !pins.isPinned(d.generation) ? d.pyramid : new Pyramid(tileRows(), wordsPerRow);
+		pyramid.setTiles(tiles);
+		return pyramid;
+	}
+	
+	private int tileRows()
+	{
+		return (numRows + (1 << TILE_SHIFT) - 1) >> TILE_SHIFT;
+	}
+	
+	/**
+	 * The living cells of one generation counted by tile, only kept while a
+	 * zoomed out view keeps asking for them.
+	 */
+	private static class Density
+	{
+		private final long[] generation;
+		private final Pyramid pyramid;
+		
+		public Density(long[] generation, Pyramid pyramid)
+		{
+			this.generation = generation;
+			this.pyramid = pyramid;
+		}
+	}
+	
+	/**
+	 * @return
+	 * the tile counts of the generation, counted from scratch if the last
+	 * tick did not count them, which every tick will for a lease from now
+	 */
+	private Pyramid pyramidOf(long[] generation)
+	{
+		densityAsked = System.nanoTime();
+		densityWanted = true;
+		Density d = density;
+		if(d != null && d.generation == generation)
+			return d.pyramid;
+		
+		int[] tiles = new int[tileRows() * wordsPerRow];
+		for(int row = 0; row < numRows; row++)
+		{
+			int start = indexOf(row, 0);
+			int tile = (row >> TILE_SHIFT) * wordsPerRow;
+			for(int word = 0; word < wordsPerRow; word++)
+				tiles[tile + word] += Long.bitCount(generation[start + word] & (word == wordsPerRow - 1 ? tailMask : -1L));
+		}
+		Pyramid pyramid = new Pyramid(tileRows(), wordsPerRow);
+		pyramid.setTiles(tiles);
+		if(generation == current)
+			density = new Density(generation, pyramid);
+		return pyramid;
+	}
+	
+	/**
+	 * @return
+	 * the living cells of a block narrower than a word, straight from the
+	 * words of the generation
+	 */
+	private int countBlock(long[] generation, int level, int row, int col)
+	{
+		int firstCol = col << level;
+		if(row < 0 || col < 0 || firstCol >= numCols)
+			return 0;
+		
+		int word = firstCol >>> 6;
+		long mask = ((1L << (1 << level)) - 1L) << firstCol;
+		if(word == wordsPerRow - 1)
+			mask &= tailMask;
+		
+		int count = 0;
+		int lastRow = Math.min(numRows, (row + 1) << level);
+		for(int r = row << level; r < lastRow; r++)
+			count += Long.bitCount(generation[indexOf(r, firstCol)] & mask);
+		return count;
+	}
+	
+	/**
+	 * Copies the cells each ghost cell in the halo stands for into the halo
+	 * of the current generation. Beyond a dead boundary the halo is never
+	 * written, and the last word of every row is masked each generation, so
+	 * it stays dead.
+	 */
+	private void fillHalo()
+	{
+		if(boundary == Boundary.DEAD)
+			return;
+		
+		long[] generation = current;
+		for(int row = 0; row < numRows; row++)
+		{
+			fillGhost(generation, row, -1);
+			fillGhost(generation, row, numCols);
+		}
+		for(int col = -1; col <= numCols; col++)
+		{
+			fillGhost(generation, -1, col);
+			fillGhost(generation, numRows, col);
+		}
+	}
+	
+	private void fillGhost(long[] generation, int row, int col)
+	{
+		int sourceRow = boundary.sourceRow(row, numRows);
+		int sourceCol = boundary.sourceCol(row, col, numRows, numCols);
+		long bit = (generation[indexOf(sourceRow, sourceCol)] >>> sourceCol) & 1L;
+		int index = indexOf(row, col);
+		generation[index] = (generation[index] & ~(1L << col)) | (bit << col);
+	}
+	
+	/**
+	 * Computes the next generation of the rows from firstRow up to but not
+	 * including lastRow.
+	 * 
+	 * @param batch
+	 * where every cell that changes is recorded, or null
+	 * 
+	 * @param tiles
+	 * where the living cells of each tile of the next generation are
+	 * counted, or null. The rows must start on the first row of a tile.
+	 * 
+	 * @param tally
+	 * where the births and deaths of the rows are counted
+	 * 
+	 * @param bounded
+	 * whether the bounding box of the rows is counted into the tally too
+	 * 
+	 * @return
+	 * how the hash changes over those rows, the exclusive or of the old and
+	 * new keys of every word that changed
+	 */
+	private long tickRows(int firstRow, int lastRow, ChangeSet.Batch batch, int[] tiles, Statistics.Tally tally, boolean bounded)
+	{
+		long[] cur = current;
+		long[] nxt = next;
+		int[] either = eitherCounts;
+		int[] births = birthCounts;
+		int[] survivals = survivalCounts;
+		boolean conway = this.conway;
+		long delta = 0L;
+		long born = 0L;
+		long killed = 0L;
+		
+		for(int row = firstRow; row < lastRow; row++)
+		{
+			int start = (row + 1) * stride + 1;
+			int end = start + wordsPerRow;
+			int firstWord = -1;
+			int lastWord = -1;
+			
+			for(int i = start; i < end; i++)
+			{
+				long above = cur[i - stride];
+				long center = cur[i];
+				long below = cur[i + stride];
+				
+				long nw = (above << 1) | (cur[i - stride - 1] >>> 63);
+				long ne = (above >>> 1) | (cur[i - stride + 1] << 63);
+				long w = (center << 1) | (cur[i - 1] >>> 63);
+				long e = (center >>> 1) | (cur[i + 1] << 63);
+				long sw = (below << 1) | (cur[i + stride - 1] >>> 63);
+				long se = (below >>> 1) | (cur[i + stride + 1] << 63);
+				
+				//count the row above and the row below, 0 to 3 each
+				long a0 = nw ^ above ^ ne;
+				long a1 = (nw & above) | (ne & (nw ^ above));
+				long b0 = sw ^ below ^ se;
+				long b1 = (sw & below) | (se & (sw ^ below));
+				
+				//count the middle row, 0 to 2
+				long m0 = w ^ e;
+				long m1 = w & e;
+				
+				//add the three ones bits, carrying into the twos
+				long ones = a0 ^ b0 ^ m0;
+				long carry = (a0 & b0) | (m0 & (a0 ^ b0));
+				
+				//add the four twos bits, carrying into the fours and eights
+				long x = a1 ^ b1;
+				long y = m1 ^ carry;
+				long twos = x ^ y;
+				
+				long alive;
+				if(conway)
+				{
+					//fours is set for a count of four or more, a cell lives on
+					//when its count is 3, or when it is 2 and it is alive
+					long fours = (a1 & b1) | (m1 & carry) | (x & y);
+					alive = twos & ~fours & (ones | center);
+				}
+				else
+				{
+					long fours = (a1 & b1) ^ (m1 & carry) ^ (x & y);
+					long eights = a1 & b1 & m1 & carry;
+					alive = 0L;
+					for(int count : either)
+						alive |= countIs(count, ones, twos, fours, eights);
+					for(int count : births)
+						alive |= countIs(count, ones, twos, fours, eights) & ~center;
+					for(int count : survivals)
+						alive |= countIs(count, ones, twos, fours, eights) & center;
+				}
+				
+				//nothing past the end of the row is kept or hashed
+				if(i == end - 1)
+				{
+					alive &= tailMask;
+					center &= tailMask;
+				}
+				if(alive != center)
+				{
+					delta ^= Zobrist.key(i, center) ^ Zobrist.key(i, alive);
+					if(batch != null)
+						record(batch, row, i - start, alive ^ center);
+					born += Long.bitCount(alive & ~center);
+					killed += Long.bitCount(center & ~alive);
+				}
+				nxt[i] = alive;
+				if(tiles != null)
+					tiles[(row >> TILE_SHIFT) * wordsPerRow + i - start] += Long.bitCount(alive);
+				if(bounded && alive != 0L)
+				{
+					if(firstWord < 0)
+						firstWord = i;
+					lastWord = i;
+				}
+			}
+			
+			if(firstWord >= 0)
+				tally.include(row, ((firstWord - start) << 6) + Long.numberOfTrailingZeros(nxt[firstWord]),
+						row, ((lastWord - start) << 6) + 63 - Long.numberOfLeadingZeros(nxt[lastWord]));
+		}
+		tally.add(born, killed);
+		return delta;
+	}
+	
+	/**
+	 * Adds a cell to the batch for every bit set in a changed word.
+	 */
+	private void record(ChangeSet.Batch batch, int row, int word, long changed)
+	{
+		int first = row * numCols + (word << 6);
+		for(; changed != 0L; changed &= changed - 1L)
+			batch.add(first + Long.numberOfTrailingZeros(changed));
+	}
+	
+	/**
+	 * @return
+	 * a word with a bit set wherever the neighbor count spread over the
+	 * four bit planes is equal to count
+	 */
+	private static long countIs(int count, long ones, long twos, long fours, long eights)
+	{
+		return ((count & 1) != 0 ? ones : ~ones)
+				& ((count & 2) != 0 ? twos : ~twos)
+				& ((count & 4) != 0 ? fours : ~fours)
+				& ((count & 8) != 0 ? eights : ~eights);
+	}
+	
+	public Rule getRule()
+	{
+		return rule;
+	}
+	
+	/**
+	 * Splits the Rule into the counts that set a cell alive whatever its
+	 * status, the counts that only bring dead cells to life, and the counts
+	 * that only keep living cells alive.
+	 * 
+	 * @throws IllegalArgumentException
+	 * for Generations rules, every bit is either alive or dead
+	 */
+	public void setRule(Rule rule)
+	{
+		if(rule.getStates() > 2)
+			throw new IllegalArgumentException("BitGrid can not run Generations rules: " + rule);
+		this.rule = rule;
+		int either = rule.getBirths() & rule.getSurvivals();
+		eitherCounts = countsOf(either);
+		birthCounts = countsOf(rule.getBirths() & ~either);
+		survivalCounts = countsOf(rule.getSurvivals() & ~either);
+		conway = rule.equals(Rule.CONWAY);
+	}
+	
+	private static int[] countsOf(int counts)
+	{
+		int[] array = new int[Integer.bitCount(counts)];
+		int i = 0;
+		for(int count = 0; count <= 8; count++)
+			if((counts & (1 << count)) != 0)
+				array[i++] = count;
+		return array;
+	}
+	
+	/**
+	 * Splits the rows into about as many bands as asked for. Every band
+	 * starts on the first row of a tile, so no two bands ever count into
+	 * the same tile, and a board shorter than a tile is a single band.
+	 */
+	private Band[] bandsOf(int numRows, int count)
+	{
+		int tile = 1 << TILE_SHIFT;
+		int height = Math.max(tile, ((numRows + count - 1) / count + tile - 1) & -tile);
+		Band[] bands = new Band[Math.max(1, (numRows + height - 1) / height)];
+		for(int i = 0; i < bands.length; i++)
+			bands[i] = new Band(i * height, Math.min(numRows, (i + 1) * height));
+		return bands;
+	}
+	
+	/**
+	 * A band of rows one worker ticks. The bands are made once for every
+	 * size of board and number of threads, and every tick reuses them and
+	 * their Tally, several bands for each worker so the pool can balance
+	 * them.
+	 */
+	private class Band extends RecursiveAction
+	{
+		private static final long serialVersionUID = 2950461173364186227L;
+		
+		private final int firstRow;
+		private final int lastRow;
+		private final Statistics.Tally tally = new Statistics.Tally();
+		private long delta;
+		private ChangeSet changes;
+		private ChangeSet.Batch batch;
+		private int[] tiles;
+		private boolean bounded;
+		
+		public Band(int firstRow, int lastRow)
+		{
+			this.firstRow = firstRow;
+			this.lastRow = lastRow;
+		}
+		
+		/**
+		 * Readies the band to be invoked again for the next tick.
+		 */
+		public void prepare(ChangeSet changes, int[] tiles, boolean bounded)
+		{
+			reinitialize();
+			this.changes = changes;
+			this.tiles = tiles;
+			this.bounded = bounded;
+		}
+		
+		protected void compute()
+		{
+			batch = changes == null ? null : changes.newBatch();
+			tally.clear();
+			delta = tickRows(firstRow, lastRow, batch, tiles, tally, bounded);
+		}
+	}
+	
+	public SaveableData getSaveableData()
+	{
+		SaveableData data = new SaveableData();
+		data.alive = new boolean[numRows][numCols];
+		
+		for(int i = 0; i < data.alive.length; i++)
+			for(int j = 0; j < data.alive[i].length; j++)
+				data.alive[i][j] = getStatus(i, j);
+		
+		data.numRows = numRows;
+		data.numCols = numCols;
+		data.rowPad = 0;
+		data.colPad = 0;
+		data.rule = rule.toString();
+		
+		return data;
+	}
+	
+	public void loadSaveableData(SaveableData data)
+	{
+		allocate(data.numRows, data.numCols);
+		
+		if(data.alive != null)
+			for(int i = 0; i < data.alive.length; i++)
+				for(int j = 0; j < data.alive[i].length; j++)
+					if(data.alive[i][j])
+						setStatus(i, j, Grid.ALIVE);
+		
+		if(data.rule != null)
+			setRule(Rule.parse(data.rule));
+	}
+}
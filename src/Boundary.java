@@ -0,0 +1,69 @@
+/**
+ * The topologies a bounded model can have at its edges. Engines surround
+ * the board with a halo of ghost cells one cell wide and fill it in before
+ * every generation from the cells given by sourceRow and sourceCol, so the
+ * neighbor counting itself never has to check where the edge is.
+ */
+public enum Boundary
+{
+	/**
+	 * Everything beyond the edge is dead
+	 */
+	DEAD,
+	
+	/**
+	 * The top wraps to the bottom and the left wraps to the right
+	 */
+	TORUS,
+	
+	/**
+	 * The left wraps to the right, and the top wraps to the bottom with
+	 * the columns reversed
+	 */
+	KLEIN,
+	
+	/**
+	 * Every edge reflects the cells just inside of it
+	 */
+	MIRROR;
+	
+	private static int wrap(int index, int length)
+	{
+		return ((index % length) + length) % length;
+	}
+	
+	private static int reflect(int index, int length)
+	{
+		if(index < 0)
+			return -1 - index;
+		else if(index >= length)
+			return 2 * length - 1 - index;
+		else
+			return index;
+	}
+	
+	/**
+	 * @return
+	 * the row of the real cell that the ghost cell in the given row copies
+	 */
+	public int sourceRow(int row, int numRows)
+	{
+		return this == MIRROR ? reflect(row, numRows) : wrap(row, numRows);
+	}
+	
+	/**
+	 * @return
+	 * the column of the real cell that the ghost cell in the given row and
+	 * column copies
+	 */
+	public int sourceCol(int row, int col, int numRows, int numCols)
+	{
+		if(this == MIRROR)
+			return reflect(col, numCols);
+		
+		col = wrap(col, numCols);
+		if(this == KLEIN && (row < 0 || row >= numRows))
+			col = numCols - 1 - col;
+		return col;
+	}
+}
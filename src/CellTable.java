@@ -0,0 +1,188 @@
+import java.util.Arrays;
+
+/**
+ * An open addressing hash table from packed cell positions to small
+ * counts, stored in two parallel primitive arrays so that no Object is
+ * allocated per cell. A row and column are packed into a single long, which
+ * unlike the Cantor pairing used by Point.hashCode can not overflow.
+ *
+ * A value of 0 marks an empty slot, so only positive values are stored.
+ */
+public class CellTable
+{
+	private static final int MIN_CAPACITY = 16;
+	
+	private long[] keys;
+	private byte[] values;
+	private int size;
+	private int mask;
+	
+	public CellTable()
+	{
+		allocate(MIN_CAPACITY);
+	}
+	
+	/**
+	 * @return
+	 * a table holding the same keys and values, which can be changed
+	 * without changing this one
+	 */
+	public CellTable copy()
+	{
+		CellTable copy = new CellTable();
+		copy.keys = keys.clone();
+		copy.values = values.clone();
+		copy.mask = mask;
+		copy.size = size;
+		return copy;
+	}
+	
+	private void allocate(int capacity)
+	{
+		keys = new long[capacity];
+		values = new byte[capacity];
+		mask = capacity - 1;
+		size = 0;
+	}
+	
+	public static long pack(int row, int col)
+	{
+		return ((long) row << 32) | (col & 0xFFFFFFFFL);
+	}
+	
+	public static int rowOf(long key)
+	{
+		return (int) (key >> 32);
+	}
+	
+	public static int colOf(long key)
+	{
+		return (int) key;
+	}
+	
+	private static int hash(long key)
+	{
+		key ^= key >>> 33;
+		key *= 0xFF51AFD7ED558CCDL;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+	
+	public int size()
+	{
+		return size;
+	}
+	
+	/**
+	 * @return
+	 * the number of slots, occupied or not, that can be visited with
+	 * keyAt and valueAt
+	 */
+	public int capacity()
+	{
+		return keys.length;
+	}
+	
+	public long keyAt(int slot)
+	{
+		return keys[slot];
+	}
+	
+	public int valueAt(int slot)
+	{
+		return values[slot];
+	}
+	
+	/**
+	 * Empties the table, growing it so that the given number of keys fit
+	 * comfortably, or shrinking it once it has become far too large, so a
+	 * population that hovers around one size does not reallocate every time.
+	 */
+	public void clear(int expected)
+	{
+		int capacity = MIN_CAPACITY;
+		while(capacity < expected * 2)
+			capacity <<= 1;
+		
+		if(keys.length < capacity || keys.length > capacity * 4)
+			allocate(capacity);
+		else
+		{
+			Arrays.fill(values, (byte) 0);
+			size = 0;
+		}
+	}
+	
+	public int get(long key)
+	{
+		for(int slot = hash(key) & mask; values[slot] != 0; slot = (slot + 1) & mask)
+			if(keys[slot] == key)
+				return values[slot];
+		return 0;
+	}
+	
+	public boolean contains(long key)
+	{
+		return get(key) != 0;
+	}
+	
+	/**
+	 * Adds delta to the value stored for the given key, inserting the key
+	 * with a value of delta if it is not already present.
+	 */
+	public void add(long key, int delta)
+	{
+		int slot = hash(key) & mask;
+		while(values[slot] != 0)
+		{
+			if(keys[slot] == key)
+			{
+				values[slot] += delta;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		
+		keys[slot] = key;
+		values[slot] = (byte) delta;
+		if(++size * 2 > keys.length)
+			rehash(keys.length * 2);
+	}
+	
+	/**
+	 * Removes the given key, shifting back any keys further along its probe
+	 * sequence so no tombstones are left behind.
+	 */
+	public void remove(long key)
+	{
+		int slot = hash(key) & mask;
+		while(values[slot] != 0 && keys[slot] != key)
+			slot = (slot + 1) & mask;
+		if(values[slot] == 0)
+			return;
+		
+		size--;
+		int hole = slot;
+		for(slot = (slot + 1) & mask; values[slot] != 0; slot = (slot + 1) & mask)
+		{
+			int home = hash(keys[slot]) & mask;
+			if(((slot - home) & mask) >= ((slot - hole) & mask))
+			{
+				keys[hole] = keys[slot];
+				values[hole] = values[slot];
+				hole = slot;
+			}
+		}
+		values[hole] = 0;
+	}
+	
+	private void rehash(int capacity)
+	{
+		long[] oldKeys = keys;
+		byte[] oldValues = values;
+		allocate(capacity);
+		for(int i = 0; i < oldKeys.length; i++)
+			if(oldValues[i] != 0)
+				add(oldKeys[i], oldValues[i]);
+	}
+}
@@ -0,0 +1,202 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Searches many random soups in parallel and counts every object they
+ * settle into, without a window.
+ *
+ * java -cp game-of-life.jar Census 100000 --threads 0
+ *
+ * The soups are split into batches that a ForkJoinPool balances across its
+ * workers. Every worker thread runs its batches on its own pooled Soup, and
+ * the tallies of the Soups are only added together once every soup is done,
+ * so the workers never contend for anything while searching.
+ */
+public class Census
+{
+	private static final String USAGE = String.join("\n",
+			"Usage: Census <soups> [options]",
+			"  --threads N       worker threads, 0 for one per core (default 1)",
+			"  --seed N          the seed of the first soup, the rest follow on from it (default 0)",
+			"  --size N          board height and width (default 128)",
+			"  --soup N          height and width of the random square in the middle (default 16)",
+			"  --period N        longest period recognized (default 30)",
+			"  --generations N   how long a soup may run before it is counted as it is (default 32768)");
+	
+	private static final int GRAIN = 16;
+	
+	private long soups;
+	private int threads = 1;
+	private long seed;
+	private int size = 128;
+	private int soupSize = 16;
+	private int maxPeriod = 30;
+	private int maxGenerations = 1 << 15;
+	
+	private ConcurrentLinkedQueue<Soup> workers = new ConcurrentLinkedQueue<Soup>();
+	private ThreadLocal<Soup> local = ThreadLocal.withInitial(() ->
+	{
+		Soup soup = new Soup(size, soupSize, maxPeriod, maxGenerations);
+		workers.add(soup);
+		return soup;
+	});
+	
+	public static void main(String[] args)
+	{
+		Census census = new Census();
+		try
+		{
+			census.parse(args);
+		}
+		catch(IllegalArgumentException ex)
+		{
+			System.err.println(ex.getMessage());
+			System.err.println(USAGE);
+			System.exit(2);
+		}
+		
+		long begin = System.nanoTime();
+		census.run();
+		long end = System.nanoTime();
+		census.print((end - begin) / 1e9);
+	}
+	
+	private void parse(String[] args)
+	{
+		if(args.length < 1)
+			throw new IllegalArgumentException("Missing the number of soups");
+		
+		soups = Long.parseLong(args[0]);
+		for(int i = 1; i < args.length; i += 2)
+		{
+			if(i + 1 >= args.length)
+				throw new IllegalArgumentException("Missing a value for " + args[i]);
+			String value = args[i + 1];
+			switch(args[i])
+			{
+			case "--threads":
+				threads = Integer.parseInt(value);
+				if(threads <= 0)
+					threads = Runtime.getRuntime().availableProcessors();
+				break;
+			case "--seed":
+				seed = Long.parseLong(value);
+				break;
+			case "--size":
+				size = Integer.parseInt(value);
+				break;
+			case "--soup":
+				soupSize = Integer.parseInt(value);
+				break;
+			case "--period":
+				maxPeriod = Integer.parseInt(value);
+				break;
+			case "--generations":
+				maxGenerations = Integer.parseInt(value);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+		
+		if(soupSize > size)
+			throw new IllegalArgumentException("The soup does not fit on the board");
+	}
+	
+	public void run()
+	{
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try
+		{
+			pool.invoke(new Batch(0L, soups));
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+	
+	/**
+	 * A range of soups that splits itself in half until it is no bigger
+	 * than the grain.
+	 */
+	private class Batch extends RecursiveAction
+	{
+		private static final long serialVersionUID = -6172460734415387325L;
+		
+		private long first;
+		private long last;
+		
+		public Batch(long first, long last)
+		{
+			this.first = first;
+			this.last = last;
+		}
+		
+		protected void compute()
+		{
+			if(last - first <= GRAIN)
+			{
+				Soup soup = local.get();
+				for(long i = first; i < last; i++)
+					soup.run(seed + i);
+			}
+			else
+			{
+				long middle = (first + last) >>> 1;
+				invokeAll(new Batch(first, middle), new Batch(middle, last));
+			}
+		}
+	}
+	
+	/**
+	 * @return
+	 * how many of each object every Soup has counted together, by code
+	 */
+	public Map<String, Long> getTally()
+	{
+		Map<String, Long> tally = new HashMap<String, Long>();
+		for(Soup soup : workers)
+			for(Map.Entry<String, long[]> entry : soup.getTally().entrySet())
+				tally.merge(entry.getKey(), entry.getValue()[0], Long::sum);
+		return tally;
+	}
+	
+	private void print(double seconds)
+	{
+		long unstable = 0L;
+		long generations = 0L;
+		for(Soup soup : workers)
+		{
+			unstable += soup.getUnstable();
+			generations += soup.getGenerations();
+		}
+		
+		Map<String, Long> tally = getTally();
+		List<Map.Entry<String, Long>> entries = new ArrayList<Map.Entry<String, Long>>(tally.entrySet());
+		Collections.sort(entries, (a, b) -> b.getValue().compareTo(a.getValue()) != 0
+				? b.getValue().compareTo(a.getValue()) : a.getKey().compareTo(b.getKey()));
+		
+		long objects = 0L;
+		for(Map.Entry<String, Long> entry : entries)
+			objects += entry.getValue();
+		
+		System.out.println("soups\t\t" + soups);
+		System.out.println("unstable\t" + unstable);
+		System.out.println("objects\t\t" + objects);
+		System.out.println("generations\t" + generations);
+		System.out.println("threads\t\t" + threads);
+		System.out.println("seconds\t\t" + seconds);
+		System.out.println("soups/sec\t" + soups / seconds);
+		System.out.println("soups/sec/core\t" + soups / seconds / threads);
+		System.out.println();
+		for(Map.Entry<String, Long> entry : entries)
+			System.out.println(entry.getValue() + "\t" + entry.getKey() + "\t" + ObjectCode.kindOf(entry.getKey()));
+	}
+}
@@ -0,0 +1,191 @@
+import java.util.Arrays;
+
+/**
+ * The cells that changed since the view last painted, so a frame only has
+ * to repaint those. Cells are kept as the plain int index row * numCols +
+ * col. The engine records the changes of a generation in a Batch of its
+ * own while it ticks, and publishes the Batch once the generation is
+ * current, so the view never sees a change before the cell has changed.
+ *
+ * Once more cells have changed than a full repaint would cost, or the
+ * board was replaced, the set gives up on single cells and reports that
+ * everything changed instead.
+ *
+ * A set only has one reader, anyone else who wants to follow the same
+ * engine gets a set of their own that this one forwards to.
+ */
+public class ChangeSet
+{
+	private static final int MIN_LIMIT = 1024;
+	
+	private int[] pending = new int[MIN_LIMIT];
+	private int size;
+	private int limit;
+	private boolean tracking;
+	private boolean everything;
+	private ChangeSet follower;
+	
+	public ChangeSet(int numRows, int numCols)
+	{
+		reset(numRows, numCols);
+	}
+	
+	/**
+	 * Starts over for a board of numRows by numCols with every cell
+	 * changed. Boards with more cells than an int can index are never
+	 * tracked cell by cell.
+	 */
+	public synchronized void reset(int numRows, int numCols)
+	{
+		long cells = (long) numRows * numCols;
+		tracking = cells <= Integer.MAX_VALUE;
+		limit = (int) Math.max(MIN_LIMIT, Math.min(Integer.MAX_VALUE, cells / 8));
+		giveUp();
+		if(follower != null)
+			follower.reset(numRows, numCols);
+	}
+	
+	/**
+	 * Passes every change recorded from now on along to another set as
+	 * well, replacing the set changes were forwarded to before, if any.
+	 * 
+	 * @param follower
+	 * a set for the same board, or null to stop forwarding
+	 */
+	public synchronized void forward(ChangeSet follower)
+	{
+		this.follower = follower;
+	}
+	
+	/**
+	 * Marks every cell as changed, after an edit too large to list.
+	 */
+	public synchronized void invalidate()
+	{
+		giveUp();
+		if(follower != null)
+			follower.invalidate();
+	}
+	
+	private void giveUp()
+	{
+		everything = true;
+		size = 0;
+	}
+	
+	/**
+	 * @return
+	 * a Batch to record the changes of the next generation in, or null if
+	 * the board is too big to track
+	 */
+	public synchronized Batch newBatch()
+	{
+		return tracking ? new Batch(limit) : null;
+	}
+	
+	/**
+	 * Records a single cell edited outside of a tick.
+	 */
+	public synchronized void add(int index)
+	{
+		if(follower != null)
+			follower.add(index);
+		if(everything)
+			return;
+		if(size == limit)
+			giveUp();
+		else
+		{
+			ensureCapacity(size + 1);
+			pending[size++] = index;
+		}
+	}
+	
+	/**
+	 * Records every change of a generation at once, to be called only
+	 * after the generation the Batch describes is the current one.
+	 */
+	public synchronized void publish(Batch batch)
+	{
+		if(follower != null)
+			follower.publish(batch);
+		if(everything)
+			return;
+		if(batch.overflow || batch.size > limit - size)
+			giveUp();
+		else
+		{
+			ensureCapacity(size + batch.size);
+			System.arraycopy(batch.indices, 0, pending, size, batch.size);
+			size += batch.size;
+		}
+	}
+	
+	private void ensureCapacity(int capacity)
+	{
+		if(capacity > pending.length)
+			pending = Arrays.copyOf(pending, Math.max(capacity, Math.min(limit, pending.length * 2)));
+	}
+	
+	/**
+	 * Hands every change recorded so far over to the view and starts a new
+	 * set. A cell may be listed more than once.
+	 *
+	 * @return
+	 * the index of every cell that changed, or null if everything did
+	 */
+	public synchronized int[] drain()
+	{
+		int[] changed = everything ? null : Arrays.copyOf(pending, size);
+		everything = !tracking;
+		size = 0;
+		return changed;
+	}
+	
+	/**
+	 * The changes of one generation, or of one band of rows of it, written
+	 * by a single thread without any locking.
+	 */
+	public static class Batch
+	{
+		private int[] indices = new int[256];
+		private int size;
+		private int limit;
+		private boolean overflow;
+		
+		private Batch(int limit)
+		{
+			this.limit = limit;
+		}
+		
+		public void add(int index)
+		{
+			if(size == indices.length)
+			{
+				if(size >= limit)
+				{
+					overflow = true;
+					return;
+				}
+				indices = Arrays.copyOf(indices, Math.min(limit, size * 2));
+			}
+			indices[size++] = index;
+		}
+		
+		/**
+		 * Adds the changes of another band of rows to this one.
+		 */
+		public void addAll(Batch other)
+		{
+			if(overflow || other.overflow || other.size > limit - size)
+			{
+				overflow = true;
+				return;
+			}
+			if(size + other.size > indices.length)
+				indices = Arrays.copyOf(indices, size + other.size);
+			System.arraycopy(other.indices, 0, indices, size, other.size);
+			size += other.size;
+		}
+	}
+}
@@ -0,0 +1,72 @@
+/**
+ * Notices when a board has started repeating itself by remembering the
+ * hashes of the last few boards it was shown. A board with the same hash as
+ * one seen p generations earlier is taken to have period p, so a still life
+ * or an empty board has period 1. Two different boards only share a 64 bit
+ * hash by an astronomically unlikely accident, which is accepted here.
+ *
+ * Only periods up to the number of boards remembered are noticed, and when
+ * the boards are more than one generation apart the period found is a
+ * multiple of the real one.
+ */
+public class CycleDetector
+{
+	public static final int DEFAULT_MAX_PERIOD = 64;
+	
+	private long[] hashes;
+	private long[] generations;
+	private int next;
+	private int size;
+	
+	public CycleDetector(int maxPeriod)
+	{
+		if(maxPeriod < 1)
+			throw new IllegalArgumentException("The longest period must be at least 1: " + maxPeriod);
+		hashes = new long[maxPeriod];
+		generations = new long[maxPeriod];
+	}
+	
+	public CycleDetector()
+	{
+		this(DEFAULT_MAX_PERIOD);
+	}
+	
+	public int getMaxPeriod()
+	{
+		return hashes.length;
+	}
+	
+	/**
+	 * Forgets every board, for when the board is edited or replaced.
+	 */
+	public void reset()
+	{
+		next = 0;
+		size = 0;
+	}
+	
+	/**
+	 * Remembers the hash of the board at the given generation, forgetting
+	 * the oldest one if the ring is full.
+	 * 
+	 * @return
+	 * the number of generations since the most recent board with the same
+	 * hash, or 0 if none of the boards remembered had it
+	 */
+	public long record(long generation, long hash)
+	{
+		long period = 0L;
+		for(int i = 1; i <= size && period == 0L; i++)
+		{
+			int slot = (next - i + hashes.length) % hashes.length;
+			if(hashes[slot] == hash)
+				period = generation - generations[slot];
+		}
+		
+		hashes[next] = hash;
+		generations[next] = generation;
+		next = (next + 1) % hashes.length;
+		size = Math.min(size + 1, hashes.length);
+		return period;
+	}
+}
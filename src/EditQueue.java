@@ -0,0 +1,86 @@
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Cell edits waiting to be made to an engine, so the view can draw into a
+ * board while it is being ticked. Any number of threads add edits without
+ * ever locking, each one is pushed onto a stack with a single compare and
+ * set. The one thread that ticks the engine takes the whole stack at once
+ * between generations and makes the edits in the order they were added,
+ * so a tick never sees an edit half made and never waits on one either.
+ */
+public class EditQueue
+{
+	/**
+	 * The state that toggles a cell rather than setting it
+	 */
+	public static final int TOGGLE = -1;
+	
+	private final AtomicReference<Edit> top = new AtomicReference<Edit>();
+	
+	/**
+	 * @param state
+	 * the state to set the cell to, or TOGGLE
+	 */
+	public void add(int row, int col, int state)
+	{
+		Edit edit = new Edit(row, col, state);
+		Edit next;
+		do
+		{
+			next = top.get();
+			edit.next = next;
+		}
+		while(!top.compareAndSet(next, edit));
+	}
+	
+	/**
+	 * Makes every edit added so far, skipping any outside of the window of
+	 * the engine. Only one thread may drain a queue, and only while nothing
+	 * else is changing the engine.
+	 *
+	 * @return
+	 * true if there were any edits
+	 */
+	public boolean drain(LifeEngine engine)
+	{
+		if(top.get() == null)
+			return false;
+		
+		//the stack holds the newest edit first
+		Edit edit = top.getAndSet(null);
+		Edit oldest = null;
+		while(edit != null)
+		{
+			Edit next = edit.next;
+			edit.next = oldest;
+			oldest = edit;
+			edit = next;
+		}
+		
+		for(edit = oldest; edit != null; edit = edit.next)
+		{
+			if(!engine.isWithinRealBounds(edit.row, edit.col))
+				continue;
+			if(edit.state == TOGGLE)
+				engine.toggle(edit.row, edit.col);
+			else
+				engine.setState(edit.row, edit.col, edit.state);
+		}
+		return true;
+	}
+	
+	private static class Edit
+	{
+		private final int row;
+		private final int col;
+		private final int state;
+		private Edit next;
+		
+		private Edit(int row, int col, int state)
+		{
+			this.row = row;
+			this.col = col;
+			this.state = state;
+		}
+	}
+}
@@ -0,0 +1,93 @@
+/**
+ * Creates the model the user asked for by name, either from settings.txt
+ * or from the Engine menu of the GUI.
+ */
+public class Engines
+{
+	public static final String GRID = "GRID";
+	public static final String BITGRID = "BITGRID";
+	public static final String HASHLIFE = "HASHLIFE";
+	public static final String SPARSE = "SPARSE";
+	public static final String GENERATIONS = "GENERATIONS";
+	
+	public static final String[] NAMES = { GRID, BITGRID, HASHLIFE, SPARSE, GENERATIONS };
+	
+	/**
+	 * How many worker threads engines that can compute a generation in
+	 * parallel are created with.
+	 */
+	public static int threads = 1;
+	
+	/**
+	 * The topology bounded engines are created with.
+	 */
+	public static Boundary boundary = Boundary.DEAD;
+	
+	/**
+	 * The rule every engine is created with.
+	 */
+	public static Rule rule = Rule.CONWAY;
+	
+	/**
+	 * Only the Generations engine can run rules with more than two states,
+	 * so it is created for them whatever name is given.
+	 */
+	public static LifeEngine create(String name, int numRows, int numCols)
+	{
+		if(rule.getStates() > 2)
+			name = GENERATIONS;
+		
+		LifeEngine engine;
+		switch(name)
+		{
+		case GRID:
+			Grid grid = new Grid(numRows, numCols, boundary);
+			grid.setThreads(threads);
+			engine = grid;
+			break;
+		case HASHLIFE:
+			engine = new HashLife(numRows, numCols);
+			break;
+		case SPARSE:
+			engine = new SparseGrid(numRows, numCols);
+			break;
+		case GENERATIONS:
+			engine = new GenerationsGrid(numRows, numCols, boundary);
+			break;
+		default:
+			engine = new BitGrid(numRows, numCols, threads, boundary);
+			break;
+		}
+		engine.setRule(rule);
+		return engine;
+	}
+	
+	/**
+	 * Creates a new engine of the given name holding the same pattern as
+	 * an existing one. A pattern running a Generations rule always stays
+	 * on the Generations engine.
+	 */
+	public static LifeEngine convert(String name, LifeEngine engine)
+	{
+		if(engine.getRule().getStates() > 2)
+			name = GENERATIONS;
+		SaveableData data = engine.getSaveableData();
+		LifeEngine converted = create(name, data.numRows, data.numCols);
+		converted.loadSaveableData(data);
+		return converted;
+	}
+	
+	public static String nameOf(LifeEngine engine)
+	{
+		if(engine instanceof Grid)
+			return GRID;
+		else if(engine instanceof HashLife)
+			return HASHLIFE;
+		else if(engine instanceof SparseGrid)
+			return SPARSE;
+		else if(engine instanceof GenerationsGrid)
+			return GENERATIONS;
+		else
+			return BITGRID;
+	}
+}
@@ -1,434 +1,868 @@
-import java.awt.BorderLayout;
-import java.awt.Color;
-import java.awt.Dimension;
-import java.awt.Image;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
-import java.awt.event.ComponentAdapter;
-import java.awt.event.ComponentEvent;
-import java.awt.event.KeyEvent;
-import java.awt.event.KeyListener;
-import java.awt.event.MouseEvent;
-import java.awt.event.MouseListener;
-import java.awt.event.MouseMotionListener;
-import java.awt.event.MouseWheelEvent;
-import java.awt.event.MouseWheelListener;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
-import javax.swing.ImageIcon;
-import javax.swing.JFileChooser;
-import javax.swing.JFrame;
-import javax.swing.JMenu;
-import javax.swing.JMenuBar;
-import javax.swing.JMenuItem;
-import javax.swing.filechooser.FileNameExtensionFilter;
-
-/**
- * In the context of an MVC design pattern the GUI Object
- * acts as the controller. Kind of counter-intuitive, but it is what it is.
- * 
- * @author Jacob Cohen
- */
-public class GUI extends JFrame implements MouseListener, MouseMotionListener, KeyListener, MouseWheelListener
-{
-	private static final long serialVersionUID = 6411499808530678723L;
-	private static final int TOGGLE = 0, LIFE = 1, KILL = 2;
-	
-	private long clockSpeed;
-	private int button;
-	private boolean playing;
-	private int statusMode;
-	private int strokeMode;
-	private ExecutorService executor;
-	private PaintPanel paintPanel;
-	private JMenuBar mainMenu;
-	private JMenu file;
-	private JMenuItem saveAs;
-	private JMenuItem load;
-	private File mostRecentDirectory;
-	private java.awt.Point currentMousePosition;
-	private volatile boolean changed;
-	
-	public GUI(Grid grid, int cellSize, int gap, long clockSpeed, Color aliveColor, Color deadColor, Color gapColor, long repaintRate)
-	{
-		this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-		this.clockSpeed = clockSpeed;
-		button = MouseEvent.NOBUTTON;
-		playing = false;
-		statusMode = TOGGLE;
-		strokeMode = LIFE;
-		executor = Executors.newFixedThreadPool(2);
-		paintPanel = new PaintPanel(grid, cellSize, gap, aliveColor, deadColor, gapColor);
-		currentMousePosition = new java.awt.Point(0, 0);
-		changed = false;
-		setTitle("The Game of Life ❚❚ Paused");
-		mainMenu = new JMenuBar();
-		file = new JMenu("File");
-		saveAs = new JMenuItem("Save As");
-		saveAs.addActionListener(new ActionListener()
-		{
-			@Override
-			public void actionPerformed(ActionEvent e)
-			{
-				saveAsActionPerformed(e);
-			}
-		});
-		file.add(saveAs);
-		
-		load = new JMenuItem("Load");		
-		load.addActionListener(new ActionListener()
-		{
-			@Override
-			public void actionPerformed(ActionEvent e)
-			{
-				loadActionPerformed(e);
-			}
-		});
-		file.add(load);
-		mainMenu.add(file);
-		setJMenuBar(mainMenu);
-		mostRecentDirectory = null;
-		
-		addComponentListener(new ComponentAdapter()
-		{
-            public void componentResized(ComponentEvent e)
-            {
-            	resizedEvent(e);
-            }
-		});
-		
-		addComponentListener(new ComponentAdapter()
-		{
-            public void componentMoved(ComponentEvent e)
-            {
-            	movedEvent(e);
-            }
-		});
-		
-		getContentPane().setLayout(new BorderLayout());
-		getContentPane().add(paintPanel, BorderLayout.CENTER);
-		paintPanel.addMouseListener(this);
-		paintPanel.addMouseMotionListener(this);
-		paintPanel.addMouseWheelListener(this);
-		this.addKeyListener(this);
-		pack();
-		
-		setLocationRelativeTo(null);
-		List<Image> icons = new LinkedList<Image>();
-		icons.add((new ImageIcon(getClass().getClassLoader().getResource("icon_16x16.PNG"))).getImage());
-		icons.add((new ImageIcon(getClass().getClassLoader().getResource("icon_32x32.PNG"))).getImage());
-		icons.add((new ImageIcon(getClass().getClassLoader().getResource("icon_64x64.PNG"))).getImage());
-		icons.add((new ImageIcon(getClass().getClassLoader().getResource("icon_128x128.PNG"))).getImage());
-		setIconImages(icons);
-		
-		setVisible(true);
-		Dimension d = paintPanel.getPreferredSize();
-		paintPanel.shiftX = (getContentPane().getWidth() - d.width) / 2;
-		paintPanel.shiftY = (getContentPane().getHeight() - d.height) / 2;
-		executor.execute(new RepaintRepeater(repaintRate));
-//		if(paintPanel.shiftX < 0)
-//			paintPanel.shiftX = 0;
-//		if(paintPanel.shiftY < 0)
-//			paintPanel.shiftY = 0;
-	}
-	
-	private void saveAsActionPerformed(ActionEvent e)
-	{
-		JFileChooser chooser = new JFileChooser();
-		chooser.setCurrentDirectory(mostRecentDirectory);
-    	chooser.setFileFilter(new FileNameExtensionFilter("Game of Life (*.gol)", new String[] { "gol" }));        	
-		chooser.showOpenDialog(null);
-		chooser.setFileHidingEnabled(true);
-		File selected = chooser.getSelectedFile();
-		if(selected != null)
-		{
-			String dir = selected.toString();
-			int index = dir.lastIndexOf('.');
-			if(index < 0 || dir.substring(index).toLowerCase().contentEquals(".gol") == false)
-				dir += ".gol";
-			else if(dir.substring(index).contentEquals(".gol") == false)
-				dir = dir.substring(0, index) + dir.substring(index).toLowerCase();
-			save(new File(dir));
-		}
-	}
-	
-	private void loadActionPerformed(ActionEvent e)
-	{
-		JFileChooser chooser = new JFileChooser();
-		chooser.setCurrentDirectory(mostRecentDirectory);
-    	chooser.setFileFilter(new FileNameExtensionFilter("Game of Life (*.gol)", new String[] { "gol" }));        	
-		chooser.showOpenDialog(null);
-		chooser.setFileHidingEnabled(true);
-		File selected = chooser.getSelectedFile();
-		if(selected != null)
-		{
-			load(selected);
-		}
-	}
-	
-	private class RepaintRepeater extends Thread
-	{
-		private long delay;
-		private long start;
-		
-		public RepaintRepeater(long delay)
-		{
-			this.delay = delay;
-			start = 0L;
-		}
-		
-		public void run()
-		{
-			while(true)
-			{
-				if(changed)
-				{
-					changed &= false;
-					start = System.currentTimeMillis();
-					repaint();
-					try
-					{
-						Thread.sleep(delay - (System.currentTimeMillis() - start));
-					}
-					catch(Exception ex)
-					{
-						
-					}
-				}
-			}
-		}
-	}
-	
-	private class Play extends Thread
-	{
-		public Play(int priority)
-		{
-			this.setPriority(priority);
-		}
-		
-		public void run()
-		{
-			while(playing == true)
-			{
-				paintPanel.tick(clockSpeed);
-				changed |= true;
-			}
-		}
-	}
-	
-	public void save(File f)
-	{
-		if(playing == false)
-		{
-			try
-			{
-				SaveableData saveableData = paintPanel.getSaveableData();
-				ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(f));
-				oos.writeObject(saveableData);
-				oos.close();
-				mostRecentDirectory = f.getParentFile();
-			}
-			catch(Exception ex)
-			{
-				
-			}
-		}
-	}
-	
-	public void load(File f)
-	{
-		if(playing == false)
-		{
-			try
-			{
-				ObjectInputStream ois = new ObjectInputStream(new FileInputStream(f));
-				SaveableData saveableData = (SaveableData)ois.readObject();
-				ois.close();
-				paintPanel.load(saveableData);
-				mostRecentDirectory = f.getParentFile();
-			}
-			catch(Exception ex)
-			{
-				ex.printStackTrace();
-			}
-		}
-	}
-	
-	public void play()
-	{
-		playing = true;
-		executor.execute(new Play(Thread.MAX_PRIORITY));
-		setTitle("The Game of Life ▶ Running");
-	}
-	
-	public void pause()
-	{
-		playing = false;
-		setTitle("The Game of Life ❚❚ Paused");
-	}
-	
-	public void togglePause()
-	{
-		if(playing)
-			pause();
-		else
-			play();
-	}
-	
-	public void resizedEvent(ComponentEvent e)
-	{
-		paintPanel.resetFirstPaint();
-	}
-	
-	public void movedEvent(ComponentEvent e)
-	{
-		paintPanel.resetFirstPaint();
-	}
-	
-	private Point getPos(MouseEvent e)
-	{
-		return paintPanel.getPos(e.getPoint());
-	}
-	
-	@Override
-	public void mouseClicked(MouseEvent e)
-	{
-		button = e.getButton();
-		if(playing == false && e.getButton() == MouseEvent.BUTTON1)
-		{
-			switch(statusMode)
-			{
-			case TOGGLE:
-				paintPanel.toggle(getPos(e));
-				break;
-			case LIFE:
-				paintPanel.set(getPos(e), true);
-				break;
-			case KILL:
-				paintPanel.set(getPos(e), false);
-				break;
-			}
-			changed |= true;
-		}
-	}
-	
-	java.awt.Point pressedPoint = null;
-
-	@Override
-	public void mousePressed(MouseEvent e)
-	{
-		button = e.getButton();
-		pressedPoint = e.getPoint();
-		prev = e.getPoint();
-	}
-
-	@Override
-	public void mouseReleased(MouseEvent e)
-	{
-		button = e.getButton();
-	}
-
-	@Override
-	public void mouseEntered(MouseEvent e)
-	{
-		
-	}
-
-	@Override
-	public void mouseExited(MouseEvent e)
-	{
-		
-	}
-	
-	private java.awt.Point prev;
-	
-	@Override
-	public void mouseDragged(MouseEvent e)
-	{
-		if(playing == false && MouseEvent.BUTTON1 == button)
-		{
-			switch(strokeMode)
-			{
-			case LIFE:
-				paintPanel.markStroke(e.getPoint(), Grid.ALIVE);
-				break;
-			case KILL:
-				paintPanel.markStroke(e.getPoint(), Grid.DEAD);
-				break;
-			}
-		}
-		else if(MouseEvent.BUTTON3 == button)
-		{
-			paintPanel.shiftX += e.getX() - prev.x;
-			paintPanel.shiftY += e.getY() - prev.y;
-			prev = e.getPoint();
-			changed |= true;
-			paintPanel.resetFirstPaint();
-		}
-	}
-
-	@Override
-	public void mouseMoved(MouseEvent e)
-	{
-		currentMousePosition = e.getPoint();
-	}
-
-	@Override
-	public void keyTyped(KeyEvent e)
-	{
-		
-	}
-	
-	@Override
-	public void keyPressed(KeyEvent e)
-	{
-		if(e.getKeyCode() == KeyEvent.VK_SPACE)
-		{
-			togglePause();
-		}
-		else if(e.getKeyCode() == KeyEvent.VK_CONTROL)
-		{
-			//cycles through toggle, life, and kill
-			switch(statusMode)
-			{
-			case TOGGLE:
-				statusMode = LIFE;
-				break;
-			case LIFE:
-				statusMode = KILL;
-				break;
-			case KILL:
-				statusMode = TOGGLE;
-				break;
-			}
-		}
-		else if(e.getKeyCode() == KeyEvent.VK_SHIFT)
-		{
-			strokeMode = KILL;
-		}
-	}
-
-	@Override
-	public void keyReleased(KeyEvent e)
-	{
-		if(e.getKeyCode() == KeyEvent.VK_SHIFT)
-		{
-			strokeMode = LIFE;
-		}
-	}
-
-	@Override
-	public void mouseWheelMoved(MouseWheelEvent e)
-	{
-		changed |= paintPanel.zoom(e.getWheelRotation(), currentMousePosition);
-		paintPanel.resetFirstPaint();
-	}
-}
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.DisplayMode;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseListener;
+import java.awt.event.MouseMotionListener;
+import java.awt.event.MouseWheelEvent;
+import java.awt.event.MouseWheelListener;
+import java.io.File;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import javax.swing.ButtonGroup;
+import javax.swing.JCheckBoxMenuItem;
+import javax.swing.ImageIcon;
+import javax.swing.JFileChooser;
+import javax.swing.JFrame;
+import javax.swing.JMenu;
+import javax.swing.JMenuBar;
+import javax.swing.JMenuItem;
+import javax.swing.JRadioButtonMenuItem;
+import javax.swing.JSlider;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
+
+/**
+ * In the context of an MVC design pattern the GUI Object
+ * acts as the controller. Kind of counter-intuitive, but it is what it is.
+ * 
+ * @author Jacob Cohen
+ */
+public class GUI extends JFrame implements MouseListener, MouseMotionListener, KeyListener, MouseWheelListener
+{
+	private static final long serialVersionUID = 6411499808530678723L;
+	private static final int TOGGLE = 0, LIFE = 1, KILL = 2;
+	/**
+	 * The steps per second offered in the Speed menu, 0 for as fast as
+	 * possible
+	 */
+	private static final int[] SPEEDS = { 0, 1000, 100, 60, 30, 10, 1 };
+	
+	private int button;
+	private volatile boolean playing;
+	private int statusMode;
+	private int strokeMode;
+	private Scheduler scheduler;
+	private EditQueue edits;
+	private PaintPanel paintPanel;
+	private JMenuBar mainMenu;
+	private JMenu file;
+	private JMenuItem saveAs;
+	private JMenuItem load;
+	private JMenuItem importItem;
+	private JMenuItem exportItem;
+	private JMenu engineMenu;
+	private JMenu stepMenu;
+	private NavigableMap<Integer, JRadioButtonMenuItem> stepItems;
+	private JMenu speedMenu;
+	private JMenu viewMenu;
+	private Metrics metrics;
+	private volatile int stepExponent;
+	private volatile boolean pauseWhenStable;
+	private CycleDetector cycleDetector;
+	private History history;
+	private JSlider timeline;
+	private boolean updatingTimeline;
+	/**
+	 * The steps between two frames of the history, 0 while it is not being
+	 * recorded
+	 */
+	private volatile int historyStride;
+	private final int recordStride;
+	//only touched by the simulation thread
+	private long unrecordedGenerations;
+	private int unrecordedSteps;
+	private long generation;
+	private File mostRecentDirectory;
+	private java.awt.Point currentMousePosition;
+	
+	/**
+	 * @param clockSpeed
+	 * the milliseconds from the start of one step to the start of the next
+	 * while playing, 0 to step as fast as possible
+	 *
+	 * @param repaintRate
+	 * the fewest milliseconds between two frames, frames are never painted
+	 * faster than the refresh rate of the screen either
+	 *
+	 * @param historyStride
+	 * the steps between two frames of the history, 0 to start without
+	 * recording one
+	 */
+	public GUI(LifeEngine grid, int cellSize, int gap, long clockSpeed, Color aliveColor, Color deadColor, Color gapColor, Color dyingColor, long repaintRate, int historyStride)
+	{
+		this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+		button = MouseEvent.NOBUTTON;
+		playing = false;
+		statusMode = TOGGLE;
+		strokeMode = LIFE;
+		paintPanel = new PaintPanel(grid, cellSize, gap, aliveColor, deadColor, gapColor, dyingColor);
+		edits = new EditQueue();
+		metrics = new Metrics(paintPanel::getEngine);
+		metrics.register();
+		paintPanel.setMetrics(metrics);
+		scheduler = new Scheduler(this::step, this::applyEdits, this::frame, clockSpeed * 1000000L, framePeriod(repaintRate));
+		this.historyStride = Math.max(0, historyStride);
+		recordStride = Math.max(1, historyStride);
+		currentMousePosition = new java.awt.Point(0, 0);
+		setTitle("The Game of Life ❚❚ Paused");
+		mainMenu = new JMenuBar();
+		file = new JMenu("File");
+		saveAs = new JMenuItem("Save As");
+		saveAs.addActionListener(new ActionListener()
+		{
+			@Override
+			public void actionPerformed(ActionEvent e)
+			{
+				saveAsActionPerformed(e);
+			}
+		});
+		file.add(saveAs);
+		
+		load = new JMenuItem("Load");		
+		load.addActionListener(new ActionListener()
+		{
+			@Override
+			public void actionPerformed(ActionEvent e)
+			{
+				loadActionPerformed(e);
+			}
+		});
+		file.add(load);
+		
+		importItem = new JMenuItem("Import");
+		importItem.addActionListener(new ActionListener()
+		{
+			@Override
+			public void actionPerformed(ActionEvent e)
+			{
+				importActionPerformed(e);
+			}
+		});
+		file.add(importItem);
+		
+		exportItem = new JMenuItem("Export");
+		exportItem.addActionListener(new ActionListener()
+		{
+			@Override
+			public void actionPerformed(ActionEvent e)
+			{
+				exportActionPerformed(e);
+			}
+		});
+		file.add(exportItem);
+		mainMenu.add(file);
+		
+		engineMenu = new JMenu("Engine");
+		ButtonGroup engineGroup = new ButtonGroup();
+		for(String name : Engines.NAMES)
+		{
+			JRadioButtonMenuItem item = new JRadioButtonMenuItem(name);
+			item.setSelected(name.equals(Engines.nameOf(grid)));
+			item.addActionListener(new ActionListener()
+			{
+				@Override
+				public void actionPerformed(ActionEvent e)
+				{
+					engineActionPerformed(name);
+				}
+			});
+			engineGroup.add(item);
+			engineMenu.add(item);
+		}
+		mainMenu.add(engineMenu);
+		
+		stepExponent = 0;
+		stepMenu = new JMenu("Step Size");
+		stepItems = new TreeMap<Integer, JRadioButtonMenuItem>();
+		ButtonGroup stepGroup = new ButtonGroup();
+		for(int exponent = 0; exponent <= 32; exponent += exponent < 4 ? 1 : 4)
+		{
+			int selected = exponent;
+			JRadioButtonMenuItem item = new JRadioButtonMenuItem("2^" + exponent + " generations");
+			item.setSelected(exponent == stepExponent);
+			item.addActionListener(new ActionListener()
+			{
+				@Override
+				public void actionPerformed(ActionEvent e)
+				{
+					stepExponent = selected;
+				}
+			});
+			stepGroup.add(item);
+			stepMenu.add(item);
+			stepItems.put(exponent, item);
+		}
+		updateStepMenu();
+		
+		cycleDetector = new CycleDetector();
+		pauseWhenStable = false;
+		JCheckBoxMenuItem stable = new JCheckBoxMenuItem("Pause When Stable");
+		stable.addActionListener(new ActionListener()
+		{
+			@Override
+			public void actionPerformed(ActionEvent e)
+			{
+				pauseWhenStable = stable.isSelected();
+			}
+		});
+		stepMenu.addSeparator();
+		stepMenu.add(stable);
+		mainMenu.add(stepMenu);
+		
+		speedMenu = new JMenu("Speed");
+		ButtonGroup speedGroup = new ButtonGroup();
+		for(int speed : SPEEDS)
+		{
+			JRadioButtonMenuItem item = new JRadioButtonMenuItem(speed == 0 ? "As Fast As Possible" : speed + " steps/s");
+			item.setSelected(speed == 0 ? clockSpeed <= 0L : clockSpeed * speed == 1000L);
+			item.addActionListener(new ActionListener()
+			{
+				@Override
+				public void actionPerformed(ActionEvent e)
+				{
+					scheduler.setStepPeriod(speed == 0 ? 0L : 1000000000L / speed);
+				}
+			});
+			speedGroup.add(item);
+			speedMenu.add(item);
+		}
+		mainMenu.add(speedMenu);
+		
+		viewMenu = new JMenu("View");
+		JCheckBoxMenuItem showMetrics = new JCheckBoxMenuItem("Show Metrics");
+		showMetrics.addActionListener(new ActionListener()
+		{
+			@Override
+			public void actionPerformed(ActionEvent e)
+			{
+				paintPanel.setHudVisible(showMetrics.isSelected());
+			}
+		});
+		viewMenu.add(showMetrics);
+		JCheckBoxMenuItem showGraph = new JCheckBoxMenuItem("Show Population Graph");
+		showGraph.addActionListener(new ActionListener()
+		{
+			@Override
+			public void actionPerformed(ActionEvent e)
+			{
+				paintPanel.setGraphVisible(showGraph.isSelected());
+			}
+		});
+		viewMenu.add(showGraph);
+		JCheckBoxMenuItem recordHistory = new JCheckBoxMenuItem("Record History");
+		recordHistory.setSelected(this.historyStride > 0);
+		recordHistory.addActionListener(new ActionListener()
+		{
+			@Override
+			public void actionPerformed(ActionEvent e)
+			{
+				setRecording(recordHistory.isSelected());
+			}
+		});
+		viewMenu.add(recordHistory);
+		mainMenu.add(viewMenu);
+		setJMenuBar(mainMenu);
+		mostRecentDirectory = null;
+		
+		addComponentListener(new ComponentAdapter()
+		{
+            public void componentResized(ComponentEvent e)
+            {
+            	resizedEvent(e);
+            }
+		});
+		
+		addComponentListener(new ComponentAdapter()
+		{
+            public void componentMoved(ComponentEvent e)
+            {
+            	movedEvent(e);
+            }
+		});
+		
+		getContentPane().setLayout(new BorderLayout());
+		getContentPane().add(paintPanel, BorderLayout.CENTER);
+		
+		history = new History();
+		timeline = new JSlider(0, 0, 0);
+		timeline.setFocusable(false);
+		timeline.addChangeListener(new ChangeListener()
+		{
+			@Override
+			public void stateChanged(ChangeEvent e)
+			{
+				if(!updatingTimeline)
+					seek(timeline.getValue());
+			}
+		});
+		timeline.setVisible(this.historyStride > 0);
+		getContentPane().add(timeline, BorderLayout.SOUTH);
+		
+		paintPanel.addMouseListener(this);
+		paintPanel.addMouseMotionListener(this);
+		paintPanel.addMouseWheelListener(this);
+		this.addKeyListener(this);
+		pack();
+		
+		setLocationRelativeTo(null);
+		List<Image> icons = new LinkedList<Image>();
+		icons.add((new ImageIcon(getClass().getClassLoader().getResource("icon_16x16.PNG"))).getImage());
+		icons.add((new ImageIcon(getClass().getClassLoader().getResource("icon_32x32.PNG"))).getImage());
+		icons.add((new ImageIcon(getClass().getClassLoader().getResource("icon_64x64.PNG"))).getImage());
+		icons.add((new ImageIcon(getClass().getClassLoader().getResource("icon_128x128.PNG"))).getImage());
+		setIconImages(icons);
+		
+		setVisible(true);
+		Dimension d = paintPanel.getPreferredSize();
+		paintPanel.shiftX = (paintPanel.getWidth() - d.width) / 2;
+		paintPanel.shiftY = (paintPanel.getHeight() - d.height) / 2;
+		scheduler.start();
+//		if(paintPanel.shiftX < 0)
+//			paintPanel.shiftX = 0;
+//		if(paintPanel.shiftY < 0)
+//			paintPanel.shiftY = 0;
+	}
+	
+	private void saveAsActionPerformed(ActionEvent e)
+	{
+		JFileChooser chooser = new JFileChooser();
+		chooser.setCurrentDirectory(mostRecentDirectory);
+    	chooser.setFileFilter(new FileNameExtensionFilter("Game of Life (*.gol)", new String[] { "gol" }));        	
+		chooser.showOpenDialog(null);
+		chooser.setFileHidingEnabled(true);
+		File selected = chooser.getSelectedFile();
+		if(selected != null)
+		{
+			String dir = selected.toString();
+			int index = dir.lastIndexOf('.');
+			if(index < 0 || dir.substring(index).toLowerCase().contentEquals(".gol") == false)
+				dir += ".gol";
+			else if(dir.substring(index).contentEquals(".gol") == false)
+				dir = dir.substring(0, index) + dir.substring(index).toLowerCase();
+			save(new File(dir));
+		}
+	}
+	
+	private void loadActionPerformed(ActionEvent e)
+	{
+		JFileChooser chooser = new JFileChooser();
+		chooser.setCurrentDirectory(mostRecentDirectory);
+    	chooser.setFileFilter(new FileNameExtensionFilter("Game of Life (*.gol)", new String[] { "gol" }));        	
+		chooser.showOpenDialog(null);
+		chooser.setFileHidingEnabled(true);
+		File selected = chooser.getSelectedFile();
+		if(selected != null)
+		{
+			load(selected);
+		}
+	}
+	
+	/**
+	 * Reads a pattern written by another Life program, RLE, Life 1.06 or
+	 * macrocell, picked by its extension.
+	 */
+	private void importActionPerformed(ActionEvent e)
+	{
+		JFileChooser chooser = new JFileChooser();
+		chooser.setCurrentDirectory(mostRecentDirectory);
+		chooser.setFileFilter(new FileNameExtensionFilter("Patterns (*.rle, *.lif, *.life, *.mc)", Patterns.EXTENSIONS));
+		chooser.showOpenDialog(null);
+		File selected = chooser.getSelectedFile();
+		if(selected != null && playing == false)
+		{
+			scheduler.invoke(() ->
+			{
+				try
+				{
+					paintPanel.importPattern(selected);
+					history.clear();
+					SwingUtilities.invokeLater(() ->
+					{
+						paintPanel.center();
+						paintPanel.resetFirstPaint();
+						updateTimeline();
+						mostRecentDirectory = selected.getParentFile();
+					});
+				}
+				catch(Exception ex)
+				{
+					ex.printStackTrace();
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Writes the pattern for another Life program, as RLE unless the file
+	 * name ends in .lif, .life or .mc.
+	 */
+	private void exportActionPerformed(ActionEvent e)
+	{
+		JFileChooser chooser = new JFileChooser();
+		chooser.setCurrentDirectory(mostRecentDirectory);
+		chooser.setFileFilter(new FileNameExtensionFilter("Patterns (*.rle, *.lif, *.life, *.mc)", Patterns.EXTENSIONS));
+		chooser.showSaveDialog(null);
+		File selected = chooser.getSelectedFile();
+		if(selected != null && playing == false)
+		{
+			File file = Patterns.isPattern(selected.getName()) ? selected : new File(selected.getPath() + ".rle");
+			scheduler.invoke(() ->
+			{
+				try
+				{
+					paintPanel.exportPattern(file);
+					SwingUtilities.invokeLater(() -> mostRecentDirectory = file.getParentFile());
+				}
+				catch(Exception ex)
+				{
+					ex.printStackTrace();
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Swaps the model out for a different engine holding the same pattern,
+	 * only allowed while paused. The swap is made by the simulation thread
+	 * between generations, after any edits queued before it, so none land
+	 * on the engine thrown away.
+	 */
+	private void engineActionPerformed(String name)
+	{
+		if(playing == false)
+		{
+			scheduler.invoke(() ->
+			{
+				paintPanel.setEngine(Engines.convert(name, paintPanel.getEngine()));
+				history.clear();
+				SwingUtilities.invokeLater(() ->
+				{
+					updateTimeline();
+					updateStepMenu();
+				});
+			});
+		}
+	}
+	
+	/**
+	 * Offers only the step sizes the engine can take in a moment, since a
+	 * step can not be paused halfway. Ticked one generation at a time a
+	 * step of 2^32 generations takes hours. If the step size chosen is too
+	 * big for the engine the biggest it can take is chosen instead.
+	 */
+	private void updateStepMenu()
+	{
+		int max = paintPanel.getEngine().getMaxStepExponent();
+		for(Map.Entry<Integer, JRadioButtonMenuItem> entry : stepItems.entrySet())
+			entry.getValue().setEnabled(entry.getKey() <= max);
+		if(stepExponent > max)
+		{
+			int exponent = stepItems.floorKey(max);
+			stepItems.get(exponent).setSelected(true);
+			stepExponent = exponent;
+		}
+	}
+	
+	/**
+	 * @return
+	 * the nanoseconds between two frames, no fewer than repaintRate
+	 * milliseconds nor than one refresh of the screen
+	 */
+	private static long framePeriod(long repaintRate)
+	{
+		long period = Math.max(0L, repaintRate) * 1000000L;
+		int refreshRate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode().getRefreshRate();
+		if(refreshRate != DisplayMode.REFRESH_RATE_UNKNOWN)
+			period = Math.max(period, 1000000000L / refreshRate);
+		return period;
+	}
+	
+	/**
+	 * Asks for the view to be painted, and the timeline to catch up with
+	 * the frames recorded since the last one.
+	 */
+	private void frame()
+	{
+		paintPanel.repaint();
+		if(historyStride > 0)
+			SwingUtilities.invokeLater(this::updateTimeline);
+	}
+	
+	private void updateTimeline()
+	{
+		updatingTimeline = true;
+		timeline.setMaximum(Math.max(0, history.size() - 1));
+		timeline.setValue(history.getPosition());
+		updatingTimeline = false;
+	}
+	
+	/**
+	 * Moves the board back or forward to a frame of the history, only
+	 * while paused. Edits made since the last frame become a frame of their
+	 * own first, so they can be stepped back over too. The board is moved
+	 * by the simulation thread, once the step it may still be finishing and
+	 * the edits queued before are done.
+	 */
+	private void seek(int frame)
+	{
+		if(playing == false && historyStride > 0)
+		{
+			scheduler.invoke(() ->
+			{
+				history.seek(paintPanel.getEngine(), frame);
+				long generation = history.getGeneration();
+				SwingUtilities.invokeLater(() ->
+				{
+					setTitle("The Game of Life ❚❚ Generation " + generation);
+					if(!timeline.getValueIsAdjusting())
+						updateTimeline();
+				});
+			});
+		}
+		else
+			updateTimeline();
+	}
+	
+	/**
+	 * Takes one step on the simulation thread, and when asked to also
+	 * pauses once the board has died out or started repeating itself. The
+	 * hash of the board is recorded after every step, so with steps of more
+	 * than 1 generation the period shown is a multiple of the real one.
+	 * 
+	 * @return
+	 * false to stop stepping
+	 */
+	private boolean step()
+	{
+		LifeEngine engine = paintPanel.getEngine();
+		int exponent = Math.min(stepExponent, engine.getMaxStepExponent());
+		long start = System.nanoTime();
+		engine.advance(exponent);
+		metrics.recordStep(System.nanoTime() - start, 1L << exponent);
+		record(engine, 1L << exponent);
+		generation += 1L << exponent;
+		
+		if(pauseWhenStable)
+		{
+			long period = cycleDetector.record(generation, engine.getHash());
+			if(period > 0L)
+			{
+				boolean empty = engine.getPopulation() == 0L;
+				SwingUtilities.invokeLater(() -> stabilized(empty, period));
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Records a frame of the history once every historyStride steps, on
+	 * the simulation thread. Edits, which move no generations, and the
+	 * steps since the last frame are always recorded.
+	 *
+	 * @param generations
+	 * how many generations the engine has moved, 0 for edits
+	 */
+	private void record(LifeEngine engine, long generations)
+	{
+		int stride = historyStride;
+		if(stride == 0)
+			return;
+		unrecordedGenerations += generations;
+		if(generations != 0L && ++unrecordedSteps < stride)
+			return;
+		history.record(engine, unrecordedGenerations);
+		unrecordedGenerations = 0L;
+		unrecordedSteps = 0;
+	}
+	
+	/**
+	 * Starts recording the history from the board as it is, or stops and
+	 * forgets it, hiding the timeline along with it.
+	 */
+	private void setRecording(boolean recording)
+	{
+		historyStride = recording ? recordStride : 0;
+		scheduler.invoke(() ->
+		{
+			history.clear();
+			unrecordedGenerations = 0L;
+			unrecordedSteps = 0;
+			record(paintPanel.getEngine(), 0L);
+			SwingUtilities.invokeLater(this::updateTimeline);
+		});
+		timeline.setVisible(recording);
+		getContentPane().revalidate();
+	}
+	
+	private void stabilized(boolean empty, long period)
+	{
+		pause();
+		setTitle("The Game of Life ❚❚ " + (empty ? "Died Out" : "Stable, Period " + period));
+	}
+	
+	public void save(File f)
+	{
+		if(playing == false)
+		{
+			SaveableData view = paintPanel.getView();
+			scheduler.invoke(() ->
+			{
+				try
+				{
+					paintPanel.save(f, view);
+					SwingUtilities.invokeLater(() -> mostRecentDirectory = f.getParentFile());
+				}
+				catch(Exception ex)
+				{
+					ex.printStackTrace();
+				}
+			});
+		}
+	}
+	
+	public void load(File f)
+	{
+		if(playing == false)
+		{
+			scheduler.invoke(() ->
+			{
+				try
+				{
+					SaveableData view = paintPanel.load(f);
+					history.clear();
+					SwingUtilities.invokeLater(() ->
+					{
+						paintPanel.setView(view);
+						updateTimeline();
+						mostRecentDirectory = f.getParentFile();
+					});
+				}
+				catch(Exception ex)
+				{
+					ex.printStackTrace();
+				}
+			});
+		}
+	}
+	
+	public void play()
+	{
+		playing = true;
+		generation = 0L;
+		cycleDetector.reset();
+		scheduler.invoke(() -> record(paintPanel.getEngine(), 0L));
+		timeline.setEnabled(false);
+		scheduler.play();
+		engineMenu.setEnabled(false);
+		setTitle("The Game of Life ▶ Running");
+	}
+	
+	public void pause()
+	{
+		playing = false;
+		scheduler.pause();
+		scheduler.invoke(() ->
+		{
+			record(paintPanel.getEngine(), 0L);
+			SwingUtilities.invokeLater(this::updateTimeline);
+		});
+		timeline.setEnabled(true);
+		engineMenu.setEnabled(true);
+		setTitle("The Game of Life ❚❚ Paused");
+	}
+	
+	public void togglePause()
+	{
+		if(playing)
+			pause();
+		else
+			play();
+	}
+	
+	public void resizedEvent(ComponentEvent e)
+	{
+		paintPanel.resetFirstPaint();
+	}
+	
+	public void movedEvent(ComponentEvent e)
+	{
+		paintPanel.resetFirstPaint();
+	}
+	
+	private Point getPos(MouseEvent e)
+	{
+		return paintPanel.getPos(e.getPoint());
+	}
+	
+	/**
+	 * Queues an edit of the cell under the mouse, made by the simulation
+	 * thread between generations, so the board can be drawn on while it
+	 * runs.
+	 */
+	private void edit(MouseEvent e, int state)
+	{
+		Point pos = getPos(e);
+		edits.add(pos.y, pos.x, state);
+		scheduler.wake();
+	}
+	
+	private boolean applyEdits()
+	{
+		return edits.drain(paintPanel.getEngine());
+	}
+	
+	@Override
+	public void mouseClicked(MouseEvent e)
+	{
+		button = e.getButton();
+		if(e.getButton() == MouseEvent.BUTTON1)
+		{
+			switch(statusMode)
+			{
+			case TOGGLE:
+				edit(e, EditQueue.TOGGLE);
+				break;
+			case LIFE:
+				edit(e, 1);
+				break;
+			case KILL:
+				edit(e, 0);
+				break;
+			}
+		}
+	}
+	
+	java.awt.Point pressedPoint = null;
+
+	@Override
+	public void mousePressed(MouseEvent e)
+	{
+		button = e.getButton();
+		pressedPoint = e.getPoint();
+		prev = e.getPoint();
+	}
+
+	@Override
+	public void mouseReleased(MouseEvent e)
+	{
+		button = e.getButton();
+	}
+
+	@Override
+	public void mouseEntered(MouseEvent e)
+	{
+		
+	}
+
+	@Override
+	public void mouseExited(MouseEvent e)
+	{
+		
+	}
+	
+	private java.awt.Point prev;
+	
+	@Override
+	public void mouseDragged(MouseEvent e)
+	{
+		if(MouseEvent.BUTTON1 == button)
+		{
+			switch(strokeMode)
+			{
+			case LIFE:
+				edit(e, 1);
+				break;
+			case KILL:
+				edit(e, 0);
+				break;
+			}
+		}
+		else if(MouseEvent.BUTTON3 == button)
+		{
+			paintPanel.shiftX += e.getX() - prev.x;
+			paintPanel.shiftY += e.getY() - prev.y;
+			prev = e.getPoint();
+			scheduler.requestFrame();
+			paintPanel.resetFirstPaint();
+		}
+	}
+
+	@Override
+	public void mouseMoved(MouseEvent e)
+	{
+		currentMousePosition = e.getPoint();
+	}
+
+	@Override
+	public void keyTyped(KeyEvent e)
+	{
+		
+	}
+	
+	@Override
+	public void keyPressed(KeyEvent e)
+	{
+		if(e.getKeyCode() == KeyEvent.VK_SPACE)
+		{
+			togglePause();
+		}
+		else if(e.getKeyCode() == KeyEvent.VK_LEFT || e.getKeyCode() == KeyEvent.VK_RIGHT)
+		{
+			//steps back or forward through the history
+			seek(history.getPosition() + (e.getKeyCode() == KeyEvent.VK_LEFT ? -1 : 1));
+		}
+		else if(e.getKeyCode() == KeyEvent.VK_CONTROL)
+		{
+			//cycles through toggle, life, and kill
+			switch(statusMode)
+			{
+			case TOGGLE:
+				statusMode = LIFE;
+				break;
+			case LIFE:
+				statusMode = KILL;
+				break;
+			case KILL:
+				statusMode = TOGGLE;
+				break;
+			}
+		}
+		else if(e.getKeyCode() == KeyEvent.VK_SHIFT)
+		{
+			strokeMode = KILL;
+		}
+	}
+
+	@Override
+	public void keyReleased(KeyEvent e)
+	{
+		if(e.getKeyCode() == KeyEvent.VK_SHIFT)
+		{
+			strokeMode = LIFE;
+		}
+	}
+
+	@Override
+	public void mouseWheelMoved(MouseWheelEvent e)
+	{
+		paintPanel.zoom(e.getWheelRotation(), currentMousePosition);
+		paintPanel.resetFirstPaint();
+	}
+}
@@ -0,0 +1,459 @@
+/**
+ * A model of the grid for rules of the Generations family, where a cell
+ * that stops being alive passes through a number of dying states before it
+ * is dead again. Every cell is stored as a single byte holding its state,
+ * in one flat array with a halo of ghost cells around the board, so the
+ * next state of a cell is one lookup in the transition table of the Rule
+ * indexed by its state and its number of living neighbors.
+ *
+ * Neighbors are counted a whole row at a time rather than cell by cell.
+ * The living cells of a generation are first written out as a plane of 0s
+ * and 1s, then each row of counts is the sum of the three rows of that
+ * plane around it, shifted left, right and not at all. Every one of those
+ * passes is a plain loop over byte arrays with no branches, which the JIT
+ * compiles to SIMD instructions that handle many cells at once.
+ *
+ * Two-state rules run here as well, every cell is then simply 0 or 1.
+ */
+public class GenerationsGrid implements LifeEngine
+{
+	private int numRows;
+	private int numCols;
+	private int stride;
+	private Boundary boundary;
+	private Rule rule;
+	private byte[] transitions;
+	
+	private volatile byte[] current;
+	private byte[] next;
+	private byte[] spare;
+	private final Pins pins = new Pins();
+	private long hash;
+	private volatile ChangeSet changes;
+	private volatile Statistics statistics;
+	private final Statistics.Tally tally = new Statistics.Tally();
+	/**
+	 * The living cells, only counted while statistics are being recorded
+	 */
+	private volatile long population;
+	private volatile boolean counting;
+	
+	private byte[] living;
+	private byte[] columns;
+	private byte[] counts;
+	
+	public GenerationsGrid(int numRows, int numCols, Boundary boundary)
+	{
+		this.boundary = boundary;
+		setRule(Rule.CONWAY);
+		allocate(numRows, numCols);
+	}
+	
+	public GenerationsGrid(int numRows, int numCols)
+	{
+		this(numRows, numCols, Boundary.DEAD);
+	}
+	
+	/**
+	 * @throws IllegalArgumentException
+	 * if the board has more cells than an array can hold
+	 */
+	private void allocate(int numRows, int numCols)
+	{
+		if((numRows + 2L) * (numCols + 2L) > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("Too big for " + Engines.GENERATIONS + ": " + numCols + " by " + numRows);
+		this.numRows = numRows;
+		this.numCols = numCols;
+		stride = numCols + 2;
+		
+		current = new byte[(numRows + 2) * stride];
+		next = new byte[(numRows + 2) * stride];
+		spare = null;
+		hash = 0L;
+		counting = false;
+		if(changes != null)
+			changes.reset(numRows, numCols);
+		
+		living = new byte[(numRows + 2) * stride];
+		columns = new byte[stride];
+		counts = new byte[stride];
+	}
+	
+	public int getNumRows()
+	{
+		return numRows;
+	}
+	
+	public int getNumCols()
+	{
+		return numCols;
+	}
+	
+	public boolean isWithinRealBounds(int row, int col)
+	{
+		return 0 <= row && 0 <= col && row < numRows && col < numCols;
+	}
+	
+	/**
+	 * @return
+	 * the index of the cell at the specified row and column, which may be
+	 * one cell outside of the board, in the halo
+	 */
+	private int indexOf(int row, int col)
+	{
+		return (row + 1) * stride + col + 1;
+	}
+	
+	public boolean getStatus(int row, int col)
+	{
+		return current[indexOf(row, col)] == 1;
+	}
+	
+	public int getState(int row, int col)
+	{
+		return current[indexOf(row, col)] & 0xFF;
+	}
+	
+	/**
+	 * Sets the cell at the specified row and column to any state of the
+	 * Rule, 0 being dead and 1 being alive.
+	 */
+	public void setState(int row, int col, int state)
+	{
+		int index = indexOf(row, col);
+		hash ^= Zobrist.key(index, current[index] & 0xFF) ^ Zobrist.key(index, state);
+		if(changes != null && (current[index] & 0xFF) != state)
+			changes.add(row * numCols + col);
+		if(counting)
+			population += (state == 1 ? 1 : 0) - (current[index] == 1 ? 1 : 0);
+		current[index] = (byte) state;
+	}
+	
+	/**
+	 * @return
+	 * the hash of the state of every cell that is not dead, kept up to date
+	 * as cells change
+	 */
+	public long getHash()
+	{
+		return hash;
+	}
+	
+	public void getStates(int row, byte[] states)
+	{
+		System.arraycopy(current, indexOf(row, 0), states, 0, numCols);
+	}
+	
+	/**
+	 * States the Rule does not have are dead.
+	 */
+	public void setStates(int row, byte[] states)
+	{
+		for(int col = 0; col < numCols; col++)
+			setState(row, col, (states[col] & 0xFF) < rule.getStates() ? states[col] & 0xFF : 0);
+	}
+	
+	public Snapshot snapshot()
+	{
+		byte[] generation = pins.pin(() -> current);
+		return new Snapshot()
+		{
+			public void close()
+			{
+				pins.release(generation);
+			}
+			
+			public boolean getStatus(int row, int col)
+			{
+				return generation[indexOf(row, col)] == 1;
+			}
+			
+			public int getState(int row, int col)
+			{
+				return generation[indexOf(row, col)] & 0xFF;
+			}
+			
+			public void getStates(int row, int col, int length, byte[] states)
+			{
+				System.arraycopy(generation, indexOf(row, col), states, 0, length);
+			}
+		};
+	}
+	
+	public void setStatus(int row, int col, boolean status)
+	{
+		setState(row, col, status == Grid.ALIVE ? 1 : 0);
+	}
+	
+	/**
+	 * Brings a dead or dying cell to life, and kills a living one outright.
+	 */
+	public void toggle(int row, int col)
+	{
+		if(isWithinRealBounds(row, col))
+			setStatus(row, col, !getStatus(row, col));
+	}
+	
+	/**
+	 * Moves forward 1 generation.
+	 */
+	public void tick()
+	{
+		fillHalo();
+		claimNext();
+		
+		byte[] cur = current;
+		byte[] nxt = next;
+		byte[] live = living;
+		byte[] cols = columns;
+		byte[] cnts = counts;
+		byte[] table = transitions;
+		long delta = 0L;
+		long births = 0L;
+		long deaths = 0L;
+		ChangeSet changes = this.changes;
+		ChangeSet.Batch batch = changes == null ? null : changes.newBatch();
+		Statistics statistics = this.statistics;
+		Statistics.Tally tally = statistics == null ? null : this.tally;
+		if(tally != null)
+		{
+			tally.clear();
+			if(!counting)
+			{
+				population = countPopulation();
+				counting = true;
+			}
+		}
+		
+		//1 for every living cell, halo included, and 0 for the rest
+		for(int i = 0; i < live.length; i++)
+			live[i] = (byte) ((((cur[i] & 0xFF) ^ 1) - 1) >>> 31);
+		
+		for(int row = 0; row < numRows; row++)
+		{
+			int above = row * stride;
+			int center = above + stride;
+			int below = center + stride;
+			
+			//the living cells in each column of the three rows
+			for(int j = 0; j < stride; j++)
+				cols[j] = (byte) (live[above + j] + live[center + j] + live[below + j]);
+			
+			//the three columns around each cell, less the cell itself
+			for(int j = 1; j <= numCols; j++)
+				cnts[j] = (byte) (cols[j - 1] + cols[j] + cols[j + 1] - live[center + j]);
+			
+			for(int j = 1; j <= numCols; j++)
+			{
+				int index = center + j;
+				int state = cur[index] & 0xFF;
+				byte after = table[state * 9 + cnts[j]];
+				if(after != cur[index])
+				{
+					delta ^= Zobrist.key(index, state) ^ Zobrist.key(index, after & 0xFF);
+					if(after == 1)
+						births++;
+					else if(state == 1)
+						deaths++;
+					if(batch != null)
+						batch.add(row * numCols + j - 1);
+				}
+				nxt[index] = after;
+			}
+			if(tally != null)
+				include(nxt, center, row, tally);
+		}
+		
+		hash ^= delta;
+		current = nxt;
+		next = cur;
+		if(batch != null)
+			changes.publish(batch);
+		if(tally != null)
+		{
+			tally.add(births, deaths);
+			population += births - deaths;
+			statistics.record(population, tally);
+		}
+	}
+	
+	/**
+	 * Grows the tally to hold the first and last living cells of a row,
+	 * looking in from both ends so a row is only read through when it has
+	 * no living cells at all.
+	 */
+	private void include(byte[] generation, int start, int row, Statistics.Tally tally)
+	{
+		int left = 1;
+		while(left <= numCols && generation[start + left] != 1)
+			left++;
+		if(left > numCols)
+			return;
+		int right = numCols;
+		while(generation[start + right] != 1)
+			right--;
+		tally.include(row, left - 1, row, right - 1);
+	}
+	
+	private long countPopulation()
+	{
+		byte[] generation = current;
+		long population = 0L;
+		for(int row = 0; row < numRows; row++)
+			for(int col = 0; col < numCols; col++)
+				if(generation[indexOf(row, col)] == 1)
+					population++;
+		return population;
+	}
+	
+	/**
+	 * @return
+	 * the living cells, dying ones not included, read straight from the
+	 * count kept while statistics are being recorded
+	 */
+	public long getPopulation()
+	{
+		return counting ? population : countPopulation();
+	}
+	
+	/**
+	 * Swaps in the spare buffer if a Snapshot is still reading the one the
+	 * next generation was going to be written into. Every cell of the next
+	 * generation is written, so whatever the spare held does not matter.
+	 */
+	private void claimNext()
+	{
+		if(!pins.isPinned(next))
+			return;
+		byte[] pinned = next;
+		next = spare != null && !pins.isPinned(spare) ? spare : new byte[pinned.length];
+		spare = pinned;
+	}
+	
+	/**
+	 * Recording starts with the first call.
+	 */
+	public ChangeSet getChanges()
+	{
+		if(changes == null)
+			changes = new ChangeSet(numRows, numCols);
+		return changes;
+	}
+	
+	/**
+	 * Recording starts with the first call. The population is counted once,
+	 * by the next tick, and from then on kept up to date as cells change.
+	 * Only living cells are counted, born and killed, a cell passing from
+	 * one dying state to the next is neither.
+	 */
+	public Statistics getStatistics()
+	{
+		if(statistics == null)
+			statistics = new Statistics();
+		return statistics;
+	}
+	
+	/**
+	 * Copies the cells each ghost cell in the halo stands for into the halo
+	 * of the current generation. Beyond a dead boundary the halo is never
+	 * written, so it stays dead.
+	 */
+	private void fillHalo()
+	{
+		if(boundary == Boundary.DEAD)
+			return;
+		
+		byte[] generation = current;
+		for(int row = 0; row < numRows; row++)
+		{
+			fillGhost(generation, row, -1);
+			fillGhost(generation, row, numCols);
+		}
+		for(int col = -1; col <= numCols; col++)
+		{
+			fillGhost(generation, -1, col);
+			fillGhost(generation, numRows, col);
+		}
+	}
+	
+	private void fillGhost(byte[] generation, int row, int col)
+	{
+		int sourceRow = boundary.sourceRow(row, numRows);
+		int sourceCol = boundary.sourceCol(row, col, numRows, numCols);
+		generation[indexOf(row, col)] = generation[indexOf(sourceRow, sourceCol)];
+	}
+	
+	public Rule getRule()
+	{
+		return rule;
+	}
+	
+	/**
+	 * Cells in a dying state the new Rule does not have are killed.
+	 */
+	public void setRule(Rule rule)
+	{
+		this.rule = rule;
+		transitions = rule.getTransitions();
+		
+		if(current != null)
+		{
+			byte[] generation = current;
+			for(int i = 0; i < generation.length; i++)
+				if((generation[i] & 0xFF) >= rule.getStates())
+					generation[i] = 0;
+			
+			//the cells killed could be anywhere, so the hash starts over
+			hash = 0L;
+			if(changes != null)
+				changes.invalidate();
+			for(int row = 0; row < numRows; row++)
+				for(int col = 0; col < numCols; col++)
+					hash ^= Zobrist.key(indexOf(row, col), generation[indexOf(row, col)] & 0xFF);
+		}
+	}
+	
+	public SaveableData getSaveableData()
+	{
+		SaveableData data = new SaveableData();
+		data.alive = new boolean[numRows][numCols];
+		data.states = new byte[numRows][numCols];
+		
+		for(int i = 0; i < data.alive.length; i++)
+		{
+			for(int j = 0; j < data.alive[i].length; j++)
+			{
+				data.alive[i][j] = getStatus(i, j);
+				data.states[i][j] = (byte) getState(i, j);
+			}
+		}
+		
+		data.numRows = numRows;
+		data.numCols = numCols;
+		data.rowPad = 0;
+		data.colPad = 0;
+		data.rule = rule.toString();
+		
+		return data;
+	}
+	
+	public void loadSaveableData(SaveableData data)
+	{
+		allocate(data.numRows, data.numCols);
+		
+		if(data.alive != null)
+			for(int i = 0; i < data.alive.length; i++)
+				for(int j = 0; j < data.alive[i].length; j++)
+					if(data.alive[i][j])
+						setStatus(i, j, Grid.ALIVE);
+		
+		if(data.rule != null)
+			setRule(Rule.parse(data.rule));
+		
+		if(data.states != null)
+			for(int i = 0; i < data.states.length; i++)
+				for(int j = 0; j < data.states[i].length; j++)
+					if((data.states[i][j] & 0xFF) < rule.getStates())
+						setState(i, j, data.states[i][j] & 0xFF);
+	}
+}
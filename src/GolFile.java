@@ -0,0 +1,422 @@
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Saves boards in a compact binary format, and loads them straight into an
+ * engine a row at a time. A .gol file starts with a header of little endian
+ * ints
+ *
+ * magic, version, numRows, numCols, rowPad, colPad, cellSize, shiftX, shiftY
+ *
+ * followed by the length of the rule and the rule itself, then every row of
+ * the window. Under rules with two states a row is packed 64 cells to a
+ * word, the same way BitGrid stores it, and under Generations rules every
+ * cell takes a byte. Either way a row is a series of runs, each made of the
+ * number of empty words or bytes to skip, the number of words or bytes
+ * that follow, and then those words or bytes, so empty space costs next to
+ * nothing.
+ *
+ * Files are written through a FileChannel and read back through a
+ * MappedByteBuffer, so loading a large board is bound by the disk rather
+ * than by serialization. Boards saved as serialized SaveableData by older
+ * versions are still loaded.
+ */
+public class GolFile
+{
+	private static final int MAGIC = 0x214C4F47;
+	private static final int VERSION = 1;
+	private static final short SERIALIZED = (short) 0xEDAC;
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	/**
+	 * Writes the window of the engine along with the view of it, replacing
+	 * the file if it already exists.
+	 */
+	public static void write(Path file, LifeEngine engine, int cellSize, int shiftX, int shiftY) throws IOException
+	{
+		int numRows = engine.getNumRows();
+		int numCols = engine.getNumCols();
+		byte[] rule = engine.getRule().toString().getBytes(StandardCharsets.UTF_8);
+		
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(MAGIC).putInt(VERSION);
+			buffer.putInt(numRows).putInt(numCols);
+			buffer.putInt(engine instanceof Grid ? ((Grid) engine).getRowPad() : 0);
+			buffer.putInt(engine instanceof Grid ? ((Grid) engine).getColPad() : 0);
+			buffer.putInt(cellSize).putInt(shiftX).putInt(shiftY);
+			buffer.putInt(rule.length);
+			put(channel, buffer, rule, 0, rule.length);
+			
+			if(engine.getRule().getStates() > 2)
+			{
+				byte[] states = new byte[numCols];
+				for(int row = 0; row < numRows; row++)
+				{
+					engine.getStates(row, states);
+					writeRow(channel, buffer, states);
+				}
+			}
+			else
+			{
+				long[] words = new long[(numCols + 63) >>> 6];
+				for(int row = 0; row < numRows; row++)
+				{
+					engine.getRow(row, words);
+					writeRow(channel, buffer, words);
+				}
+			}
+			flush(channel, buffer);
+		}
+	}
+	
+	/**
+	 * Two empty words in a row take as long to write as the start of a new
+	 * run, so a run only ends at two or more.
+	 */
+	private static void writeRow(FileChannel channel, ByteBuffer buffer, long[] words) throws IOException
+	{
+		int i = 0;
+		while(i < words.length)
+		{
+			int start = i;
+			while(i < words.length && words[i] == 0L)
+				i++;
+			int skip = i - start;
+			
+			start = i;
+			while(i < words.length && (words[i] != 0L || (i + 1 < words.length && words[i + 1] != 0L)))
+				i++;
+			
+			reserve(channel, buffer, 8);
+			buffer.putInt(skip).putInt(i - start);
+			for(int j = start; j < i; j++)
+			{
+				reserve(channel, buffer, 8);
+				buffer.putLong(words[j]);
+			}
+		}
+	}
+	
+	/**
+	 * The start of a new run takes 8 bytes, so a run only ends at 9 or more
+	 * dead cells in a row.
+	 */
+	private static void writeRow(FileChannel channel, ByteBuffer buffer, byte[] states) throws IOException
+	{
+		int i = 0;
+		while(i < states.length)
+		{
+			int start = i;
+			while(i < states.length && states[i] == 0)
+				i++;
+			int skip = i - start;
+			
+			start = i;
+			while(i < states.length && !isGap(states, i))
+				i++;
+			
+			reserve(channel, buffer, 8);
+			buffer.putInt(skip).putInt(i - start);
+			put(channel, buffer, states, start, i - start);
+		}
+	}
+	
+	/**
+	 * @return
+	 * true if the 9 cells starting at from are dead, or every cell left in
+	 * the row is
+	 */
+	private static boolean isGap(byte[] states, int from)
+	{
+		for(int i = from; i < Math.min(states.length, from + 9); i++)
+			if(states[i] != 0)
+				return false;
+		return true;
+	}
+	
+	private static void put(FileChannel channel, ByteBuffer buffer, byte[] bytes, int offset, int length) throws IOException
+	{
+		while(length > 0)
+		{
+			reserve(channel, buffer, 1);
+			int chunk = Math.min(length, buffer.remaining());
+			buffer.put(bytes, offset, chunk);
+			offset += chunk;
+			length -= chunk;
+		}
+	}
+	
+	private static void reserve(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException
+	{
+		if(buffer.remaining() < bytes)
+			flush(channel, buffer);
+	}
+	
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException
+	{
+		buffer.flip();
+		while(buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+	
+	/**
+	 * Loads a board into the engine, resizing it to fit.
+	 *
+	 * @return
+	 * the header of the file, everything but the cells, so the view can be
+	 * restored as it was saved
+	 *
+	 * @throws IOException
+	 * if the file can not be read or is not a saved board
+	 */
+	public static SaveableData load(Path file, LifeEngine engine) throws IOException
+	{
+		return load(file, engine, 0, 0);
+	}
+	
+	/**
+	 * Loads a board into the middle of the engine, resizing it to the board
+	 * or to numRows by numCols if that is bigger.
+	 *
+	 * @return
+	 * the header of the file, everything but the cells
+	 *
+	 * @throws IOException
+	 * if the file can not be read, is not a saved board or is too big for
+	 * the engine
+	 */
+	public static SaveableData load(Path file, LifeEngine engine, int numRows, int numCols) throws IOException
+	{
+		return read(file, engine, numRows, numCols);
+	}
+	
+	/**
+	 * @return
+	 * the whole board saved in the file, cells included
+	 *
+	 * @throws IOException
+	 * if the file can not be read or is not a saved board
+	 */
+	public static SaveableData read(Path file) throws IOException
+	{
+		return read(file, null, 0, 0);
+	}
+	
+	/**
+	 * Reads no further than the header of the file, or the whole of a board
+	 * saved by an old version.
+	 *
+	 * @return
+	 * the rule the board was saved with
+	 *
+	 * @throws IOException
+	 * if the file can not be read or is not a saved board
+	 */
+	public static String readRule(Path file) throws IOException
+	{
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			if(channel.size() > Integer.MAX_VALUE)
+				throw new IOException("Too big to load: " + file);
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+			if(buffer.remaining() >= 2 && buffer.getShort(0) == SERIALIZED)
+				return deserialize(channel, file).rule;
+			return readHeader(buffer, file).rule;
+		}
+		catch(BufferUnderflowException ex)
+		{
+			throw new IOException("Cut short: " + file, ex);
+		}
+	}
+	
+	/**
+	 * Maps the whole file into memory, which limits files to 2 GB, and
+	 * reads the cells into the engine, or into the arrays of the
+	 * SaveableData if there is no engine.
+	 */
+	private static SaveableData read(Path file, LifeEngine engine, int numRows, int numCols) throws IOException
+	{
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			if(channel.size() > Integer.MAX_VALUE)
+				throw new IOException("Too big to load: " + file);
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+			
+			if(buffer.remaining() >= 2 && buffer.getShort(0) == SERIALIZED)
+			{
+				SaveableData data = deserialize(channel, file);
+				if(engine != null)
+				{
+					Point corner = Patterns.place(engine, data, numRows, numCols);
+					if(data.alive != null && (engine.getNumRows() != data.numRows || engine.getNumCols() != data.numCols))
+						copy(data, Rows.offset(engine, corner.y, corner.x, engine.getNumCols()));
+				}
+				return data;
+			}
+			
+			SaveableData data = readHeader(buffer, file);
+			Rows rows;
+			if(engine != null)
+			{
+				Point corner = Patterns.place(engine, data, numRows, numCols);
+				rows = Rows.offset(engine, corner.y, corner.x, engine.getNumCols());
+			}
+			else
+				rows = Rows.of(data);
+			
+			if(Rule.parse(data.rule).getStates() > 2)
+				readStates(buffer, data, rows);
+			else
+				readWords(buffer, data, rows);
+			return data;
+		}
+		catch(BufferUnderflowException ex)
+		{
+			throw new IOException("Cut short: " + file, ex);
+		}
+	}
+	
+	private static SaveableData deserialize(FileChannel channel, Path file) throws IOException
+	{
+		ObjectInputStream in = new ObjectInputStream(Channels.newInputStream(channel.position(0L)));
+		try
+		{
+			return (SaveableData) in.readObject();
+		}
+		catch(ClassNotFoundException | ClassCastException ex)
+		{
+			throw new IOException("Not a saved board: " + file, ex);
+		}
+	}
+	
+	/**
+	 * Writes the cells of a board read whole into rows, for a board that
+	 * has to be moved into the middle of a bigger one.
+	 */
+	private static void copy(SaveableData data, Rows rows)
+	{
+		long[] words = new long[(data.numCols + 63) >>> 6];
+		for(int row = 0; row < data.numRows; row++)
+		{
+			if(data.states != null)
+			{
+				rows.setStates(row, data.states[row]);
+				continue;
+			}
+			Arrays.fill(words, 0L);
+			for(int col = 0; col < data.numCols; col++)
+				if(data.alive[row][col])
+					words[col >>> 6] |= 1L << col;
+			rows.setRow(row, words);
+		}
+	}
+	
+	private static SaveableData readHeader(ByteBuffer buffer, Path file) throws IOException
+	{
+		if(buffer.remaining() < 4 || buffer.getInt() != MAGIC)
+			throw new IOException("Not a saved board: " + file);
+		int version = buffer.getInt();
+		if(version > VERSION)
+			throw new IOException("Saved by a newer version (" + version + "): " + file);
+		
+		SaveableData data = new SaveableData();
+		data.numRows = buffer.getInt();
+		data.numCols = buffer.getInt();
+		data.rowPad = buffer.getInt();
+		data.colPad = buffer.getInt();
+		data.cellSize = buffer.getInt();
+		data.shiftX = buffer.getInt();
+		data.shiftY = buffer.getInt();
+		if(data.numRows < 0 || data.numCols < 0 || data.rowPad < 0 || data.colPad < 0)
+			throw new IOException("Not a saved board: " + file);
+		
+		int length = buffer.getInt();
+		if(length < 0 || length > buffer.remaining())
+			throw new IOException("Not a saved board: " + file);
+		byte[] rule = new byte[length];
+		buffer.get(rule);
+		data.rule = new String(rule, StandardCharsets.UTF_8);
+		Rule parsed;
+		try
+		{
+			parsed = Rule.parse(data.rule);
+		}
+		catch(IllegalArgumentException ex)
+		{
+			throw new IOException("Not a saved board: " + file, ex);
+		}
+		
+		//a row takes a run of at least 8 bytes, and a word or a byte a cell
+		//once read, so nothing is allocated for a size the file can not hold
+		long perRow = parsed.getStates() > 2 ? data.numCols : (data.numCols + 63L) >>> 6;
+		if(perRow > 0 && data.numRows > buffer.remaining() / 8)
+			throw new IOException("Cut short: " + file);
+		if(perRow > 0 && data.numRows > Integer.MAX_VALUE / perRow)
+			throw new IOException("Too big to load, " + data.numCols + " by " + data.numRows + ": " + file);
+		return data;
+	}
+	
+	private static void readWords(ByteBuffer buffer, SaveableData data, Rows rows) throws IOException
+	{
+		long[] words = new long[(data.numCols + 63) >>> 6];
+		for(int row = 0; row < data.numRows; row++)
+		{
+			int i = 0;
+			while(i < words.length)
+			{
+				int skip = buffer.getInt();
+				int count = buffer.getInt();
+				checkRun(skip, count, words.length - i, row);
+				Arrays.fill(words, i, i + skip, 0L);
+				i += skip;
+				for(; count > 0; count--)
+					words[i++] = buffer.getLong();
+			}
+			rows.setRow(row, words);
+		}
+	}
+	
+	private static void readStates(ByteBuffer buffer, SaveableData data, Rows rows) throws IOException
+	{
+		byte[] states = new byte[data.numCols];
+		for(int row = 0; row < data.numRows; row++)
+		{
+			int i = 0;
+			while(i < states.length)
+			{
+				int skip = buffer.getInt();
+				int count = buffer.getInt();
+				checkRun(skip, count, states.length - i, row);
+				Arrays.fill(states, i, i + skip, (byte) 0);
+				i += skip;
+				buffer.get(states, i, count);
+				i += count;
+			}
+			rows.setStates(row, states);
+		}
+	}
+	
+	/**
+	 * @throws IOException
+	 * if the run is empty, which would never end the row, or runs past the
+	 * end of the row
+	 */
+	private static void checkRun(int skip, int count, int left, int row) throws IOException
+	{
+		if(skip < 0 || count < 0 || skip > left || count > left - skip || skip + count == 0)
+			throw new IOException("Corrupt run in row " + row);
+	}
+}
@@ -1,464 +1,781 @@
-import java.util.Iterator;
-import java.util.LinkedList;
-
-/**
- * The model of our MVC design pattern. Models the grid and
- * the building block Cells that it is made up of.
- * 
- * @author Jacob Cohen
- */
-public class Grid implements Iterable<Grid.Cell>
-{	
-	public static final boolean ALIVE = true;
-	public static final boolean DEAD = false;
-	
-	private int numRows;
-	private int numCols;
-	private int rowPad;
-	private int colPad;
-	private Cell[] array;
-	
-	private LinkedList<Cell> aliveList;
-	public LinkedList<Cell> changedList;
-	
-	public Grid(int numRows, int numCols, int rowPad, int colPad)
-	{
-		numRows += 2 * rowPad;
-		numCols += 2 * colPad;
-		
-		this.numRows = numRows;
-		this.numCols = numCols;
-		this.rowPad = 0;
-		this.colPad = 0;
-		
-		array = new Cell[numRows * numCols];
-		
-		for(int row = 0; row < numRows; row++)
-			for(int col = 0; col < numCols; col++)
-				set(row, col, new Cell(new Point(col - colPad, row - rowPad)));
-		
-		this.numRows -= 2 * rowPad;
-		this.numCols -= 2 * colPad;		
-		this.rowPad = rowPad;
-		this.colPad = colPad;
-		
-		for(int row = -rowPad; row < (this.numRows + rowPad); row++)
-			for(int col = -colPad; col < (this.numCols + colPad); col++)
-				get(row, col).initNeighbors();
-		
-		aliveList = new LinkedList<Cell>();
-		changedList = new LinkedList<Cell>();
-	}
-	
-	public Grid(int numRows, int numCols)
-	{
-		this(numRows, numCols, 3, 3);
-	}
-	
-	public int getNumRows()
-	{
-		return numRows;
-	}
-	
-	public int getNumCols()
-	{
-		return numCols;
-	}
-	
-	public SaveableData getSaveableData()
-	{
-		SaveableData data = new SaveableData();
-		data.alive = new boolean[numRows][numCols];
-		
-		for(int i = 0; i < data.alive.length; i++)
-			for(int j = 0; j < data.alive[i].length; j++)
-				data.alive[i][j] = get(i, j).status;
-		
-		data.numRows = numRows;
-		data.numCols = numCols;
-		data.rowPad = rowPad;
-		data.colPad = colPad;
-		
-		return data;
-	}
-	
-	public void loadSaveableData(SaveableData data)
-	{
-		numRows = data.numRows + 2 * data.rowPad;
-		numCols = data.numCols + 2 * data.colPad;
-		rowPad = 0;
-		colPad = 0;
-		
-		array = new Cell[numRows * numCols];
-		
-		for(int row = 0; row < numRows; row++)
-			for(int col = 0; col < numCols; col++)
-				set(row, col, new Cell(new Point(col - data.colPad, row - data.rowPad)));
-		
-		rowPad = data.rowPad;
-		colPad = data.colPad;
-		numRows = data.numRows;
-		numCols = data.numCols;
-		
-		for(int i = 0; i < data.alive.length; i++)
-		{
-			for(int j = 0; j < data.alive[i].length; j++)
-			{
-				get(i, j).status = data.alive[i][j];
-				if(data.alive[i][j])
-					aliveList.add(get(i, j));
-			}
-		}
-		
-		for(int row = -rowPad; row < (this.numRows + rowPad); row++)
-			for(int col = -colPad; col < (this.numCols + colPad); col++)
-				get(row, col).initNeighbors();
-	}
-	
-	public boolean isWithinBounds(int row, int col)
-	{
-		boolean withinBounds = true;
-		
-		withinBounds &= -rowPad <= row;
-		withinBounds &= -colPad <= col;
-		withinBounds &= row < (numRows + rowPad);
-		withinBounds &= col < (numCols + colPad);
-		
-		return withinBounds;
-	}
-	
-	public boolean isWithinRealBounds(int row, int col)
-	{
-		boolean withinBounds = true;
-		
-		withinBounds &= 0 <= row;
-		withinBounds &= 0 <= col;
-		withinBounds &= row < numRows;
-		withinBounds &= col < numCols;
-		
-		return withinBounds;
-	}
-	
-	public boolean isWithinRealBounds(Point pos)
-	{
-		return isWithinRealBounds(pos.y, pos.x);
-	}
-	
-	public boolean isWithinBounds(Point pos)
-	{
-		return isWithinBounds(pos.y, pos.x);
-	}
-	
-	private int indexOf(int row, int col)
-	{
-		return ((col + colPad) + (row + rowPad) * (numCols + 2 * colPad));
-	}
-	
-	private Cell get(int index)
-	{
-		return array[index];
-	}
-	
-	public Cell get(int row, int col)
-	{
-		return isWithinBounds(row, col) ? get(indexOf(row, col)) : null;
-	}
-	
-	public Cell get(Point pos)
-	{
-		return get(pos.y, pos.x);
-	}
-	
-	public Cell set(int row, int column, Cell data)
-	{
-		Cell prev = get(row, column);
-		array[indexOf(row, column)] = data;
-		return prev;
-	}
-	
-	public Cell set(Point pos, Cell data)
-	{
-		return set(pos.y, pos.x, data);
-	}
-	
-	/**
-	 * used to get an array of pointers to the 8 (or less if this
-	 * Cell is located in a corner) of a given Cell
-	 * 
-	 * @param cell
-	 * the cell to get the neighbors of
-	 * 
-	 * @return
-	 * an array of pointers to the 8 neighbors surround a given Cell,
-	 * can be less than 8 if it is in a corner
-	 */
-	private Cell[] getNeighbors(Cell cell)
-	{
-		LinkedList<Cell> neighbors = new LinkedList<Cell>();
-		
-		neighbors.add(cell.getRelative(Vector.NORTH));
-		neighbors.add(cell.getRelative(Vector.EAST));
-		neighbors.add(cell.getRelative(Vector.SOUTH));
-		neighbors.add(cell.getRelative(Vector.WEST));
-		neighbors.add(cell.getRelative(Vector.NORTHEAST));
-		neighbors.add(cell.getRelative(Vector.SOUTHEAST));
-		neighbors.add(cell.getRelative(Vector.SOUTHWEST));
-		neighbors.add(cell.getRelative(Vector.NORTHWEST));
-		
-		Iterator<Cell> itr = neighbors.iterator();
-		while(itr.hasNext())
-			if(itr.next() == null)
-				itr.remove();
-		
-		Cell[] neighborArray = new Cell[neighbors.size()];
-		
-		int i = 0;
-		for(Cell neighbor : neighbors)
-			neighborArray[i++] = neighbor;
-		
-		return neighborArray;
-	}
-	
-	/**
-	 * Updates the internal integer value stored in each cell that counts
-	 * how many of its neighbors are still alive
-	 */
-	private void updateLivingNeighborMap()
-	{
-		for(Cell cell : array)
-			cell.updateLivingNeighbors();
-	}
-	
-	/**
-	 * Updates the status of which Cells are alive and dead.
-	 * Major efficiency boost is achieved by maintaining a list
-	 * of living Cells and only Checking the Cells in this list,
-	 * and their dead neighbors.
-	 */
-	private void updateStatus()
-	{
-		Iterator<Cell> itr = aliveList.iterator();
-		LinkedList<Cell> toAdd = new LinkedList<Cell>();
-		while(itr.hasNext())
-		{
-			Cell cell = itr.next();
-			cell.updateStatus();
-			for(Cell neighbor : cell.neighbors)
-			{
-				if(neighbor.status == DEAD)
-				{
-					neighbor.updateStatus();
-					if(neighbor.status == ALIVE)
-						toAdd.push(neighbor);
-				}
-			}
-			if(cell.status == DEAD)
-				itr.remove();
-		}
-		aliveList.addAll(toAdd);
-	}
-	
-	/**
-	 * Moves forward 1 generation
-	 */
-	public void tick()
-	{
-		updateLivingNeighborMap();
-		updateStatus();
-	}
-	
-	public boolean isAlive(Cell cell)
-	{
-		return (cell != null) && cell.status == ALIVE;
-	}
-	
-	public boolean isDead(Cell cell)
-	{
-		return (cell == null) || cell.status == DEAD;
-	}
-	
-	/**
-	 * Molecular building block of our Grid, kind of like
-	 * a Node.
-	 * 
-	 * @author Jacob Cohen
-	 */
-	public class Cell
-	{	
-		protected Point pos;
-		protected Cell[] neighbors;
-		private int numLivingNeighbors;
-		public boolean status;
-		public boolean prevStatus;
-		
-		public Cell(Point pos, boolean status)
-		{
-			this.pos = pos;
-			this.status = status;
-			prevStatus = status;
-			neighbors = null;
-		}
-		
-		public Cell(Point pos)
-		{
-			this(pos, DEAD);
-		}
-		
-		public Cell()
-		{
-			this(null);
-		}
-		
-		protected void initNeighbors()
-		{
-			neighbors = getNeighbors(this);
-		}
-		
-		protected void updateStatus()
-		{
-			prevStatus = status;
-			if(isDead(this))
-				status = numLivingNeighbors == 3;
-			else if(numLivingNeighbors != 2 && numLivingNeighbors != 3)
-				status = DEAD;
-		}
-		
-		public void updateLivingNeighbors()
-		{
-			numLivingNeighbors = 0;
-			for(Cell cell : neighbors)
-				if(isAlive(cell))
-					numLivingNeighbors++;
-		}
-		
-		/**
-		 * gets the Cell whose position is equal
-		 * to the position of this Cell plus some
-		 * Vector v, so if we are at the position
-		 * (100, 100), and the Vector v is <1, 3>
-		 * this method will return the Cell located
-		 * at (101, 103).
-		 * 
-		 * @param v
-		 * the relative distance from the Cell position
-		 * we want to get
-		 * 
-		 * @return
-		 * the Cell located at the position Vector v units
-		 * away from the relative position of this Cell
-		 */
-		protected Cell getRelative(Vector v)
-		{
-			return get(Point.add(pos, v));
-		}
-		
-		public boolean equals(Object obj)
-		{
-			if(this == obj)
-				return true;
-			else if(obj instanceof Cell)
-				return obj.hashCode() == this.hashCode();
-			else
-				return false;
-		}
-		
-		/**
-		 * Perfect hash, abuses the fact that each Cell in our Grid will
-		 * have a unique Position, so we can use the Cantor Pairing function
-		 * to get a Perfect hash for the unique ordered pair of its position
-		 */
-		public int hashCode()
-		{
-			return pos.hashCode();
-		}
-		
-		public String toString()
-		{
-			return pos + ", ? = " + status; 
-		}
-	}
-	
-	public boolean getStatus(int row, int col)
-	{
-		return get(row, col).status;
-	}
-	
-	public boolean getStatus(Point pos)
-	{
-		return getStatus(pos.y, pos.x);
-	}
-	
-	/**
-	 * Sets the status of the Cell at the specified row and column position,
-	 * and updates the internal values necessary such as our alive list, and
-	 * and the previous status of that Cell.  If this used at the same time
-	 * update status is called a concurrency error may occur. This is because
-	 * of a critical section that occurs when iterating through our alive list,
-	 * and this method tried to add to that list at the same time it is being
-	 * iterated through. To prevent this, simply do not call this method when
-	 * the game is running.
-	 *  
-	 * @param row
-	 * the row index of the Cell to set the status of
-	 * 
-	 * @param col
-	 * the column index of the Cell to set the status of
-	 * 
-	 * @param status
-	 * the status to set the Cell at the specified row and column index of, use
-	 * true for ALIVE, and false for DEAD.
-	 */
-	public void setStatus(int row, int col, boolean status)
-	{
-		Cell cell = get(row, col);
-		cell.status = status;
-		if(status == ALIVE)
-			aliveList.add(cell);
-	}
-	
-	public void toggle(int row, int col)
-	{
-		if(isWithinBounds(row, col))
-			setStatus(row, col, !get(row, col).status);
-	}
-	
-	public void setStatus(Point pos, boolean status)
-	{
-		setStatus(pos.y, pos.x, status);
-	}
-	
-	private class GridIterator implements Iterator<Cell>
-	{
-		private int row;
-		private int col;
-		
-		public GridIterator()
-		{
-			row = numRows - 1;
-			col = -1;
-		}
-
-		public boolean hasNext()
-		{
-			return (row != 0 || col != (numCols - 1));
-		}
-
-		public Cell next()
-		{
-			if(col == (numCols - 1))
-			{
-				row--;
-				col = 0;
-			}
-			else
-				col++;
-			
-			return get(row, col);
-		}
-	}
-	
-	public Iterator<Cell> iterator()
-	{
-		return new GridIterator();
-	}
-}
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The model of our MVC design pattern. Models the grid of Cells.
+ * 
+ * The status of every Cell is kept in two generation buffers, indexed row
+ * by row, so the 8 neighbors of a Cell are found by adding fixed offsets to
+ * its index. Each tick reads only the current generation and writes only
+ * the next one, then the two are swapped, so a reader never sees a half
+ * computed generation.
+ * 
+ * The Cells are also grouped into square tiles. Only tiles that changed
+ * last generation, or border a tile that did, can possibly change this
+ * generation, so every other tile is skipped entirely. A skipped tile is
+ * identical in both buffers, which is what makes skipping it safe.
+ * 
+ * Around everything that is simulated sits a halo of ghost Cells one Cell
+ * wide, filled in according to the Boundary before every tick, so every
+ * Cell has exactly 8 neighbors and counting them needs no null checks.
+ * 
+ * With more than one thread the rows of tiles are split into horizontal
+ * bands that a ForkJoinPool computes in parallel. Every band reads only
+ * the current generation and writes only its own tiles of the next one,
+ * and counts into its own columns, which are added up once every band is
+ * done, so the workers share nothing mutable.
+ * 
+ * @author Jacob Cohen
+ */
+public class Grid implements LifeEngine
+{	
+	public static final boolean ALIVE = true;
+	public static final boolean DEAD = false;
+	private static final int TILE_SIZE = 32;
+	
+	private int numRows;
+	private int numCols;
+	private int rowPad;
+	private int colPad;
+	private Boundary boundary;
+	private Rule rule;
+	private boolean[] table;
+	private volatile boolean[] current;
+	private boolean[] next;
+	private boolean[] spare;
+	private final Pins pins = new Pins();
+	private long hash;
+	private volatile ChangeSet changes;
+	private volatile Statistics statistics;
+	private final Statistics.Tally tally = new Statistics.Tally();
+	/**
+	 * The living Cells, padding included, and how many of them are in each
+	 * row and column, kept up to date as Cells change so the statistics of
+	 * a generation never have to scan the board
+	 */
+	private volatile long population;
+	private int[] rowCounts;
+	private int[] colCounts;
+	
+	private int tileRows;
+	private int tileCols;
+	private boolean[] changedTiles;
+	private boolean[] nextChangedTiles;
+	private boolean[] activeTiles;
+	
+	private int threads = 1;
+	private ForkJoinPool pool;
+	private Band[] bands;
+	private final RecursiveAction step = new RecursiveAction()
+	{
+		private static final long serialVersionUID = -4417013595208350466L;
+		
+		protected void compute()
+		{
+			invokeAll(bands);
+		}
+	};
+	
+	public Grid(int numRows, int numCols, int rowPad, int colPad, Boundary boundary)
+	{
+		this.boundary = boundary;
+		rule = Rule.CONWAY;
+		table = rule.getTable();
+		allocate(numRows, numCols, rowPad, colPad);
+	}
+	
+	public Grid(int numRows, int numCols, int rowPad, int colPad)
+	{
+		this(numRows, numCols, rowPad, colPad, Boundary.DEAD);
+	}
+	
+	/**
+	 * A dead boundary is padded so patterns can drift a little past the
+	 * visible edge, any other boundary has to meet the visible edge exactly.
+	 */
+	public Grid(int numRows, int numCols, Boundary boundary)
+	{
+		this(numRows, numCols, boundary == Boundary.DEAD ? 3 : 0, boundary == Boundary.DEAD ? 3 : 0, boundary);
+	}
+	
+	public Grid(int numRows, int numCols)
+	{
+		this(numRows, numCols, 3, 3);
+	}
+	
+	/**
+	 * @throws IllegalArgumentException
+	 * if the board and its padding have more cells than an array can hold
+	 */
+	private void allocate(int numRows, int numCols, int rowPad, int colPad)
+	{
+		if((numRows + 2L * rowPad + 2L) * (numCols + 2L * colPad + 2L) > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("Too big for " + Engines.GRID + ": " + numCols + " by " + numRows);
+		this.numRows = numRows;
+		this.numCols = numCols;
+		this.rowPad = rowPad;
+		this.colPad = colPad;
+		
+		int size = (getHeight() + 2) * (getWidth() + 2);
+		current = new boolean[size];
+		next = new boolean[size];
+		spare = null;
+		hash = 0L;
+		population = 0L;
+		rowCounts = new int[getHeight()];
+		colCounts = new int[getWidth()];
+		if(changes != null)
+			changes.reset(numRows, numCols);
+		
+		initTiles();
+		bands = null;
+	}
+	
+	public int getNumRows()
+	{
+		return numRows;
+	}
+	
+	public int getNumCols()
+	{
+		return numCols;
+	}
+	
+	/**
+	 * @return
+	 * how many rows of padding lie above and below the visible window
+	 */
+	public int getRowPad()
+	{
+		return rowPad;
+	}
+	
+	/**
+	 * @return
+	 * how many columns of padding lie left and right of the visible window
+	 */
+	public int getColPad()
+	{
+		return colPad;
+	}
+	
+	public SaveableData getSaveableData()
+	{
+		SaveableData data = new SaveableData();
+		data.alive = new boolean[numRows][numCols];
+		
+		for(int i = 0; i < data.alive.length; i++)
+			for(int j = 0; j < data.alive[i].length; j++)
+				data.alive[i][j] = getStatus(i, j);
+		
+		data.numRows = numRows;
+		data.numCols = numCols;
+		data.rowPad = rowPad;
+		data.colPad = colPad;
+		data.rule = rule.toString();
+		
+		return data;
+	}
+	
+	public void loadSaveableData(SaveableData data)
+	{
+		if(boundary == Boundary.DEAD)
+			allocate(data.numRows, data.numCols, data.rowPad, data.colPad);
+		else
+			allocate(data.numRows, data.numCols, 0, 0);
+		
+		if(data.alive != null)
+		{
+			for(int i = 0; i < data.alive.length; i++)
+			{
+				for(int j = 0; j < data.alive[i].length; j++)
+				{
+					int index = indexOf(i, j);
+					current[index] = data.alive[i][j];
+					if(data.alive[i][j])
+					{
+						hash ^= Zobrist.key(index, 1L);
+						count(index, 1);
+					}
+				}
+			}
+		}
+		
+		if(data.rule != null)
+			setRule(Rule.parse(data.rule));
+	}
+	
+	public Rule getRule()
+	{
+		return rule;
+	}
+	
+	/**
+	 * @throws IllegalArgumentException
+	 * for Generations rules, every Cell is either alive or dead
+	 */
+	public void setRule(Rule rule)
+	{
+		if(rule.getStates() > 2)
+			throw new IllegalArgumentException("Grid can not run Generations rules: " + rule);
+		this.rule = rule;
+		table = rule.getTable();
+		Arrays.fill(changedTiles, true);
+	}
+	
+	private int getWidth()
+	{
+		return numCols + 2 * colPad;
+	}
+	
+	private int getHeight()
+	{
+		return numRows + 2 * rowPad;
+	}
+	
+	private void initTiles()
+	{
+		tileRows = (getHeight() + TILE_SIZE - 1) / TILE_SIZE;
+		tileCols = (getWidth() + TILE_SIZE - 1) / TILE_SIZE;
+		changedTiles = new boolean[tileRows * tileCols];
+		nextChangedTiles = new boolean[tileRows * tileCols];
+		activeTiles = new boolean[tileRows * tileCols];
+		
+		//nothing is known about the first generation, under rules with B0
+		//even an empty tile changes
+		Arrays.fill(changedTiles, true);
+	}
+	
+	/**
+	 * @return
+	 * the index of the tile containing the Cell at the given index
+	 */
+	private int tileOf(int index)
+	{
+		int stride = getWidth() + 2;
+		return ((index / stride - 1) / TILE_SIZE) * tileCols + (index % stride - 1) / TILE_SIZE;
+	}
+	
+	public boolean isWithinBounds(int row, int col)
+	{
+		boolean withinBounds = true;
+		
+		withinBounds &= -rowPad <= row;
+		withinBounds &= -colPad <= col;
+		withinBounds &= row < (numRows + rowPad);
+		withinBounds &= col < (numCols + colPad);
+		
+		return withinBounds;
+	}
+	
+	public boolean isWithinRealBounds(int row, int col)
+	{
+		boolean withinBounds = true;
+		
+		withinBounds &= 0 <= row;
+		withinBounds &= 0 <= col;
+		withinBounds &= row < numRows;
+		withinBounds &= col < numCols;
+		
+		return withinBounds;
+	}
+	
+	public boolean isWithinRealBounds(Point pos)
+	{
+		return isWithinRealBounds(pos.y, pos.x);
+	}
+	
+	public boolean isWithinBounds(Point pos)
+	{
+		return isWithinBounds(pos.y, pos.x);
+	}
+	
+	/**
+	 * @return
+	 * the index into the generation buffers of the given row and column,
+	 * which may lie up to one Cell outside of the padding, in the halo
+	 */
+	private int indexOf(int row, int col)
+	{
+		return ((col + colPad + 1) + (row + rowPad + 1) * (numCols + 2 * colPad + 2));
+	}
+	
+	/**
+	 * Copies the Cells each ghost Cell in the halo stands for into the halo
+	 * of the current generation. Beyond a dead boundary the halo is never
+	 * written, so it stays dead.
+	 */
+	private void fillHalo()
+	{
+		if(boundary == Boundary.DEAD)
+			return;
+		
+		boolean[] generation = current;
+		int width = getWidth();
+		int height = getHeight();
+		
+		for(int row = -1; row <= height; row++)
+		{
+			fillGhost(generation, row, -1, height, width);
+			fillGhost(generation, row, width, height, width);
+		}
+		for(int col = 0; col < width; col++)
+		{
+			fillGhost(generation, -1, col, height, width);
+			fillGhost(generation, height, col, height, width);
+		}
+	}
+	
+	private void fillGhost(boolean[] generation, int row, int col, int height, int width)
+	{
+		int sourceRow = boundary.sourceRow(row, height);
+		int sourceCol = boundary.sourceCol(row, col, height, width);
+		generation[indexOf(row - rowPad, col - colPad)] = generation[indexOf(sourceRow - rowPad, sourceCol - colPad)];
+	}
+	
+	/**
+	 * Marks every tile that changed last generation, or borders a tile
+	 * that did, as active. Nothing outside of the active tiles can change
+	 * this generation. When the boundary is not dead the halo links the
+	 * tiles along opposite edges, so a change to any edge tile activates
+	 * every edge tile.
+	 */
+	private void updateActiveTiles()
+	{
+		boolean edgeChanged = false;
+		if(boundary != Boundary.DEAD)
+		{
+			for(int tile = 0; tile < changedTiles.length; tile++)
+				edgeChanged |= changedTiles[tile] && isEdgeTile(tile);
+		}
+		
+		for(int tileRow = 0; tileRow < tileRows; tileRow++)
+		{
+			for(int tileCol = 0; tileCol < tileCols; tileCol++)
+			{
+				boolean active = false;
+				for(int i = Math.max(0, tileRow - 1); i <= Math.min(tileRows - 1, tileRow + 1); i++)
+					for(int j = Math.max(0, tileCol - 1); j <= Math.min(tileCols - 1, tileCol + 1); j++)
+						active |= changedTiles[i * tileCols + j];
+				activeTiles[tileRow * tileCols + tileCol] = active || (edgeChanged && isEdgeTile(tileRow * tileCols + tileCol));
+			}
+		}
+	}
+	
+	private boolean isEdgeTile(int tile)
+	{
+		int tileRow = tile / tileCols;
+		int tileCol = tile % tileCols;
+		return tileRow == 0 || tileCol == 0 || tileRow == tileRows - 1 || tileCol == tileCols - 1;
+	}
+	
+	/**
+	 * @return
+	 * the number of tiles that are computed this generation
+	 */
+	public int getActiveTileCount()
+	{
+		int count = 0;
+		for(boolean active : activeTiles)
+			if(active)
+				count++;
+		return count;
+	}
+	
+	/**
+	 * Sets how many worker threads compute each generation, a single
+	 * thread computes it on the calling thread without any pool at all.
+	 */
+	public void setThreads(int threads)
+	{
+		if(pool != null)
+			pool.shutdown();
+		this.threads = Math.max(1, threads);
+		pool = this.threads > 1 ? new ForkJoinPool(this.threads) : null;
+		bands = null;
+	}
+	
+	public int getThreads()
+	{
+		return threads;
+	}
+	
+	/**
+	 * Writes the status of which Cells are alive and dead into the next
+	 * generation for the active tiles of a band, and records which of them
+	 * changed in the changed tiles, and the hash, the counts and the batch
+	 * of the band. The living neighbors of a Cell are counted straight out
+	 * of the current generation, the halo gives every Cell all 8 of them.
+	 * The Cells born and killed are counted as they are written.
+	 */
+	private void updateStatus(Band band)
+	{
+		boolean[] generation = current;
+		boolean[] nextGeneration = next;
+		boolean[] table = this.table;
+		int width = getWidth();
+		int height = getHeight();
+		int stride = width + 2;
+		int[] rowCounts = this.rowCounts;
+		int[] colCounts = band.colCounts;
+		ChangeSet.Batch batch = band.batch;
+		long delta = 0L;
+		long births = 0L;
+		long deaths = 0L;
+		
+		for(int tile = band.firstTileRow * tileCols; tile < band.lastTileRow * tileCols; tile++)
+		{
+			if(activeTiles[tile] == false)
+				continue;
+			
+			int firstRow = (tile / tileCols) * TILE_SIZE;
+			int firstCol = (tile % tileCols) * TILE_SIZE;
+			int lastRow = Math.min(height, firstRow + TILE_SIZE);
+			int lastCol = Math.min(width, firstCol + TILE_SIZE);
+			
+			boolean changed = false;
+			for(int row = firstRow; row < lastRow; row++)
+			{
+				for(int col = firstCol; col < lastCol; col++)
+				{
+					int index = (row + 1) * stride + col + 1;
+					int above = index - stride;
+					int below = index + stride;
+					int neighbors = (generation[above - 1] ? 1 : 0) + (generation[above] ? 1 : 0) + (generation[above + 1] ? 1 : 0)
+							+ (generation[index - 1] ? 1 : 0) + (generation[index + 1] ? 1 : 0)
+							+ (generation[below - 1] ? 1 : 0) + (generation[below] ? 1 : 0) + (generation[below + 1] ? 1 : 0);
+					boolean alive = generation[index];
+					boolean status = table[(alive ? 9 : 0) + neighbors];
+					nextGeneration[index] = status;
+					if(status != alive)
+					{
+						changed = true;
+						delta ^= Zobrist.key(index, 1L);
+						int count = status ? 1 : -1;
+						rowCounts[row] += count;
+						colCounts[col] += count;
+						if(status)
+							births++;
+						else
+							deaths++;
+						if(batch != null)
+							record(batch, row - rowPad, col - colPad);
+					}
+				}
+			}
+			nextChangedTiles[tile] = changed;
+		}
+		band.delta = delta;
+		band.births = births;
+		band.deaths = deaths;
+	}
+	
+	/**
+	 * Splits the rows of tiles into about as many bands as asked for. A
+	 * single band counts straight into the columns of the Grid, several
+	 * each count into their own.
+	 */
+	private Band[] bandsOf(int count)
+	{
+		int height = Math.max(1, (tileRows + count - 1) / count);
+		Band[] bands = new Band[Math.max(1, (tileRows + height - 1) / height)];
+		for(int i = 0; i < bands.length; i++)
+			bands[i] = new Band(i * height, Math.min(tileRows, (i + 1) * height),
+					bands.length == 1 ? colCounts : new int[colCounts.length]);
+		return bands;
+	}
+	
+	/**
+	 * A band of rows of tiles one worker ticks. The bands are made once for
+	 * every size of board and number of threads and reused every tick,
+	 * several bands for each worker so the pool can balance them.
+	 */
+	private class Band extends RecursiveAction
+	{
+		private static final long serialVersionUID = 8529176154733961752L;
+		
+		private final int firstTileRow;
+		private final int lastTileRow;
+		private final int[] colCounts;
+		private long delta;
+		private long births;
+		private long deaths;
+		private ChangeSet changes;
+		private ChangeSet.Batch batch;
+		
+		public Band(int firstTileRow, int lastTileRow, int[] colCounts)
+		{
+			this.firstTileRow = firstTileRow;
+			this.lastTileRow = lastTileRow;
+			this.colCounts = colCounts;
+		}
+		
+		/**
+		 * Readies the band to be invoked again for the next tick.
+		 */
+		public void prepare(ChangeSet changes)
+		{
+			reinitialize();
+			this.changes = changes;
+		}
+		
+		protected void compute()
+		{
+			batch = changes == null ? null : changes.newBatch();
+			if(colCounts != Grid.this.colCounts)
+				Arrays.fill(colCounts, 0);
+			updateStatus(this);
+		}
+	}
+	
+	/**
+	 * Moves the population and the counts of a row and column by one
+	 * living Cell.
+	 */
+	private void count(int index, int count)
+	{
+		int stride = getWidth() + 2;
+		population += count;
+		rowCounts[index / stride - 1] += count;
+		colCounts[index % stride - 1] += count;
+	}
+	
+	/**
+	 * Grows the tally to hold the first and last rows and columns with any
+	 * living Cells, in the coordinates of the window.
+	 */
+	private void includeBounds(Statistics.Tally tally)
+	{
+		int top = 0;
+		while(top < rowCounts.length && rowCounts[top] == 0)
+			top++;
+		if(top == rowCounts.length)
+			return;
+		int bottom = rowCounts.length - 1;
+		while(rowCounts[bottom] == 0)
+			bottom--;
+		int left = 0;
+		while(colCounts[left] == 0)
+			left++;
+		int right = colCounts.length - 1;
+		while(colCounts[right] == 0)
+			right--;
+		tally.include(top - rowPad, left - colPad, bottom - rowPad, right - colPad);
+	}
+	
+	/**
+	 * Adds a Cell to the batch if it is within the window, changes in the
+	 * padding are never painted.
+	 */
+	private void record(ChangeSet.Batch batch, int row, int col)
+	{
+		if(0 <= row && row < numRows && 0 <= col && col < numCols)
+			batch.add(row * numCols + col);
+	}
+	
+	/**
+	 * Swaps in the spare buffer if a Snapshot is still reading the one the
+	 * next generation was going to be written into. Tiles that are skipped
+	 * are never written, so the spare is first brought up to date with the
+	 * current generation, which is what the skipped tiles hold.
+	 */
+	private void claimNext()
+	{
+		if(!pins.isPinned(next))
+			return;
+		boolean[] pinned = next;
+		next = spare != null && !pins.isPinned(spare) ? spare : new boolean[pinned.length];
+		spare = pinned;
+		System.arraycopy(current, 0, next, 0, next.length);
+	}
+	
+	/**
+	 * Publishes the next generation as the current one, the old current
+	 * generation becomes the buffer the following tick writes into.
+	 */
+	private void swapGenerations()
+	{
+		boolean[] previous = current;
+		current = next;
+		next = previous;
+		
+		boolean[] previousTiles = changedTiles;
+		changedTiles = nextChangedTiles;
+		nextChangedTiles = previousTiles;
+		Arrays.fill(nextChangedTiles, false);
+	}
+	
+	/**
+	 * Moves forward 1 generation
+	 */
+	public void tick()
+	{
+		fillHalo();
+		updateActiveTiles();
+		claimNext();
+		ChangeSet changes = this.changes;
+		Statistics statistics = this.statistics;
+		Statistics.Tally tally = statistics == null ? null : this.tally;
+		if(tally != null)
+			tally.clear();
+		
+		if(bands == null)
+			bands = bandsOf(pool == null ? 1 : threads * 4);
+		for(Band band : bands)
+			band.prepare(changes);
+		//a lone band runs on this thread, invoking it outside of a pool
+		if(pool == null)
+			bands[0].invoke();
+		else
+		{
+			step.reinitialize();
+			pool.invoke(step);
+		}
+		
+		ChangeSet.Batch batch = null;
+		for(Band band : bands)
+		{
+			hash ^= band.delta;
+			population += band.births - band.deaths;
+			if(tally != null)
+				tally.add(band.births, band.deaths);
+			if(batch == null)
+				batch = band.batch;
+			else
+				batch.addAll(band.batch);
+			if(band.colCounts != colCounts)
+				for(int col = 0; col < colCounts.length; col++)
+					colCounts[col] += band.colCounts[col];
+		}
+		swapGenerations();
+		if(batch != null)
+			changes.publish(batch);
+		if(tally != null)
+		{
+			includeBounds(tally);
+			statistics.record(population, tally);
+		}
+	}
+	
+	/**
+	 * Recording starts with the first call.
+	 */
+	public ChangeSet getChanges()
+	{
+		if(changes == null)
+			changes = new ChangeSet(numRows, numCols);
+		return changes;
+	}
+	
+	/**
+	 * Recording starts with the first call. Grid always counts its Cells as
+	 * they change, so the first generation recorded is as exact as the
+	 * rest.
+	 */
+	public Statistics getStatistics()
+	{
+		if(statistics == null)
+			statistics = new Statistics();
+		return statistics;
+	}
+	
+	/**
+	 * @return
+	 * the living Cells, padding included, kept up to date as Cells change
+	 * so reading it costs nothing
+	 */
+	public long getPopulation()
+	{
+		return population;
+	}
+	
+	/**
+	 * @return
+	 * the hash of every living Cell, padding included, kept up to date as
+	 * Cells change so reading it costs nothing
+	 */
+	public long getHash()
+	{
+		return hash;
+	}
+	
+	public Snapshot snapshot()
+	{
+		boolean[] generation = pins.pin(() -> current);
+		return new Snapshot()
+		{
+			public void close()
+			{
+				pins.release(generation);
+			}
+			
+			public boolean getStatus(int row, int col)
+			{
+				return generation[indexOf(row, col)];
+			}
+			
+			public void getStates(int row, int col, int length, byte[] states)
+			{
+				int start = indexOf(row, col);
+				for(int i = 0; i < length; i++)
+					states[i] = generation[start + i] ? (byte) 1 : (byte) 0;
+			}
+		};
+	}
+	
+	public boolean getStatus(int row, int col)
+	{
+		return current[indexOf(row, col)];
+	}
+	
+	public boolean getStatus(Point pos)
+	{
+		return getStatus(pos.y, pos.x);
+	}
+	
+	/**
+	 * Sets the status of the Cell at the specified row and column position
+	 * in the current generation, and marks its tile as changed so that it
+	 * and its neighbors are computed next tick. If this used at the same time
+	 * tick is called the edit may be lost, or leave the two generation
+	 * buffers out of step in a tile that is being skipped. To prevent this,
+	 * edits from other threads go through an EditQueue, and loads and
+	 * history seeks through Scheduler.invoke, both of which the thread
+	 * calling tick works through between generations.
+	 *  
+	 * @param row
+	 * the row index of the Cell to set the status of
+	 * 
+	 * @param col
+	 * the column index of the Cell to set the status of
+	 * 
+	 * @param status
+	 * the status to set the Cell at the specified row and column index of, use
+	 * true for ALIVE, and false for DEAD.
+	 */
+	public void setStatus(int row, int col, boolean status)
+	{
+		int index = indexOf(row, col);
+		if(current[index] != status)
+		{
+			hash ^= Zobrist.key(index, 1L);
+			count(index, status ? 1 : -1);
+			if(changes != null && isWithinRealBounds(row, col))
+				changes.add(row * numCols + col);
+		}
+		current[index] = status;
+		changedTiles[tileOf(index)] = true;
+	}
+	
+	public void toggle(int row, int col)
+	{
+		if(isWithinBounds(row, col))
+			setStatus(row, col, !getStatus(row, col));
+	}
+	
+	public void setStatus(Point pos, boolean status)
+	{
+		setStatus(pos.y, pos.x, status);
+	}
+}
@@ -0,0 +1,924 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A model of the grid built on Gosper's Hashlife algorithm. The plane is
+ * stored as a quadtree of canonical Nodes, so identical regions anywhere
+ * in the pattern or at any point in time share one Node, and the future of
+ * every Node is memoized the first time it is computed. This lets regular
+ * patterns be advanced by huge powers of two in a single call.
+ *
+ * The plane is unbounded, rows and columns outside of the window reported
+ * by getNumRows and getNumCols are still simulated.
+ */
+public class HashLife implements LifeEngine
+{
+	private static final int DEFAULT_MAX_NODES = 1 << 21;
+	/**
+	 * The largest window given to a pattern loaded from a macrocell file
+	 */
+	public static final int MAX_WINDOW = 1 << 16;
+	private static final Node DEAD_LEAF = new Node(false);
+	private static final Node ALIVE_LEAF = new Node(true);
+	
+	private int numRows;
+	private int numCols;
+	//the row and column of the plane, whose origin is the center of the
+	//root, at the top left corner of the window
+	private long top;
+	private long left;
+	private long generation;
+	
+	private Node root;
+	private Node[] emptyNodes;
+	
+	private Node[] table;
+	private int size;
+	private int maxNodes;
+	/**
+	 * How many Nodes the table may reach before a step still under way is
+	 * given up on, see advance
+	 */
+	private int limit = Integer.MAX_VALUE;
+	private int epoch;
+	private Rule rule;
+	
+	public HashLife(int numRows, int numCols, int maxNodes)
+	{
+		this.numRows = numRows;
+		this.numCols = numCols;
+		this.maxNodes = maxNodes;
+		table = new Node[1 << 16];
+		size = 0;
+		emptyNodes = new Node[64];
+		emptyNodes[0] = DEAD_LEAF;
+		rule = Rule.CONWAY;
+		clear();
+	}
+	
+	public HashLife(int numRows, int numCols)
+	{
+		this(numRows, numCols, DEFAULT_MAX_NODES);
+	}
+	
+	public int getNumRows()
+	{
+		return numRows;
+	}
+	
+	public int getNumCols()
+	{
+		return numCols;
+	}
+	
+	public long getGeneration()
+	{
+		return generation;
+	}
+	
+	public long getPopulation()
+	{
+		return root.population;
+	}
+	
+	/**
+	 * HashLife never visits the cells of a generation, it looks up the
+	 * future of whole Nodes at once, so there are no births and deaths to
+	 * count as it goes. Finding them would mean comparing every generation
+	 * with the one before it, which is the work memoizing exists to skip.
+	 *
+	 * @return
+	 * null, always
+	 */
+	public Statistics getStatistics()
+	{
+		return null;
+	}
+	
+	public boolean isWithinRealBounds(int row, int col)
+	{
+		return 0 <= row && 0 <= col && row < numRows && col < numCols;
+	}
+	
+	private void clear()
+	{
+		root = empty(3);
+		top = 0L;
+		left = 0L;
+		generation = 0L;
+	}
+	
+	/**
+	 * Quadtree node. Level 0 Nodes are single cells, and a Node of level k
+	 * is a square of 2^k by 2^k cells made up of four Nodes of level k - 1.
+	 * Nodes are immutable apart from the memoized result, which is only
+	 * valid for the step stored alongside it.
+	 */
+	private static class Node
+	{
+		private final int level;
+		private final Node nw;
+		private final Node ne;
+		private final Node sw;
+		private final Node se;
+		private final long population;
+		private final int hash;
+		private final long digest;
+		
+		private Node result;
+		private int resultStep;
+		private Node chain;
+		private int mark;
+		
+		private Node(boolean alive)
+		{
+			level = 0;
+			nw = ne = sw = se = null;
+			population = alive ? 1L : 0L;
+			hash = alive ? 1 : 0;
+			digest = alive ? Zobrist.mix(1L) : 0L;
+		}
+		
+		private Node(Node nw, Node ne, Node sw, Node se, int hash)
+		{
+			level = nw.level + 1;
+			this.nw = nw;
+			this.ne = ne;
+			this.sw = sw;
+			this.se = se;
+			population = nw.population + ne.population + sw.population + se.population;
+			this.hash = hash;
+			resultStep = -1;
+			
+			//a wider hash than the table needs, for telling boards apart
+			long d = nw.digest;
+			d = d * 0x9E3779B97F4A7C15L + ne.digest;
+			d = d * 0x9E3779B97F4A7C15L + sw.digest;
+			d = d * 0x9E3779B97F4A7C15L + se.digest;
+			digest = Zobrist.mix(d + level);
+		}
+	}
+	
+	/**
+	 * Thrown out of a step that has filled the table past its limit. Only
+	 * ever caught by advance, so it carries no stack trace.
+	 */
+	private static class Overflow extends RuntimeException
+	{
+		private static final long serialVersionUID = -2278094458370165187L;
+		
+		private static final Overflow INSTANCE = new Overflow();
+		
+		private Overflow()
+		{
+			super(null, null, false, false);
+		}
+	}
+	
+	private static int hash(Node nw, Node ne, Node sw, Node se)
+	{
+		int h = nw.hash;
+		h = h * 0x9E3779B1 + ne.hash;
+		h = h * 0x9E3779B1 + sw.hash;
+		h = h * 0x9E3779B1 + se.hash;
+		return h ^ (h >>> 15);
+	}
+	
+	/**
+	 * @return
+	 * the canonical Node made up of the four given quadrants, creating it
+	 * only if no identical Node exists yet
+	 */
+	private Node join(Node nw, Node ne, Node sw, Node se)
+	{
+		int h = hash(nw, ne, sw, se);
+		int bucket = h & (table.length - 1);
+		
+		for(Node node = table[bucket]; node != null; node = node.chain)
+			if(node.nw == nw && node.ne == ne && node.sw == sw && node.se == se)
+				return node;
+		
+		Node node = new Node(nw, ne, sw, se, h);
+		node.chain = table[bucket];
+		table[bucket] = node;
+		if(++size > table.length * 3 / 4)
+			rehash(table.length * 2);
+		return node;
+	}
+	
+	private void rehash(int capacity)
+	{
+		Node[] old = table;
+		table = new Node[capacity];
+		for(Node head : old)
+		{
+			Node node = head;
+			while(node != null)
+			{
+				Node following = node.chain;
+				int bucket = node.hash & (capacity - 1);
+				node.chain = table[bucket];
+				table[bucket] = node;
+				node = following;
+			}
+		}
+	}
+	
+	private Node empty(int level)
+	{
+		if(emptyNodes[level] == null)
+		{
+			Node child = empty(level - 1);
+			emptyNodes[level] = join(child, child, child, child);
+		}
+		return emptyNodes[level];
+	}
+	
+	/**
+	 * Throws away every Node that can no longer be reached from the root
+	 * along with all memoized results, keeping the cache within maxNodes.
+	 */
+	private void collectGarbage()
+	{
+		epoch++;
+		mark(root);
+		for(Node node : emptyNodes)
+			if(node != null)
+				mark(node);
+		
+		size = 0;
+		for(int i = 0; i < table.length; i++)
+		{
+			Node node = table[i];
+			Node kept = null;
+			while(node != null)
+			{
+				Node following = node.chain;
+				if(node.mark == epoch)
+				{
+					node.result = null;
+					node.resultStep = -1;
+					node.chain = kept;
+					kept = node;
+					size++;
+				}
+				node = following;
+			}
+			table[i] = kept;
+		}
+	}
+	
+	private void mark(Node node)
+	{
+		if(node.level == 0 || node.mark == epoch)
+			return;
+		node.mark = epoch;
+		mark(node.nw);
+		mark(node.ne);
+		mark(node.sw);
+		mark(node.se);
+	}
+	
+	/**
+	 * @return
+	 * a Node one level larger than the given Node with the given Node in
+	 * its center and dead cells all around it
+	 */
+	private Node expand(Node node)
+	{
+		Node border = empty(node.level - 1);
+		return join(
+				join(border, border, border, node.nw),
+				join(border, border, node.ne, border),
+				join(border, node.sw, border, border),
+				join(node.se, border, border, border));
+	}
+	
+	/**
+	 * @return
+	 * true if every living cell of the given Node lies within its center
+	 * Node two levels down, so that it can be safely advanced
+	 */
+	private boolean isPadded(Node node)
+	{
+		if(node.level < 3)
+			return false;
+		long inner = node.nw.se.se.population + node.ne.sw.sw.population
+				+ node.sw.ne.ne.population + node.se.nw.nw.population;
+		return inner == node.population;
+	}
+	
+	/**
+	 * Advances a 4 by 4 Node by a single generation the slow way.
+	 *
+	 * @return
+	 * the 2 by 2 center of the Node one generation later
+	 */
+	private Node baseCase(Node node)
+	{
+		int bits = 0;
+		Node[] quadrants = { node.nw, node.ne, node.sw, node.se };
+		for(int q = 0; q < 4; q++)
+		{
+			Node quadrant = quadrants[q];
+			int row = (q >> 1) * 2;
+			int col = (q & 1) * 2;
+			bits |= (int) quadrant.nw.population << (row * 4 + col);
+			bits |= (int) quadrant.ne.population << (row * 4 + col + 1);
+			bits |= (int) quadrant.sw.population << ((row + 1) * 4 + col);
+			bits |= (int) quadrant.se.population << ((row + 1) * 4 + col + 1);
+		}
+		
+		return join(
+				nextLeaf(bits, 1, 1),
+				nextLeaf(bits, 1, 2),
+				nextLeaf(bits, 2, 1),
+				nextLeaf(bits, 2, 2));
+	}
+	
+	private Node nextLeaf(int bits, int row, int col)
+	{
+		int count = 0;
+		for(int i = -1; i <= 1; i++)
+			for(int j = -1; j <= 1; j++)
+				if(i != 0 || j != 0)
+					count += (bits >>> ((row + i) * 4 + col + j)) & 1;
+		
+		boolean alive = ((bits >>> (row * 4 + col)) & 1) != 0;
+		return rule.next(alive, count) ? ALIVE_LEAF : DEAD_LEAF;
+	}
+	
+	public Rule getRule()
+	{
+		return rule;
+	}
+	
+	/**
+	 * Every memoized result was computed under the old Rule, so they are
+	 * all thrown away.
+	 * 
+	 * @throws IllegalArgumentException
+	 * for rules with B0, which would fill the whole unbounded plane, and
+	 * for Generations rules
+	 */
+	public void setRule(Rule rule)
+	{
+		if(rule.isBirth(0))
+			throw new IllegalArgumentException("HashLife can not run B0 rules: " + rule);
+		if(rule.getStates() > 2)
+			throw new IllegalArgumentException("HashLife can not run Generations rules: " + rule);
+		this.rule = rule;
+		for(Node head : table)
+		{
+			for(Node node = head; node != null; node = node.chain)
+			{
+				node.result = null;
+				node.resultStep = -1;
+			}
+		}
+	}
+	
+	/**
+	 * The heart of Hashlife. Computes the center of a Node 2^step
+	 * generations into the future, step may be no larger than the level of
+	 * the Node minus 2.
+	 *
+	 * @return
+	 * the Node one level smaller than the given Node, centered on it,
+	 * 2^step generations later
+	 */
+	private Node successor(Node node, int step)
+	{
+		if(size > limit)
+			throw Overflow.INSTANCE;
+		if(node.population == 0L)
+			return empty(node.level - 1);
+		if(node.resultStep == step)
+			return node.result;
+		
+		Node result;
+		if(node.level == 2)
+			result = baseCase(node);
+		else
+		{
+			int substep = Math.min(step, node.level - 3);
+			
+			Node n00 = successor(node.nw, substep);
+			Node n01 = successor(join(node.nw.ne, node.ne.nw, node.nw.se, node.ne.sw), substep);
+			Node n02 = successor(node.ne, substep);
+			Node n10 = successor(join(node.nw.sw, node.nw.se, node.sw.nw, node.sw.ne), substep);
+			Node n11 = successor(join(node.nw.se, node.ne.sw, node.sw.ne, node.se.nw), substep);
+			Node n12 = successor(join(node.ne.sw, node.ne.se, node.se.nw, node.se.ne), substep);
+			Node n20 = successor(node.sw, substep);
+			Node n21 = successor(join(node.sw.ne, node.se.nw, node.sw.se, node.se.sw), substep);
+			Node n22 = successor(node.se, substep);
+			
+			if(step < node.level - 2)
+			{
+				result = join(
+						join(n00.se, n01.sw, n10.ne, n11.nw),
+						join(n01.se, n02.sw, n11.ne, n12.nw),
+						join(n10.se, n11.sw, n20.ne, n21.nw),
+						join(n11.se, n12.sw, n21.ne, n22.nw));
+			}
+			else
+			{
+				result = join(
+						successor(join(n00, n01, n10, n11), substep),
+						successor(join(n01, n02, n11, n12), substep),
+						successor(join(n10, n11, n20, n21), substep),
+						successor(join(n11, n12, n21, n22), substep));
+			}
+		}
+		
+		node.result = result;
+		node.resultStep = step;
+		return result;
+	}
+	
+	/**
+	 * Moves forward 2^exponent generations in a single step. Garbage can
+	 * only be collected between steps, as the Nodes a step is still
+	 * working on are held nowhere but on the stack. So a step that fills
+	 * the table to twice maxNodes is given up on, the table is collected,
+	 * and the step is taken again as two steps half as long. Everything
+	 * memoized before giving up is still correct, and a single generation
+	 * is never split.
+	 */
+	public void advance(int exponent)
+	{
+		if(size > maxNodes)
+			collectGarbage();
+		
+		while(root.level < exponent + 3 || !isPadded(root))
+			root = expand(root);
+		
+		limit = exponent > 0 ? (int) Math.min(Integer.MAX_VALUE, 2L * maxNodes) : Integer.MAX_VALUE;
+		try
+		{
+			root = successor(expand(root), exponent);
+		}
+		catch(Overflow overflow)
+		{
+			collectGarbage();
+			advance(exponent - 1);
+			advance(exponent - 1);
+			return;
+		}
+		finally
+		{
+			limit = Integer.MAX_VALUE;
+		}
+		generation += 1L << exponent;
+	}
+	
+	public void tick()
+	{
+		advance(0);
+	}
+	
+	/**
+	 * @return
+	 * the Nodes in the table, reachable from the root or not
+	 */
+	public int getNodeCount()
+	{
+		return size;
+	}
+	
+	/**
+	 * A step of any size costs about as much as the pattern is complex,
+	 * not as many generations as it moves.
+	 */
+	public int getMaxStepExponent()
+	{
+		return 32;
+	}
+	
+	/**
+	 * The root grows whenever the pattern needs more room, so the hash is
+	 * taken of the smallest Node centered on the origin that still holds
+	 * every living cell, which is the same for the same pattern however
+	 * big the root has grown. Identical Nodes are shared, so the hash of a
+	 * Node is worked out once when it is created.
+	 */
+	public long getHash()
+	{
+		return shrink(root).digest;
+	}
+	
+	/**
+	 * @return
+	 * the smallest Node centered on the given Node, and no smaller than
+	 * level 3, that still holds every living cell of it
+	 */
+	private Node shrink(Node node)
+	{
+		while(node.level > 3 && node.nw.se.population + node.ne.sw.population
+				+ node.sw.ne.population + node.se.nw.population == node.population)
+			node = join(node.nw.se, node.ne.sw, node.sw.ne, node.se.nw);
+		return node;
+	}
+	
+	private boolean isWithinRoot(long row, long col)
+	{
+		long half = 1L << (root.level - 1);
+		return -half <= row && row < half && -half <= col && col < half;
+	}
+	
+	public boolean getStatus(int row, int col)
+	{
+		return getStatus(root, top + row, left + col);
+	}
+	
+	/**
+	 * The root is never modified, only replaced, so holding on to it is
+	 * all it takes to keep a consistent view of a generation.
+	 */
+	public Snapshot snapshot()
+	{
+		Node generation = root;
+		long top = this.top;
+		long left = this.left;
+		return new Snapshot()
+		{
+			public boolean getStatus(int row, int col)
+			{
+				return HashLife.getStatus(generation, top + row, left + col);
+			}
+			
+			/**
+			 * Walks down only the Nodes the row passes through that have a
+			 * living cell in them.
+			 */
+			public void getStates(int row, int col, int length, byte[] states)
+			{
+				Arrays.fill(states, 0, length, (byte) 0);
+				long half = 1L << (generation.level - 1);
+				fillRow(generation, -half, -half, top + row, left + col, length, states);
+			}
+			
+			/**
+			 * Every Node already knows its population, so a block costs one
+			 * walk down the quadtree however many cells it covers.
+			 */
+			public boolean getCounts(int level, int row, int col, int length, int[] counts)
+			{
+				long size = 1L << level;
+				long half = 1L << (generation.level - 1);
+				for(int i = 0; i < length; i++)
+					counts[i] = (int) Math.min(Integer.MAX_VALUE,
+							population(generation, -half, -half, top + row * size, left + (col + i) * size, size));
+				return true;
+			}
+			
+			/**
+			 * Only the Nodes on the edge of the box found so far are ever
+			 * walked into.
+			 */
+			public long[] getBounds()
+			{
+				long[] bounds = { Long.MAX_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, Long.MIN_VALUE };
+				long half = 1L << (generation.level - 1);
+				include(generation, -half - top, -half - left, bounds);
+				return bounds;
+			}
+		};
+	}
+	
+	/**
+	 * Grows the top, left, bottom and right of the bounds to hold every
+	 * living cell of the Node, whose top left corner is at nodeRow and
+	 * nodeCol.
+	 */
+	private static void include(Node node, long nodeRow, long nodeCol, long[] bounds)
+	{
+		long last = (1L << node.level) - 1L;
+		if(node.population == 0L || (bounds[0] <= nodeRow && bounds[1] <= nodeCol
+				&& nodeRow + last <= bounds[2] && nodeCol + last <= bounds[3]))
+			return;
+		if(node.level == 0)
+		{
+			bounds[0] = Math.min(bounds[0], nodeRow);
+			bounds[1] = Math.min(bounds[1], nodeCol);
+			bounds[2] = Math.max(bounds[2], nodeRow);
+			bounds[3] = Math.max(bounds[3], nodeCol);
+			return;
+		}
+		
+		long mid = (last + 1L) >> 1;
+		include(node.nw, nodeRow, nodeCol, bounds);
+		include(node.ne, nodeRow, nodeCol + mid, bounds);
+		include(node.sw, nodeRow + mid, nodeCol, bounds);
+		include(node.se, nodeRow + mid, nodeCol + mid, bounds);
+	}
+	
+	/**
+	 * @return
+	 * the living cells of the Node, whose top left corner is at nodeRow and
+	 * nodeCol, that lie within the square of the given size whose top left
+	 * corner is at row and col
+	 */
+	private static long population(Node node, long nodeRow, long nodeCol, long row, long col, long size)
+	{
+		long width = 1L << node.level;
+		if(node.population == 0L || nodeRow >= row + size || nodeRow + width <= row
+				|| nodeCol >= col + size || nodeCol + width <= col)
+			return 0L;
+		if(row <= nodeRow && nodeRow + width <= row + size && col <= nodeCol && nodeCol + width <= col + size)
+			return node.population;
+		
+		long mid = width >> 1;
+		return population(node.nw, nodeRow, nodeCol, row, col, size)
+				+ population(node.ne, nodeRow, nodeCol + mid, row, col, size)
+				+ population(node.sw, nodeRow + mid, nodeCol, row, col, size)
+				+ population(node.se, nodeRow + mid, nodeCol + mid, row, col, size);
+	}
+	
+	/**
+	 * Marks the living cells of the node, whose top left corner is at
+	 * nodeRow and nodeCol, that lie on the given row between col and col +
+	 * length.
+	 */
+	private static void fillRow(Node node, long nodeRow, long nodeCol, long row, long col, int length, byte[] states)
+	{
+		long width = 1L << node.level;
+		if(node.population == 0L || row < nodeRow || nodeRow + width <= row
+				|| nodeCol >= col + length || nodeCol + width <= col)
+			return;
+		if(node.level == 0)
+		{
+			states[(int) (nodeCol - col)] = 1;
+			return;
+		}
+		
+		long mid = width >> 1;
+		if(row < nodeRow + mid)
+		{
+			fillRow(node.nw, nodeRow, nodeCol, row, col, length, states);
+			fillRow(node.ne, nodeRow, nodeCol + mid, row, col, length, states);
+		}
+		else
+		{
+			fillRow(node.sw, nodeRow + mid, nodeCol, row, col, length, states);
+			fillRow(node.se, nodeRow + mid, nodeCol + mid, row, col, length, states);
+		}
+	}
+	
+	private static boolean getStatus(Node root, long row, long col)
+	{
+		long half = 1L << (root.level - 1);
+		if(row < -half || half <= row || col < -half || half <= col)
+			return Grid.DEAD;
+		
+		Node node = root;
+		long y = row + half;
+		long x = col + half;
+		while(node.level > 0)
+		{
+			long mid = 1L << (node.level - 1);
+			if(y < mid)
+				node = x < mid ? node.nw : node.ne;
+			else
+				node = x < mid ? node.sw : node.se;
+			y &= mid - 1;
+			x &= mid - 1;
+		}
+		return node == ALIVE_LEAF;
+	}
+	
+	public void setStatus(int row, int col, boolean status)
+	{
+		while(!isWithinRoot(top + row, left + col))
+			root = expand(root);
+		
+		long half = 1L << (root.level - 1);
+		root = set(root, top + row + half, left + col + half, status);
+	}
+	
+	private Node set(Node node, long y, long x, boolean status)
+	{
+		if(node.level == 0)
+			return status ? ALIVE_LEAF : DEAD_LEAF;
+		
+		long mid = 1L << (node.level - 1);
+		long innerY = y & (mid - 1);
+		long innerX = x & (mid - 1);
+		if(y < mid)
+		{
+			if(x < mid)
+				return join(set(node.nw, innerY, innerX, status), node.ne, node.sw, node.se);
+			else
+				return join(node.nw, set(node.ne, innerY, innerX, status), node.sw, node.se);
+		}
+		else
+		{
+			if(x < mid)
+				return join(node.nw, node.ne, set(node.sw, innerY, innerX, status), node.se);
+			else
+				return join(node.nw, node.ne, node.sw, set(node.se, innerY, innerX, status));
+		}
+	}
+	
+	public void toggle(int row, int col)
+	{
+		setStatus(row, col, !getStatus(row, col));
+	}
+	
+	public SaveableData getSaveableData()
+	{
+		SaveableData data = new SaveableData();
+		data.alive = new boolean[numRows][numCols];
+		
+		for(int i = 0; i < data.alive.length; i++)
+			for(int j = 0; j < data.alive[i].length; j++)
+				data.alive[i][j] = getStatus(i, j);
+		
+		data.numRows = numRows;
+		data.numCols = numCols;
+		data.rowPad = 0;
+		data.colPad = 0;
+		data.rule = rule.toString();
+		
+		return data;
+	}
+	
+	public void loadSaveableData(SaveableData data)
+	{
+		numRows = data.numRows;
+		numCols = data.numCols;
+		clear();
+		
+		int level = 3;
+		while((1L << (level - 1)) < Math.max(numRows, numCols))
+			level++;
+		
+		long half = 1L << (level - 1);
+		root = data.alive == null ? empty(level) : build(data.alive, -half, -half, level);
+		
+		if(data.rule != null)
+			setRule(Rule.parse(data.rule));
+	}
+	
+	/**
+	 * Builds the Node of the given level whose top left corner is at the
+	 * given row and column straight from the saved cells, without going
+	 * through setStatus one cell at a time.
+	 */
+	private Node build(boolean[][] alive, long row, long col, int level)
+	{
+		long width = 1L << level;
+		if(row >= alive.length || col >= numCols || row + width <= 0 || col + width <= 0)
+			return empty(level);
+		if(level == 0)
+			return alive[(int) row][(int) col] ? ALIVE_LEAF : DEAD_LEAF;
+		
+		long mid = width >> 1;
+		return join(
+				build(alive, row, col, level - 1),
+				build(alive, row, col + mid, level - 1),
+				build(alive, row + mid, col, level - 1),
+				build(alive, row + mid, col + mid, level - 1));
+	}
+	
+	/**
+	 * @return
+	 * a Tree that builds the Nodes of a macrocell file straight into this
+	 * HashLife, so a pattern too large to ever expand into cells loads in
+	 * as little memory as it takes to run it. Once finished the window
+	 * covers as much of it as MAX_WINDOW allows, and if it is made bigger
+	 * than that to be at least numRows by numCols the pattern is moved to
+	 * the middle of it.
+	 */
+	public Macrocell.Tree tree(int numRows, int numCols)
+	{
+		return new Macrocell.Tree()
+		{
+			private Node[] nodes = new Node[1024];
+			private int count = 1;
+			
+			private void add(Node node)
+			{
+				if(count == nodes.length)
+					nodes = Arrays.copyOf(nodes, count * 2);
+				nodes[count++] = node;
+			}
+			
+			private Node child(int index, int level) throws IOException
+			{
+				if(index == 0)
+					return empty(level);
+				if(nodes[index].level != level)
+					throw new IOException("Child of the wrong level in macrocell node " + count);
+				return nodes[index];
+			}
+			
+			public void leaf(long bits)
+			{
+				add(leafOf(bits, 0, 0, 3));
+			}
+			
+			public void states(int nw, int ne, int sw, int se) throws IOException
+			{
+				if((nw | ne | sw | se) > 1)
+					throw new IOException("HashLife can not hold the dying states of Generations rules");
+				add(HashLife.this.join(nw == 1 ? ALIVE_LEAF : DEAD_LEAF, ne == 1 ? ALIVE_LEAF : DEAD_LEAF,
+						sw == 1 ? ALIVE_LEAF : DEAD_LEAF, se == 1 ? ALIVE_LEAF : DEAD_LEAF));
+			}
+			
+			public void join(int level, int nw, int ne, int sw, int se) throws IOException
+			{
+				add(HashLife.this.join(child(nw, level - 1), child(ne, level - 1), child(sw, level - 1), child(se, level - 1)));
+			}
+			
+			public void finish(String rule)
+			{
+				if(rule != null)
+					setRule(Rule.parse(rule));
+				
+				Node pattern = nodes[count - 1];
+				while(pattern.level < 3)
+					pattern = expand(pattern);
+				pattern = shrink(pattern);
+				
+				clear();
+				Node empty = empty(pattern.level);
+				root = HashLife.this.join(empty, empty, empty, pattern);
+				int size = (int) Math.min(1L << pattern.level, MAX_WINDOW);
+				HashLife.this.numRows = Math.max(numRows, size);
+				HashLife.this.numCols = Math.max(numCols, size);
+				top = -((HashLife.this.numRows - size) / 2);
+				left = -((HashLife.this.numCols - size) / 2);
+			}
+		};
+	}
+	
+	/**
+	 * @return
+	 * the Node of the given level whose top left corner is at the given row
+	 * and column of an 8 by 8 leaf, bit row * 8 + col being set for every
+	 * living cell
+	 */
+	private Node leafOf(long bits, int row, int col, int level)
+	{
+		if(level == 0)
+			return (bits >>> (row * 8 + col) & 1L) != 0L ? ALIVE_LEAF : DEAD_LEAF;
+		
+		int mid = 1 << (level - 1);
+		return join(
+				leafOf(bits, row, col, level - 1),
+				leafOf(bits, row, col + mid, level - 1),
+				leafOf(bits, row + mid, col, level - 1),
+				leafOf(bits, row + mid, col + mid, level - 1));
+	}
+	
+	/**
+	 * Writes the nodes of a macrocell file straight from the quadtree, each
+	 * distinct Node once, so a pattern is written in as many lines as it
+	 * has distinct Nodes however many cells it covers.
+	 */
+	public void writeMacrocell(Writer out) throws IOException
+	{
+		Map<Node, Integer> numbers = new IdentityHashMap<Node, Integer>();
+		if(write(shrink(root), numbers, out) == 0)
+			out.write(Macrocell.leafLine(0L) + "\n");
+	}
+	
+	/**
+	 * @return
+	 * the number of the Node in the file, 0 if it is empty
+	 */
+	private int write(Node node, Map<Node, Integer> numbers, Writer out) throws IOException
+	{
+		if(node.population == 0L)
+			return 0;
+		Integer number = numbers.get(node);
+		if(number != null)
+			return number;
+		
+		if(node.level == 3)
+		{
+			long bits = 0L;
+			for(int row = 0; row < 8; row++)
+				for(int col = 0; col < 8; col++)
+					if(getStatus(node, row - 4, col - 4))
+						bits |= 1L << (row * 8 + col);
+			out.write(Macrocell.leafLine(bits) + "\n");
+		}
+		else
+		{
+			int nw = write(node.nw, numbers, out);
+			int ne = write(node.ne, numbers, out);
+			int sw = write(node.sw, numbers, out);
+			int se = write(node.se, numbers, out);
+			out.write(Macrocell.nodeLine(node.level, nw, ne, sw, se) + "\n");
+		}
+		
+		number = numbers.size() + 1;
+		numbers.put(node, number);
+		return number;
+	}
+}
@@ -0,0 +1,302 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Runs a pattern for a number of generations without a window, for batch
+ * jobs on machines with no display. Nothing here touches AWT or Swing,
+ * settings.txt is not read because its colors are java.awt.Colors, so every
+ * setting is given on the command line instead.
+ *
+ * java -cp game-of-life.jar Headless pattern.rle 10000 --engine HASHLIFE
+ *
+ * The Metrics of the run are published over JMX while it goes, so a long
+ * job can be watched with jconsole.
+ */
+public class Headless
+{
+	private static final String USAGE = String.join("\n",
+			"Usage: Headless <pattern.gol|.rle|.lif|.mc> <generations> [options]",
+			"  --engine NAME     " + String.join(", ", Engines.NAMES) + " (default BITGRID)",
+			"  --threads N       worker threads, 0 for one per core (default 1)",
+			"  --rule RULE       the rule to run instead of the one in the pattern",
+			"  --boundary NAME   DEAD, TORUS, KLEIN or MIRROR (default DEAD)",
+			"  --rows N          board height, the pattern is centered (default pattern height)",
+			"  --cols N          board width, the pattern is centered (default pattern width)",
+			"  --out FILE        where to write the final generation, as RLE, Life 1.06 or macrocell",
+			"                    if FILE ends in .rle, .lif or .mc, as a .gol board if not",
+			"  --detect N        stop once the board repeats with a period of at most N, then skip",
+			"                    to the same phase of the last generation (default off)",
+			"  --stats FILE      write the population, births, deaths and bounding box of every",
+			"                    generation run to FILE as CSV, only the population for HASHLIFE");
+	
+	private String pattern;
+	private long generations;
+	private String engine = Engines.BITGRID;
+	private int threads = 1;
+	private Rule rule;
+	private Boundary boundary = Boundary.DEAD;
+	private int numRows;
+	private int numCols;
+	private String out;
+	private int maxPeriod;
+	private long stableFrom = -1L;
+	private long period;
+	private Metrics metrics;
+	private String statsFile;
+	private Statistics statistics;
+	private PrintWriter stats;
+	private long generation;
+	
+	public static void main(String[] args)
+	{
+		Headless headless = new Headless();
+		try
+		{
+			headless.parse(args);
+		}
+		catch(IllegalArgumentException ex)
+		{
+			System.err.println(ex.getMessage());
+			System.err.println(USAGE);
+			System.exit(2);
+		}
+		
+		try
+		{
+			headless.run();
+		}
+		catch(IOException | IllegalArgumentException ex)
+		{
+			System.err.println(ex.getMessage());
+			System.exit(1);
+		}
+	}
+	
+	private void parse(String[] args)
+	{
+		if(args.length < 2)
+			throw new IllegalArgumentException("Missing the pattern or the number of generations");
+		
+		pattern = args[0];
+		generations = Long.parseLong(args[1]);
+		if(generations < 0L)
+			throw new IllegalArgumentException("Can not run a negative number of generations");
+		
+		for(int i = 2; i < args.length; i += 2)
+		{
+			if(i + 1 >= args.length)
+				throw new IllegalArgumentException("Missing a value for " + args[i]);
+			String value = args[i + 1];
+			switch(args[i])
+			{
+			case "--engine":
+				engine = value.toUpperCase();
+				break;
+			case "--threads":
+				threads = Integer.parseInt(value);
+				if(threads <= 0)
+					threads = Runtime.getRuntime().availableProcessors();
+				break;
+			case "--rule":
+				rule = Rule.parse(value);
+				break;
+			case "--boundary":
+				boundary = Boundary.valueOf(value.toUpperCase());
+				break;
+			case "--rows":
+				numRows = Integer.parseInt(value);
+				break;
+			case "--cols":
+				numCols = Integer.parseInt(value);
+				break;
+			case "--out":
+				out = value;
+				break;
+			case "--stats":
+				statsFile = value;
+				break;
+			case "--detect":
+				maxPeriod = Integer.parseInt(value);
+				if(maxPeriod < 1)
+					throw new IllegalArgumentException("The longest period must be at least 1");
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+	}
+	
+	/**
+	 * The pattern is streamed straight into the engine, centered on a board
+	 * of numRows by numCols as it is read, so a pattern only HashLife can
+	 * hold is never expanded into cells on the way. The engine is created
+	 * for the rule of the pattern, read first, so a Generations rule gets
+	 * the Generations engine.
+	 */
+	private void run() throws IOException
+	{
+		Path file = Paths.get(pattern);
+		String saved = Patterns.readRule(file);
+		Rule created = saved != null ? Rule.parse(saved) : Rule.CONWAY;
+		if(rule != null && created.getStates() <= 2)
+			created = rule;
+		
+		Engines.threads = threads;
+		Engines.boundary = boundary;
+		Engines.rule = created;
+		LifeEngine grid = Engines.create(engine, 1, 1);
+		Patterns.load(file, grid, numRows, numCols);
+		if(rule != null)
+			grid.setRule(rule);
+		metrics = new Metrics(() -> grid);
+		metrics.register();
+		if(statsFile != null)
+		{
+			statistics = grid.getStatistics();
+			stats = new PrintWriter(Files.newBufferedWriter(Paths.get(statsFile), StandardCharsets.UTF_8));
+			stats.println("generation,population,births,deaths,top,left,bottom,right");
+		}
+		
+		long begin = System.nanoTime();
+		long remaining = generations;
+		try
+		{
+			if(maxPeriod > 0)
+			{
+				remaining = detect(grid);
+				generation = generations - remaining;
+			}
+			advance(grid, remaining);
+		}
+		finally
+		{
+			if(stats != null)
+				stats.close();
+		}
+		long end = System.nanoTime();
+		if(stats != null && stats.checkError())
+			throw new IOException("Could not write " + statsFile);
+		
+		if(out != null)
+			save(grid, out);
+		
+		double seconds = (end - begin) / 1e9;
+		System.out.println("engine\t\t" + Engines.nameOf(grid));
+		System.out.println("threads\t\t" + threads);
+		System.out.println("rule\t\t" + grid.getRule());
+		System.out.println("boundary\t" + boundary);
+		System.out.println("size\t\t" + grid.getNumCols() + "x" + grid.getNumRows());
+		System.out.println("generations\t" + generations);
+		System.out.println("seconds\t\t" + seconds);
+		System.out.println("gens/sec\t" + (seconds > 0.0 ? generations / seconds : Double.POSITIVE_INFINITY));
+		System.out.println("population\t" + grid.getPopulation());
+		System.out.println("steps\t\t" + metrics.getSteps());
+		System.out.println("step ms p50\t" + metrics.getStepMillis50());
+		System.out.println("step ms p99\t" + metrics.getStepMillis99());
+		System.out.println("step ms max\t" + metrics.getStepMillisMax());
+		if(maxPeriod > 0)
+		{
+			System.out.println("stable from\t" + (stableFrom >= 0L ? Long.toString(stableFrom) : "never"));
+			System.out.println("period\t\t" + (stableFrom >= 0L ? Long.toString(period) : "none"));
+		}
+	}
+	
+	/**
+	 * Ticks one generation at a time until the board repeats itself or the
+	 * generations run out. Once the board at generation g is found to equal
+	 * the board at generation g - p, every generation from then on repeats
+	 * every p generations, so only what is left over after whole periods
+	 * still has to be run.
+	 * 
+	 * @return
+	 * the generations still to be run
+	 */
+	private long detect(LifeEngine grid)
+	{
+		CycleDetector detector = new CycleDetector(maxPeriod);
+		detector.record(0L, grid.getHash());
+		for(long generation = 1L; generation <= generations; generation++)
+		{
+			long start = System.nanoTime();
+			grid.tick();
+			metrics.recordStep(System.nanoTime() - start, 1L);
+			this.generation = generation;
+			writeStatistics(grid);
+			long found = detector.record(generation, grid.getHash());
+			if(found > 0L)
+			{
+				stableFrom = generation - found;
+				period = found;
+				return (generations - generation) % found;
+			}
+		}
+		return 0L;
+	}
+	
+	/**
+	 * Moves forward in whole powers of two, largest first, so HashLife can
+	 * skip ahead, or one generation at a time while statistics are being
+	 * written.
+	 */
+	private void advance(LifeEngine grid, long generations)
+	{
+		if(stats != null)
+		{
+			for(long i = 0L; i < generations; i++)
+			{
+				long start = System.nanoTime();
+				grid.tick();
+				metrics.recordStep(System.nanoTime() - start, 1L);
+				generation++;
+				writeStatistics(grid);
+			}
+			return;
+		}
+		
+		for(int exponent = 62; exponent >= 0; exponent--)
+		{
+			if((generations & (1L << exponent)) != 0L)
+			{
+				long start = System.nanoTime();
+				grid.advance(exponent);
+				metrics.recordStep(System.nanoTime() - start, 1L << exponent);
+			}
+		}
+	}
+	
+	/**
+	 * Writes the newest generation of the statistics as a row of the CSV,
+	 * numbered as the generation of the pattern it stands for. Once a
+	 * repeating board has been skipped ahead that is the generation of the
+	 * same phase. The bounds are left empty once everything has died.
+	 * Engines that keep no statistics only have their population written,
+	 * everything else is left empty.
+	 */
+	private void writeStatistics(LifeEngine grid)
+	{
+		if(stats == null)
+			return;
+		if(statistics == null)
+		{
+			stats.println(generation + "," + grid.getPopulation() + ",,,,,,");
+			return;
+		}
+		
+		long n = statistics.getCount() - 1;
+		long population = statistics.getPopulation(n);
+		stats.print(generation + "," + population + "," + statistics.getBirths(n) + "," + statistics.getDeaths(n));
+		if(population == 0L)
+			stats.println(",,,,");
+		else
+			stats.println("," + statistics.getTop(n) + "," + statistics.getLeft(n) + "," + statistics.getBottom(n) + "," + statistics.getRight(n));
+	}
+	
+	private static void save(LifeEngine grid, String file) throws IOException
+	{
+		Patterns.save(grid, Paths.get(file));
+	}
+}
@@ -0,0 +1,117 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts how often each duration, in nanoseconds, was recorded, in the
+ * style of HdrHistogram. Values are bucketed by their highest set bit and
+ * the SUB_BITS bits below it, so every bucket is at most 1 / 2^(SUB_BITS -
+ * 1) as wide as the values in it and any percentile is read back to within
+ * about 1.5%, while the whole range of a long fits in under 4000 buckets.
+ *
+ * Recording is a few atomic increments with no locking, so it can be done
+ * on every tick of a running simulation, and can be read from any thread
+ * while it is going on.
+ */
+public class Histogram
+{
+	private static final int SUB_BITS = 7;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int HALF = SUB_BUCKETS / 2;
+	
+	private final AtomicLongArray counts = new AtomicLongArray((64 - SUB_BITS) * HALF + SUB_BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+	
+	/**
+	 * @param value
+	 * a duration in nanoseconds, negative values count as 0
+	 */
+	public void record(long value)
+	{
+		value = Math.max(0L, value);
+		counts.incrementAndGet(indexOf(value));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+		max.accumulateAndGet(value, Math::max);
+	}
+	
+	/**
+	 * Forgets every value recorded so far. Values recorded while this runs
+	 * may be kept in some of the totals and not others.
+	 */
+	public void reset()
+	{
+		for(int i = 0; i < counts.length(); i++)
+			counts.set(i, 0L);
+		count.set(0L);
+		sum.set(0L);
+		max.set(0L);
+	}
+	
+	public long getCount()
+	{
+		return count.get();
+	}
+	
+	public long getMax()
+	{
+		return max.get();
+	}
+	
+	/**
+	 * @return
+	 * the mean of every value recorded, 0 if there are none
+	 */
+	public double getMean()
+	{
+		long n = count.get();
+		return n == 0L ? 0.0 : (double) sum.get() / n;
+	}
+	
+	/**
+	 * @param percentile
+	 * from 0 to 100
+	 *
+	 * @return
+	 * the highest value in the bucket holding the given percentile of the
+	 * values recorded, never more than the largest value recorded, or 0 if
+	 * there are none
+	 */
+	public long getValueAtPercentile(double percentile)
+	{
+		long n = count.get();
+		if(n == 0L)
+			return 0L;
+		
+		long rank = Math.max(1L, (long) Math.ceil(Math.min(100.0, percentile) / 100.0 * n));
+		long seen = 0L;
+		for(int i = 0; i < counts.length(); i++)
+		{
+			seen += counts.get(i);
+			if(seen >= rank)
+				return Math.min(max.get(), highestValueOf(i));
+		}
+		return max.get();
+	}
+	
+	/**
+	 * Values below SUB_BUCKETS get a bucket each, above that the values
+	 * with their highest bit at SUB_BITS - 1 + shift share buckets HALF
+	 * values apart.
+	 */
+	private static int indexOf(long value)
+	{
+		int shift = Math.max(0, 64 - Long.numberOfLeadingZeros(value) - SUB_BITS);
+		return shift * HALF + (int) (value >>> shift);
+	}
+	
+	private static long highestValueOf(int index)
+	{
+		if(index < SUB_BUCKETS)
+			return index;
+		int shift = index / HALF - 1;
+		long lowest = (long) (index - shift * HALF) << shift;
+		return lowest + (1L << shift) - 1L;
+	}
+}
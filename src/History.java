@@ -0,0 +1,423 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The boards an engine went through, so the view can be moved back and
+ * forward through them. Every frame is stored as the cells that differ
+ * from the frame before it, each as its index, row * numCols + col, and
+ * the XOR of its old and new state. Applying the same delta again undoes
+ * it, so stepping back is as cheap as stepping forward and costs only as
+ * much as the board changed.
+ *
+ * The frames are kept in segments of KEYFRAME_INTERVAL, each starting
+ * with a keyframe listing every cell that is not dead, so a jump far
+ * across the history rebuilds the board from the nearest keyframe instead
+ * of walking through every frame in between. What is stored grows with
+ * how many cells change and are alive, never with the area of the board
+ * times the length of the history, apart from one byte a cell for the
+ * board the history is at, which is needed to find what changed. Once
+ * there are more than MAX_FRAMES frames, or they and that board take more
+ * than the budget, the oldest segment is dropped.
+ *
+ * Only the window of numRows by numCols is recorded, cells in the padding
+ * of an engine are left as they are.
+ *
+ * Only the thread that runs the engine records and seeks. The size and
+ * position are published without a lock, so the view can follow them
+ * every frame without ever waiting for a frame to be recorded.
+ */
+public class History
+{
+	public static final int MAX_FRAMES = 10000;
+	public static final int KEYFRAME_INTERVAL = 64;
+	
+	private final long budget;
+	private final List<Segment> segments = new ArrayList<Segment>();
+	
+	private LifeEngine engine;
+	private ChangeSet source;
+	private ChangeSet changes;
+	private int numRows;
+	private int numCols;
+	/**
+	 * The state of every cell in the frame at position, which is what the
+	 * engine showed the last time it was recorded or moved
+	 */
+	private byte[] board;
+	private volatile int position;
+	private volatile int size;
+	/**
+	 * The delta of the frame being recorded, reused for every frame
+	 */
+	private final Segment scratch = new Segment();
+	private byte[] states;
+	
+	/**
+	 * @param budget
+	 * the most bytes the frames and the board they are at may take, a board
+	 * with more cells than that is not recorded at all
+	 */
+	public History(long budget)
+	{
+		this.budget = budget;
+	}
+	
+	/**
+	 * A History allowed an eighth of the heap.
+	 */
+	public History()
+	{
+		this(Runtime.getRuntime().maxMemory() / 8);
+	}
+	
+	/**
+	 * Forgets every frame, the next one recorded starts a new history.
+	 */
+	public synchronized void clear()
+	{
+		if(source != null)
+			source.forward(null);
+		engine = null;
+		source = null;
+		changes = null;
+		board = null;
+		states = null;
+		segments.clear();
+		position = 0;
+		size = 0;
+	}
+	
+	/**
+	 * @return
+	 * the number of frames recorded
+	 */
+	public int size()
+	{
+		return size;
+	}
+	
+	/**
+	 * @return
+	 * the frame the engine is showing, 0 being the oldest one kept
+	 */
+	public int getPosition()
+	{
+		return position;
+	}
+	
+	/**
+	 * @return
+	 * the generation of the frame the engine is showing, counted from the
+	 * first frame of the history
+	 */
+	public synchronized long getGeneration()
+	{
+		return size == 0 ? 0L : segmentOf(position).generations[position % KEYFRAME_INTERVAL];
+	}
+	
+	/**
+	 * Records the board of the engine as the frame after the one at the
+	 * current position, dropping any frames past it. A new engine, or a
+	 * board of a new size, starts a new history.
+	 *
+	 * @param generations
+	 * how many generations the engine has moved since the last frame, 0
+	 * for edits, which are only recorded if they changed anything
+	 */
+	public synchronized void record(LifeEngine engine, long generations)
+	{
+		if(engine != this.engine || engine.getNumRows() != numRows || engine.getNumCols() != numCols)
+		{
+			start(engine);
+			return;
+		}
+		if(board == null)
+			return;
+		
+		long generation = getGeneration() + generations;
+		Segment delta = scratch;
+		delta.size = 0;
+		diff(delta);
+		if(generations == 0L && delta.size == 0)
+			return;
+		
+		truncate();
+		Segment segment = segments.get(segments.size() - 1);
+		if(segment.frames == KEYFRAME_INTERVAL)
+		{
+			segment = new Segment();
+			segment.keyframe(board);
+			segments.add(segment);
+		}
+		segment.addAll(delta);
+		segment.end(generation);
+		
+		int size = this.size + 1;
+		int position = size - 1;
+		while(segments.size() > 1 && (size > MAX_FRAMES || bytes() > budget))
+		{
+			segments.remove(0);
+			size -= KEYFRAME_INTERVAL;
+			position -= KEYFRAME_INTERVAL;
+		}
+		this.size = size;
+		this.position = position;
+	}
+	
+	/**
+	 * Moves the engine to a recorded frame, along the deltas in between if
+	 * that is cheaper than rebuilding the board from the keyframe before
+	 * the frame. Edits made since the engine was last recorded are recorded
+	 * first, as a frame of their own, which drops any frames after the
+	 * current one.
+	 *
+	 * @param frame
+	 * the frame to move to, 0 being the oldest one kept
+	 */
+	public synchronized void seek(LifeEngine engine, int frame)
+	{
+		record(engine, 0L);
+		if(board == null)
+			return;
+		frame = Math.max(0, Math.min(size - 1, frame));
+		if(frame == position)
+			return;
+		
+		int first = Math.min(frame, position) + 1;
+		int last = Math.max(frame, position);
+		long walk = 0L;
+		for(int f = first; f <= last; f++)
+			walk += segmentOf(f).deltaSize(f % KEYFRAME_INTERVAL);
+		Segment segment = segmentOf(frame);
+		int offset = frame % KEYFRAME_INTERVAL;
+		long rebuild = board.length / 8 + segment.keyIndices.length + segment.start(offset + 1) - segment.start(1);
+		
+		if(walk <= rebuild)
+		{
+			for(int f = first; f <= last; f++)
+				apply(segmentOf(f), f % KEYFRAME_INTERVAL, engine);
+		}
+		else
+		{
+			byte[] target = new byte[board.length];
+			for(int i = 0; i < segment.keyIndices.length; i++)
+				target[segment.keyIndices[i]] = segment.keyStates[i];
+			for(int i = segment.start(1); i < segment.start(offset + 1); i++)
+				target[segment.indices[i]] ^= segment.xors[i];
+			for(int index = 0; index < board.length; index++)
+				if(target[index] != board[index])
+					engine.setState(index / numCols, index % numCols, target[index]);
+			board = target;
+		}
+		position = frame;
+		if(changes != null)
+			changes.drain();
+	}
+	
+	private void start(LifeEngine engine)
+	{
+		clear();
+		this.engine = engine;
+		numRows = engine.getNumRows();
+		numCols = engine.getNumCols();
+		long cells = (long) numRows * numCols;
+		if(cells > budget || cells > Integer.MAX_VALUE)
+			return;
+		
+		source = engine.getChanges();
+		if(source != null)
+		{
+			changes = new ChangeSet(numRows, numCols);
+			source.forward(changes);
+			changes.drain();
+		}
+		board = new byte[numRows * numCols];
+		states = new byte[numCols];
+		try(Snapshot snapshot = engine.snapshot())
+		{
+			for(int row = 0; row < numRows; row++)
+			{
+				snapshot.getStates(row, 0, numCols, states);
+				System.arraycopy(states, 0, board, row * numCols, numCols);
+			}
+		}
+		
+		Segment segment = new Segment();
+		segment.keyframe(board);
+		segment.end(0L);
+		segments.add(segment);
+		size = 1;
+	}
+	
+	/**
+	 * Appends every cell that differs between the engine and the board to
+	 * the segment, and brings the board up to date. The changes are
+	 * drained before the snapshot is taken, a cell changed in between is
+	 * read from the snapshot and drained again next time.
+	 */
+	private void diff(Segment segment)
+	{
+		int[] changed = changes == null ? null : changes.drain();
+		try(Snapshot snapshot = engine.snapshot())
+		{
+			if(changed != null)
+			{
+				for(int index : changed)
+					diff(segment, index, (byte) snapshot.getState(index / numCols, index % numCols));
+				return;
+			}
+			
+			for(int row = 0; row < numRows; row++)
+			{
+				snapshot.getStates(row, 0, numCols, states);
+				for(int col = 0; col < numCols; col++)
+					diff(segment, row * numCols + col, states[col]);
+			}
+		}
+	}
+	
+	/**
+	 * A cell listed twice only differs the first time.
+	 */
+	private void diff(Segment segment, int index, byte state)
+	{
+		byte xor = (byte) (board[index] ^ state);
+		if(xor != 0)
+		{
+			segment.add(index, xor);
+			board[index] = state;
+		}
+	}
+	
+	/**
+	 * Applies the delta of a frame to the board and the engine, moving
+	 * them forward to that frame, or back from it.
+	 */
+	private void apply(Segment segment, int frame, LifeEngine engine)
+	{
+		for(int i = segment.start(frame); i < segment.start(frame + 1); i++)
+		{
+			int index = segment.indices[i];
+			board[index] ^= segment.xors[i];
+			engine.setState(index / numCols, index % numCols, board[index]);
+		}
+	}
+	
+	/**
+	 * Drops every frame after the current position.
+	 */
+	private void truncate()
+	{
+		if(position == size - 1)
+			return;
+		int last = position / KEYFRAME_INTERVAL;
+		while(segments.size() > last + 1)
+			segments.remove(segments.size() - 1);
+		Segment segment = segments.get(last);
+		segment.frames = position % KEYFRAME_INTERVAL + 1;
+		segment.size = segment.start(segment.frames);
+		size = position + 1;
+	}
+	
+	private Segment segmentOf(int frame)
+	{
+		return segments.get(frame / KEYFRAME_INTERVAL);
+	}
+	
+	/**
+	 * @return
+	 * the bytes taken by the frames and by the board they are at
+	 */
+	private long bytes()
+	{
+		long bytes = board == null ? 0L : board.length;
+		for(Segment segment : segments)
+			bytes += segment.bytes();
+		return bytes;
+	}
+	
+	/**
+	 * A keyframe and the deltas of the frames that follow it, the first
+	 * delta being the one from the last frame of the segment before.
+	 */
+	private static class Segment
+	{
+		private int[] keyIndices;
+		private byte[] keyStates;
+		private int[] indices = new int[256];
+		private byte[] xors = new byte[256];
+		private int size;
+		private int[] ends = new int[KEYFRAME_INTERVAL];
+		private long[] generations = new long[KEYFRAME_INTERVAL];
+		private int frames;
+		
+		private void add(int index, byte xor)
+		{
+			if(size == indices.length)
+			{
+				indices = Arrays.copyOf(indices, size * 2);
+				xors = Arrays.copyOf(xors, size * 2);
+			}
+			indices[size] = index;
+			xors[size] = xor;
+			size++;
+		}
+		
+		private void addAll(Segment other)
+		{
+			for(int i = 0; i < other.size; i++)
+				add(other.indices[i], other.xors[i]);
+		}
+		
+		/**
+		 * Ends the delta of the next frame with the cells added so far.
+		 */
+		private void end(long generation)
+		{
+			ends[frames] = size;
+			generations[frames] = generation;
+			frames++;
+		}
+		
+		/**
+		 * @return
+		 * where the delta of the given frame starts, or for frames past the
+		 * last one where the deltas end
+		 */
+		private int start(int frame)
+		{
+			return frame == 0 ? 0 : ends[Math.min(frame, frames) - 1];
+		}
+		
+		private int deltaSize(int frame)
+		{
+			return start(frame + 1) - start(frame);
+		}
+		
+		private void keyframe(byte[] board)
+		{
+			int count = 0;
+			for(byte state : board)
+				if(state != 0)
+					count++;
+			keyIndices = new int[count];
+			keyStates = new byte[count];
+			count = 0;
+			for(int index = 0; index < board.length; index++)
+			{
+				if(board[index] != 0)
+				{
+					keyIndices[count] = index;
+					keyStates[count] = board[index];
+					count++;
+				}
+			}
+		}
+		
+		private long bytes()
+		{
+			return 5L * (keyIndices.length + indices.length) + 12L * KEYFRAME_INTERVAL;
+		}
+	}
+}
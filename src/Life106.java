@@ -0,0 +1,107 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Reads and writes patterns in the Life 1.06 format, a line reading
+ *
+ * #Life 1.06
+ *
+ * followed by the column and row of every living cell, one cell per line.
+ * The format has no rule and no size, so the rule of the engine is kept and
+ * the board is made just big enough for the cells.
+ */
+public class Life106
+{
+	public static final String HEADER = "#Life 1.06";
+	
+	/**
+	 * Streams the cells of a pattern into the engine, which is resized to
+	 * the bounding box of the cells, or to numRows by numCols with the
+	 * cells in the middle if that is bigger. The cells are held as packed
+	 * positions until the bounding box is known, 8 bytes a cell.
+	 * 
+	 * @throws IOException
+	 * if the pattern can not be read, is not Life 1.06 or is too big for
+	 * the engine
+	 */
+	public static void load(Reader in, LifeEngine engine, int numRows, int numCols) throws IOException
+	{
+		BufferedReader lines = new BufferedReader(in);
+		String line = lines.readLine();
+		if(line == null || !line.trim().startsWith(HEADER))
+			throw new IOException("Not a Life 1.06 pattern");
+		
+		long[] cells = new long[1024];
+		int size = 0;
+		int top = Integer.MAX_VALUE;
+		int left = Integer.MAX_VALUE;
+		int bottom = Integer.MIN_VALUE;
+		int right = Integer.MIN_VALUE;
+		while((line = lines.readLine()) != null)
+		{
+			line = line.trim();
+			if(line.isEmpty() || line.startsWith("#"))
+				continue;
+			
+			String[] position = line.split("\\s+");
+			if(position.length != 2)
+				throw new IOException("Not a cell in Life 1.06: " + line);
+			int col;
+			int row;
+			try
+			{
+				col = Integer.parseInt(position[0]);
+				row = Integer.parseInt(position[1]);
+			}
+			catch(NumberFormatException ex)
+			{
+				throw new IOException("Not a cell in Life 1.06: " + line, ex);
+			}
+			
+			if(size == cells.length)
+				cells = Arrays.copyOf(cells, size * 2);
+			cells[size++] = CellTable.pack(row, col);
+			top = Math.min(top, row);
+			left = Math.min(left, col);
+			bottom = Math.max(bottom, row);
+			right = Math.max(right, col);
+		}
+		
+		if(size == 0)
+			top = left = bottom = right = 0;
+		else if((long) bottom - top >= Integer.MAX_VALUE || (long) right - left >= Integer.MAX_VALUE)
+			throw new IOException("Too spread out for a board: " + (right - (long) left + 1) + " by " + (bottom - (long) top + 1));
+		
+		SaveableData header = new SaveableData();
+		header.numRows = bottom - top + 1;
+		header.numCols = right - left + 1;
+		Point corner = Patterns.place(engine, header, numRows, numCols);
+		for(int i = 0; i < size; i++)
+			engine.setStatus(corner.y + CellTable.rowOf(cells[i]) - top, corner.x + CellTable.colOf(cells[i]) - left, Grid.ALIVE);
+	}
+	
+	/**
+	 * Writes every living cell in the window of the engine, and any that
+	 * have drifted out of it, a row at a time.
+	 */
+	public static void write(LifeEngine engine, Writer out) throws IOException
+	{
+		out.write(HEADER + "\n");
+		try(Snapshot snapshot = engine.snapshot())
+		{
+			int[] extent = Patterns.extent(engine, snapshot);
+			byte[] states = new byte[extent[3]];
+			for(int row = extent[0]; row < extent[0] + extent[2]; row++)
+			{
+				snapshot.getStates(row, extent[1], states.length, states);
+				for(int i = 0; i < states.length; i++)
+					if(states[i] == 1)
+						out.write((extent[1] + i) + " " + row + "\n");
+			}
+		}
+		out.flush();
+	}
+}
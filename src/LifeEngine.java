@@ -0,0 +1,255 @@
+import java.util.Arrays;
+
+/**
+ * The surface every simulation engine exposes to the rest of the program.
+ * The view and the controller only ever talk to the model through this
+ * interface, so engines with completely different cell storage can be
+ * swapped in without touching either of them.
+ */
+public interface LifeEngine extends Rows
+{
+	/**
+	 * The largest step, as a power of two, taken one tick at a time
+	 */
+	public static final int MAX_TICKED_EXPONENT = 8;
+	
+	/**
+	 * Moves forward 1 generation
+	 */
+	public void tick();
+	
+	/**
+	 * Moves forward 2^exponent generations. Engines that can skip ahead
+	 * faster than one generation at a time override this.
+	 */
+	public default void advance(int exponent)
+	{
+		for(long i = 1L << exponent; i > 0; i--)
+			tick();
+	}
+	
+	/**
+	 * A step can not be paused halfway, so the view only offers steps an
+	 * engine can take in a moment. Engines that can skip ahead faster than
+	 * one generation at a time override this.
+	 * 
+	 * @return
+	 * the largest exponent advance should be asked for from the view
+	 */
+	public default int getMaxStepExponent()
+	{
+		return MAX_TICKED_EXPONENT;
+	}
+	
+	public int getNumRows();
+	
+	public int getNumCols();
+	
+	public boolean isWithinRealBounds(int row, int col);
+	
+	public boolean getStatus(int row, int col);
+	
+	public void setStatus(int row, int col, boolean status);
+	
+	/**
+	 * @return
+	 * the state of the cell under a Generations rule, 0 for dead, 1 for
+	 * alive and anything higher for dying
+	 */
+	public default int getState(int row, int col)
+	{
+		return getStatus(row, col) ? 1 : 0;
+	}
+	
+	/**
+	 * Sets the cell to a state of the Rule, engines without dying states
+	 * only keep whether it is alive.
+	 */
+	public default void setState(int row, int col, int state)
+	{
+		setStatus(row, col, state == 1);
+	}
+	
+	public void toggle(int row, int col);
+	
+	/**
+	 * @return
+	 * the number of living cells, which for engines without bounds includes
+	 * any that have left the window of numRows by numCols
+	 */
+	public default long getPopulation()
+	{
+		long population = 0L;
+		try(Snapshot snapshot = snapshot())
+		{
+			for(int row = 0; row < getNumRows(); row++)
+				for(int col = 0; col < getNumCols(); col++)
+					if(snapshot.getStatus(row, col))
+						population++;
+		}
+		return population;
+	}
+	
+	/**
+	 * Engines that skip the parts of the board that can not change override
+	 * this.
+	 * 
+	 * @return
+	 * the number of tiles computed this generation, or -1 if the engine
+	 * computes the whole board
+	 */
+	public default int getActiveTileCount()
+	{
+		return -1;
+	}
+	
+	/**
+	 * Engines that can list the cells each generation changes override
+	 * this, the view then repaints only those cells. Nothing is recorded
+	 * until the first call, so an engine nobody paints pays nothing.
+	 * 
+	 * @return
+	 * the cells changed since the view last drained the set, or null if
+	 * the engine does not record them
+	 */
+	public default ChangeSet getChanges()
+	{
+		return null;
+	}
+	
+	/**
+	 * Engines that count the cells born and killed as they tick override
+	 * this. Nothing is recorded until the first call, so an engine nobody
+	 * watches pays nothing.
+	 * 
+	 * @return
+	 * the population, births, deaths and bounding box of every generation
+	 * ticked since the first call, or null if the engine does not record
+	 * them
+	 */
+	public default Statistics getStatistics()
+	{
+		return null;
+	}
+	
+	/**
+	 * Engines that keep their hash up to date as they tick override this,
+	 * the default hashes every cell in the window from scratch.
+	 * 
+	 * @return
+	 * a Zobrist hash of every living and dying cell, equal for equal boards
+	 * of the same engine and size
+	 */
+	public default long getHash()
+	{
+		long hash = 0L;
+		try(Snapshot snapshot = snapshot())
+		{
+			for(int row = 0; row < getNumRows(); row++)
+				for(int col = 0; col < getNumCols(); col++)
+					hash ^= Zobrist.key((long) row * getNumCols() + col, snapshot.getState(row, col));
+		}
+		return hash;
+	}
+	
+	/**
+	 * Copies a whole row out at once, 64 cells to a word with the first
+	 * column in the lowest bit of the first word. Engines whose storage is
+	 * already laid out this way override it with a straight copy.
+	 * 
+	 * @param words
+	 * at least (numCols + 63) / 64 words, the cells past numCols are left
+	 * dead
+	 */
+	public default void getRow(int row, long[] words)
+	{
+		Arrays.fill(words, 0, (getNumCols() + 63) >>> 6, 0L);
+		try(Snapshot snapshot = snapshot())
+		{
+			for(int col = 0; col < getNumCols(); col++)
+				if(snapshot.getStatus(row, col))
+					words[col >>> 6] |= 1L << col;
+		}
+	}
+	
+	public default void setRow(int row, long[] words)
+	{
+		for(int col = 0; col < getNumCols(); col++)
+		{
+			boolean status = ((words[col >>> 6] >>> col) & 1L) != 0L;
+			if(status != getStatus(row, col))
+				setStatus(row, col, status);
+		}
+	}
+	
+	/**
+	 * Copies the state of every cell in a row out at once, for boards
+	 * under Generations rules.
+	 */
+	public default void getStates(int row, byte[] states)
+	{
+		try(Snapshot snapshot = snapshot())
+		{
+			for(int col = 0; col < getNumCols(); col++)
+				states[col] = (byte) snapshot.getState(row, col);
+		}
+	}
+	
+	/**
+	 * Engines without dying states only keep the living cells.
+	 */
+	public default void setStates(int row, byte[] states)
+	{
+		for(int col = 0; col < getNumCols(); col++)
+		{
+			boolean status = states[col] == 1;
+			if(status != getStatus(row, col))
+				setStatus(row, col, status);
+		}
+	}
+	
+	public SaveableData getSaveableData();
+	
+	/**
+	 * Replaces the board with the one saved. SaveableData without any
+	 * cells, where alive is null, leaves an empty board of numRows by
+	 * numCols to be filled in a row at a time.
+	 */
+	public void loadSaveableData(SaveableData data);
+	
+	public Rule getRule();
+	
+	/**
+	 * @throws IllegalArgumentException
+	 * if the engine can not run the given rule
+	 */
+	public void setRule(Rule rule);
+	
+	/**
+	 * Engines with a separate next generation buffer hand out a view of
+	 * the current one without taking any locks, and never write into it
+	 * again until the view is closed.
+	 * 
+	 * @return
+	 * a view of the most recently completed generation
+	 */
+	public default Snapshot snapshot()
+	{
+		return this::getStatus;
+	}
+	
+	public default boolean isWithinRealBounds(Point pos)
+	{
+		return isWithinRealBounds(pos.y, pos.x);
+	}
+	
+	public default boolean getStatus(Point pos)
+	{
+		return getStatus(pos.y, pos.x);
+	}
+	
+	public default void setStatus(Point pos, boolean status)
+	{
+		setStatus(pos.y, pos.x, status);
+	}
+}
@@ -1,75 +1,133 @@
-import java.awt.Color;
-import java.io.InputStream;
-import java.util.Scanner;
-
-public class LoadFromSettings
-{
-	public static long clockSpeed;
-	public static long repaintRate;
-	
-	public static int numRows;
-	public static int numCols;
-	
-	public static int cellSize;
-	public static int gap;
-	
-	public static Color aliveColor;
-	public static Color deadColor;
-	public static Color gapColor;
-	
-	public static void loadSettings()
-	{
-		try
-		{
-			Point p = new Point(0, 0);
-			InputStream in = p.getClass().getResourceAsStream("settings.txt");
-			Scanner scan = new Scanner(in);
-			scan.next();
-			scan.next();
-			numRows = scan.nextInt();
-			scan.next();
-			scan.next();
-			numCols = scan.nextInt();
-			scan.next();
-			scan.next();
-			cellSize = scan.nextInt();
-			scan.next();
-			scan.next();
-			gap = scan.nextInt();
-			scan.next();
-			scan.next();
-			clockSpeed = scan.nextLong();
-			scan.next();
-			scan.next();
-			repaintRate = scan.nextLong();
-			scan.next();
-			scan.next();
-			aliveColor = new Color(scan.nextInt(16));
-			scan.next();
-			scan.next();
-			deadColor = new Color(scan.nextInt(16));
-			scan.next();
-			scan.next();
-			gapColor = new Color(scan.nextInt(16));
-			scan.close();
-		}
-		catch(Throwable t)
-		{
-			t.printStackTrace();
-			loadDefaults();
-		}
-	}
-	
-	private static void loadDefaults()
-	{
-		numRows = 800;
-		numCols = 800;
-		cellSize = 1;
-		gap = 1;
-		clockSpeed = 100L;
-		repaintRate = 7L;
-		aliveColor = Color.BLACK;
-		deadColor = Color.WHITE;
-		gapColor = Color.GRAY;
-	}
-}
+import java.awt.Color;
+import java.io.InputStream;
+import java.util.Scanner;
+
+public class LoadFromSettings
+{
+	public static long clockSpeed;
+	public static long repaintRate;
+	
+	public static int numRows;
+	public static int numCols;
+	
+	public static int cellSize;
+	public static int gap;
+	
+	public static Color aliveColor;
+	public static Color deadColor;
+	public static Color gapColor;
+	public static Color dyingColor;
+	
+	public static String engine;
+	public static int threads;
+	public static Boundary boundary;
+	public static Rule rule;
+	public static int history;
+	
+	public static void loadSettings()
+	{
+		loadOptionalDefaults();
+		try
+		{
+			Point p = new Point(0, 0);
+			InputStream in = p.getClass().getResourceAsStream("settings.txt");
+			Scanner scan = new Scanner(in);
+			scan.next();
+			scan.next();
+			numRows = scan.nextInt();
+			scan.next();
+			scan.next();
+			numCols = scan.nextInt();
+			scan.next();
+			scan.next();
+			cellSize = scan.nextInt();
+			scan.next();
+			scan.next();
+			gap = scan.nextInt();
+			scan.next();
+			scan.next();
+			clockSpeed = scan.nextLong();
+			scan.next();
+			scan.next();
+			repaintRate = scan.nextLong();
+			scan.next();
+			scan.next();
+			aliveColor = new Color(scan.nextInt(16));
+			scan.next();
+			scan.next();
+			deadColor = new Color(scan.nextInt(16));
+			scan.next();
+			scan.next();
+			gapColor = new Color(scan.nextInt(16));
+			while(scan.hasNext())
+			{
+				String key = scan.next();
+				scan.next();
+				loadOptional(key, scan.next());
+			}
+			scan.close();
+		}
+		catch(Throwable t)
+		{
+			t.printStackTrace();
+			loadDefaults();
+		}
+	}
+	
+	private static void loadDefaults()
+	{
+		numRows = 800;
+		numCols = 800;
+		cellSize = 1;
+		gap = 1;
+		clockSpeed = 100L;
+		repaintRate = 7L;
+		aliveColor = Color.BLACK;
+		deadColor = Color.WHITE;
+		gapColor = Color.GRAY;
+		loadOptionalDefaults();
+	}
+	
+	/**
+	 * Settings after GAPCOLOR are optional and may appear in any order,
+	 * anything left out of settings.txt keeps the value given here.
+	 */
+	private static void loadOptionalDefaults()
+	{
+		engine = "BITGRID";
+		threads = 1;
+		boundary = Boundary.DEAD;
+		rule = Rule.CONWAY;
+		dyingColor = Color.LIGHT_GRAY;
+		history = 0;
+	}
+	
+	private static void loadOptional(String key, String value)
+	{
+		switch(key)
+		{
+		case "ENGINE":
+			engine = value.toUpperCase();
+			break;
+		case "THREADS":
+			//0 means one thread per core
+			threads = Integer.parseInt(value);
+			if(threads <= 0)
+				threads = Runtime.getRuntime().availableProcessors();
+			break;
+		case "BOUNDARY":
+			boundary = Boundary.valueOf(value.toUpperCase());
+			break;
+		case "RULE":
+			rule = Rule.parse(value);
+			break;
+		case "DYINGCOLOR":
+			dyingColor = new Color(Integer.parseInt(value, 16));
+			break;
+		case "HISTORY":
+			//the steps between two frames of the history, 0 not to record one
+			history = Integer.parseInt(value);
+			break;
+		}
+	}
+}
@@ -0,0 +1,574 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads and writes patterns in the macrocell format Golly uses for patterns
+ * too large for RLE. A macrocell file is the quadtree of the pattern with
+ * every distinct node written once, children before parents. After a line
+ * starting with [M2] and optional lines such as #R for the rule, every line
+ * is a node, numbered from 1 in the order they appear:
+ *
+ * an 8 by 8 leaf such as .**$**$.*$, rows ended by $ with . for dead and *
+ * for alive, or
+ *
+ * a level, the log2 of its size, followed by the numbers of its nw, ne, sw
+ * and se children, with 0 standing for an empty child. Under Generations
+ * rules the nodes of level 1 give the states of their four cells instead.
+ *
+ * The last node is the root of the whole pattern.
+ */
+public class Macrocell
+{
+	public static final String HEADER = "[M2]";
+	private static final int MAX_LEVEL = 62;
+	
+	/**
+	 * Where the nodes of a macrocell file are built, in the order they
+	 * appear in the file.
+	 */
+	public interface Tree
+	{
+		/**
+		 * Adds a node of level 3, bit row * 8 + col being set for every
+		 * living cell.
+		 */
+		public void leaf(long bits) throws IOException;
+		
+		/**
+		 * Adds a node of level 1 made of the states of its four cells.
+		 */
+		public void states(int nw, int ne, int sw, int se) throws IOException;
+		
+		/**
+		 * Adds a node made of four nodes added earlier, 0 standing for an
+		 * empty node of level - 1.
+		 */
+		public void join(int level, int nw, int ne, int sw, int se) throws IOException;
+		
+		/**
+		 * Turns the last node added into the pattern of the engine.
+		 *
+		 * @param rule
+		 * the rule of the file, or null to keep the rule of the engine
+		 */
+		public void finish(String rule) throws IOException;
+	}
+	
+	/**
+	 * Streams a pattern into the engine a line at a time. A HashLife builds
+	 * its own Nodes straight from the file, so a pattern far too large to
+	 * expand loads in as much memory as it takes to run it. Any other engine
+	 * is resized to the bounding box of the pattern, or to numRows by
+	 * numCols with the pattern in the middle if that is bigger, and only the
+	 * cells of nodes that are not empty are ever visited.
+	 *
+	 * @throws IOException
+	 * if the pattern can not be read, is not a macrocell file or is too big
+	 * for the engine
+	 */
+	public static void load(Reader in, LifeEngine engine, int numRows, int numCols) throws IOException
+	{
+		BufferedReader lines = new BufferedReader(in);
+		String line = lines.readLine();
+		if(line == null || !line.startsWith(HEADER))
+			throw new IOException("Not a macrocell pattern");
+		
+		Tree tree = engine instanceof HashLife ? ((HashLife) engine).tree(numRows, numCols) : new Cells(engine, numRows, numCols);
+		String rule = null;
+		int nodes = 0;
+		while((line = lines.readLine()) != null)
+		{
+			line = line.trim();
+			if(line.isEmpty())
+				continue;
+			
+			char first = line.charAt(0);
+			if(first == '#')
+			{
+				if(line.startsWith("#R"))
+					rule = parseRule(line.substring(2).trim());
+				continue;
+			}
+			
+			if(first == '.' || first == '*' || first == '$')
+				tree.leaf(parseLeaf(line));
+			else
+			{
+				int[] fields = parseNode(line, nodes);
+				if(fields[0] == 1)
+					tree.states(fields[1], fields[2], fields[3], fields[4]);
+				else
+					tree.join(fields[0], fields[1], fields[2], fields[3], fields[4]);
+			}
+			nodes++;
+		}
+		
+		if(nodes == 0)
+			throw new IOException("No nodes in macrocell pattern");
+		tree.finish(rule);
+	}
+	
+	/**
+	 * Reads no further than the lines before the first node.
+	 *
+	 * @return
+	 * the rule of the #R line, or null if there is none
+	 */
+	public static String readRule(Reader in) throws IOException
+	{
+		BufferedReader lines = new BufferedReader(in);
+		String line = lines.readLine();
+		if(line == null || !line.startsWith(HEADER))
+			throw new IOException("Not a macrocell pattern");
+		
+		while((line = lines.readLine()) != null)
+		{
+			line = line.trim();
+			if(line.startsWith("#R"))
+				return parseRule(line.substring(2).trim());
+			if(!line.isEmpty() && line.charAt(0) != '#')
+				break;
+		}
+		return null;
+	}
+	
+	private static String parseRule(String rule) throws IOException
+	{
+		try
+		{
+			return Rule.parse(rule).toString();
+		}
+		catch(IllegalArgumentException ex)
+		{
+			throw new IOException("Unknown rule in macrocell pattern: " + rule, ex);
+		}
+	}
+	
+	private static long parseLeaf(String line) throws IOException
+	{
+		long bits = 0L;
+		int row = 0;
+		int col = 0;
+		for(int i = 0; i < line.length(); i++)
+		{
+			char c = line.charAt(i);
+			if(c == '$')
+			{
+				row++;
+				col = 0;
+			}
+			else if((c == '.' || c == '*') && row < 8 && col < 8)
+			{
+				if(c == '*')
+					bits |= 1L << (row * 8 + col);
+				col++;
+			}
+			else
+				throw new IOException("Not a macrocell leaf: " + line);
+		}
+		return bits;
+	}
+	
+	/**
+	 * @return
+	 * the level and the four children of the node
+	 */
+	private static int[] parseNode(String line, int nodes) throws IOException
+	{
+		String[] fields = line.split("\\s+");
+		if(fields.length != 5)
+			throw new IOException("Not a macrocell node: " + line);
+		
+		int[] values = new int[5];
+		try
+		{
+			for(int i = 0; i < 5; i++)
+				values[i] = Integer.parseInt(fields[i]);
+		}
+		catch(NumberFormatException ex)
+		{
+			throw new IOException("Not a macrocell node: " + line, ex);
+		}
+		
+		if(values[0] < 1 || values[0] > MAX_LEVEL)
+			throw new IOException("Level out of range in macrocell node: " + line);
+		for(int i = 1; i < 5; i++)
+			if(values[i] < 0 || (values[0] > 1 && values[i] > nodes) || (values[0] == 1 && values[i] > 255))
+				throw new IOException("Child out of range in macrocell node: " + line);
+		return values;
+	}
+	
+	/**
+	 * Writes the whole pattern of the engine. HashLife writes its own Nodes,
+	 * any other engine has its window split into a quadtree first, with
+	 * identical nodes written only once. The window is grown to hold any
+	 * living cells that have drifted out of it.
+	 */
+	public static void write(LifeEngine engine, Writer out) throws IOException
+	{
+		out.write(HEADER + " (game-of-life)\n");
+		out.write("#R " + engine.getRule() + "\n");
+		if(engine instanceof HashLife)
+			((HashLife) engine).writeMacrocell(out);
+		else
+		{
+			try(Snapshot snapshot = engine.snapshot())
+			{
+				new Quadtree(engine, snapshot, Patterns.extent(engine, snapshot), out).write();
+			}
+		}
+		out.flush();
+	}
+	
+	/**
+	 * @return
+	 * the line of a leaf, with dead cells at the end of each row and empty
+	 * rows at the end of the leaf left out
+	 */
+	static String leafLine(long bits)
+	{
+		StringBuilder line = new StringBuilder();
+		for(int row = 0; row < 8 && (bits >>> (row * 8)) != 0L; row++)
+		{
+			int cells = (int) (bits >>> (row * 8)) & 0xFF;
+			for(int col = 0; cells >>> col != 0; col++)
+				line.append(((cells >>> col) & 1) != 0 ? '*' : '.');
+			line.append('$');
+		}
+		return line.length() == 0 ? "$" : line.toString();
+	}
+	
+	static String nodeLine(int level, int nw, int ne, int sw, int se)
+	{
+		return level + " " + nw + " " + ne + " " + sw + " " + se;
+	}
+	
+	/**
+	 * Builds the pattern in the window of an engine with a fixed size. Every
+	 * node remembers the bounding box of its living cells relative to its
+	 * top left corner, worked out from its children as it is added, so the
+	 * engine can be sized before a single cell is set.
+	 */
+	private static class Cells implements Tree
+	{
+		private LifeEngine engine;
+		private int numRows;
+		private int numCols;
+		private byte[] levels = new byte[1024];
+		private boolean[] leaves = new boolean[1024];
+		private int[] children = new int[4096];
+		private long[] bits = new long[1024];
+		private long[] bounds = new long[4096];
+		private int size = 1;
+		
+		public Cells(LifeEngine engine, int numRows, int numCols)
+		{
+			this.engine = engine;
+			this.numRows = numRows;
+			this.numCols = numCols;
+			//node 0 is empty
+			bounds[0] = 1L;
+			bounds[2] = 0L;
+		}
+		
+		private int add(int level)
+		{
+			if(size == levels.length)
+			{
+				levels = Arrays.copyOf(levels, size * 2);
+				leaves = Arrays.copyOf(leaves, size * 2);
+				children = Arrays.copyOf(children, size * 8);
+				bits = Arrays.copyOf(bits, size * 2);
+				bounds = Arrays.copyOf(bounds, size * 8);
+			}
+			levels[size] = (byte) level;
+			return size++;
+		}
+		
+		private void setBounds(int node, long top, long left, long bottom, long right)
+		{
+			bounds[node * 4] = top;
+			bounds[node * 4 + 1] = left;
+			bounds[node * 4 + 2] = bottom;
+			bounds[node * 4 + 3] = right;
+		}
+		
+		private boolean isEmpty(int node)
+		{
+			return bounds[node * 4] > bounds[node * 4 + 2];
+		}
+		
+		public void leaf(long cells)
+		{
+			int node = add(3);
+			leaves[node] = true;
+			bits[node] = cells;
+			if(cells == 0L)
+			{
+				setBounds(node, 1L, 1L, 0L, 0L);
+				return;
+			}
+			
+			long cols = cells;
+			cols |= cols >>> 32;
+			cols |= cols >>> 16;
+			cols |= cols >>> 8;
+			cols &= 0xFFL;
+			setBounds(node, Long.numberOfTrailingZeros(cells) >>> 3, Long.numberOfTrailingZeros(cols),
+					(63 - Long.numberOfLeadingZeros(cells)) >>> 3, 63 - Long.numberOfLeadingZeros(cols));
+		}
+		
+		public void states(int nw, int ne, int sw, int se)
+		{
+			int node = add(1);
+			bits[node] = nw | (ne << 8) | (sw << 16) | ((long) se << 24);
+			long top = (nw | ne) != 0 ? 0L : 1L;
+			long left = (nw | sw) != 0 ? 0L : 1L;
+			long bottom = (sw | se) != 0 ? 1L : 0L;
+			long right = (ne | se) != 0 ? 1L : 0L;
+			setBounds(node, top, left, bottom, right);
+		}
+		
+		public void join(int level, int nw, int ne, int sw, int se) throws IOException
+		{
+			int[] quadrants = { nw, ne, sw, se };
+			for(int child : quadrants)
+				if(child != 0 && levels[child] != level - 1)
+					throw new IOException("Child of the wrong level in macrocell node " + size);
+			
+			int node = add(level);
+			long half = 1L << (level - 1);
+			long top = Long.MAX_VALUE;
+			long left = Long.MAX_VALUE;
+			long bottom = Long.MIN_VALUE;
+			long right = Long.MIN_VALUE;
+			for(int i = 0; i < 4; i++)
+			{
+				int child = quadrants[i];
+				children[node * 4 + i] = child;
+				if(isEmpty(child))
+					continue;
+				long row = (i >>> 1) * half;
+				long col = (i & 1) * half;
+				top = Math.min(top, bounds[child * 4] + row);
+				left = Math.min(left, bounds[child * 4 + 1] + col);
+				bottom = Math.max(bottom, bounds[child * 4 + 2] + row);
+				right = Math.max(right, bounds[child * 4 + 3] + col);
+			}
+			setBounds(node, top, left, bottom, right);
+		}
+		
+		public void finish(String rule) throws IOException
+		{
+			int root = size - 1;
+			SaveableData header = new SaveableData();
+			header.rule = rule;
+			header.numRows = 1;
+			header.numCols = 1;
+			if(!isEmpty(root))
+			{
+				long height = bounds[root * 4 + 2] - bounds[root * 4] + 1;
+				long width = bounds[root * 4 + 3] - bounds[root * 4 + 1] + 1;
+				if(height > Integer.MAX_VALUE || width > Integer.MAX_VALUE)
+					throw new IOException("Too big for " + Engines.nameOf(engine) + ", use " + Engines.HASHLIFE);
+				header.numRows = (int) height;
+				header.numCols = (int) width;
+			}
+			
+			Point corner = Patterns.place(engine, header, numRows, numCols);
+			if(!isEmpty(root))
+				stamp(root, corner.y - bounds[root * 4], corner.x - bounds[root * 4 + 1]);
+		}
+		
+		/**
+		 * Sets the living cells of the node, whose top left corner is at the
+		 * given row and column of the engine.
+		 */
+		private void stamp(int node, long row, long col)
+		{
+			if(isEmpty(node))
+				return;
+			
+			int level = levels[node];
+			if(leaves[node])
+			{
+				for(long cells = bits[node]; cells != 0L; cells &= cells - 1L)
+				{
+					int bit = Long.numberOfTrailingZeros(cells);
+					engine.setStatus((int) (row + (bit >>> 3)), (int) (col + (bit & 7)), Grid.ALIVE);
+				}
+			}
+			else if(level == 1)
+			{
+				for(int i = 0; i < 4; i++)
+				{
+					int state = (int) (bits[node] >>> (i * 8)) & 0xFF;
+					if(state != 0)
+						engine.setState((int) (row + (i >>> 1)), (int) (col + (i & 1)), state);
+				}
+			}
+			else
+			{
+				long half = 1L << (level - 1);
+				for(int i = 0; i < 4; i++)
+					stamp(children[node * 4 + i], row + (i >>> 1) * half, col + (i & 1) * half);
+			}
+		}
+	}
+	
+	/**
+	 * Splits part of the plane of an engine into a quadtree, writing every
+	 * node the first time it is seen and reusing its number after that.
+	 */
+	private static class Quadtree
+	{
+		private Snapshot snapshot;
+		private int top;
+		private int left;
+		private int numRows;
+		private int numCols;
+		private boolean multiState;
+		private Writer out;
+		private Map<Long, Integer> leaves = new HashMap<Long, Integer>();
+		private Map<Key, Integer> nodes = new HashMap<Key, Integer>();
+		private int next = 1;
+		
+		/**
+		 * @param extent
+		 * the top, left, height and width of the part of the plane to write
+		 */
+		public Quadtree(LifeEngine engine, Snapshot snapshot, int[] extent, Writer out)
+		{
+			this.snapshot = snapshot;
+			top = extent[0];
+			left = extent[1];
+			numRows = extent[2];
+			numCols = extent[3];
+			multiState = engine.getRule().getStates() > 2;
+			this.out = out;
+		}
+		
+		public void write() throws IOException
+		{
+			int level = 3;
+			while((1L << level) < Math.max(numRows, numCols))
+				level++;
+			
+			if(build(level, 0L, 0L) == 0)
+				out.write(leafLine(0L) + "\n");
+		}
+		
+		/**
+		 * @return
+		 * the number of the node whose top left corner is at the given row
+		 * and column, 0 if it is empty
+		 */
+		private int build(int level, long row, long col) throws IOException
+		{
+			if(row >= numRows || col >= numCols)
+				return 0;
+			if(level == 3 && !multiState)
+				return leaf(row, col);
+			if(level == 1)
+				return states(row, col);
+			
+			long half = 1L << (level - 1);
+			int nw = build(level - 1, row, col);
+			int ne = build(level - 1, row, col + half);
+			int sw = build(level - 1, row + half, col);
+			int se = build(level - 1, row + half, col + half);
+			if((nw | ne | sw | se) == 0)
+				return 0;
+			
+			Key key = new Key(level, nw, ne, sw, se);
+			Integer node = nodes.get(key);
+			if(node == null)
+			{
+				out.write(nodeLine(level, nw, ne, sw, se) + "\n");
+				node = next++;
+				nodes.put(key, node);
+			}
+			return node;
+		}
+		
+		private int leaf(long row, long col) throws IOException
+		{
+			long bits = 0L;
+			for(int i = 0; i < 8 && row + i < numRows; i++)
+				for(int j = 0; j < 8 && col + j < numCols; j++)
+					if(snapshot.getStatus(top + (int) (row + i), left + (int) (col + j)))
+						bits |= 1L << (i * 8 + j);
+			if(bits == 0L)
+				return 0;
+			
+			Integer node = leaves.get(bits);
+			if(node == null)
+			{
+				out.write(leafLine(bits) + "\n");
+				node = next++;
+				leaves.put(bits, node);
+			}
+			return node;
+		}
+		
+		private int states(long row, long col) throws IOException
+		{
+			int[] states = new int[4];
+			long key = 0L;
+			for(int i = 0; i < 4; i++)
+			{
+				long r = row + (i >>> 1);
+				long c = col + (i & 1);
+				states[i] = r < numRows && c < numCols ? snapshot.getState(top + (int) r, left + (int) c) : 0;
+				key |= (long) states[i] << (i * 8);
+			}
+			if(key == 0L)
+				return 0;
+			
+			Integer node = leaves.get(key);
+			if(node == null)
+			{
+				out.write(nodeLine(1, states[0], states[1], states[2], states[3]) + "\n");
+				node = next++;
+				leaves.put(key, node);
+			}
+			return node;
+		}
+	}
+	
+	private static final class Key
+	{
+		private final int level;
+		private final int nw;
+		private final int ne;
+		private final int sw;
+		private final int se;
+		
+		public Key(int level, int nw, int ne, int sw, int se)
+		{
+			this.level = level;
+			this.nw = nw;
+			this.ne = ne;
+			this.sw = sw;
+			this.se = se;
+		}
+		
+		public boolean equals(Object obj)
+		{
+			if(!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return level == other.level && nw == other.nw && ne == other.ne && sw == other.sw && se == other.se;
+		}
+		
+		public int hashCode()
+		{
+			return (((level * 31 + nw) * 31 + ne) * 31 + sw) * 31 + se;
+		}
+	}
+}
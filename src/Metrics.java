@@ -0,0 +1,223 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.function.Supplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Where the time of a running simulation goes, recorded by the thread that
+ * steps the engine and the one that paints it, and published as an MBean
+ * so it can be watched without a profiler. Every step and every frame
+ * costs a few atomic increments to record. The rates are worked out once a
+ * second from the steps taken in that second, and the population and
+ * active tiles are read from the engine only when asked for.
+ */
+public class Metrics implements MetricsMBean
+{
+	public static final String NAME = "GameOfLife:type=Metrics";
+	private static final long WINDOW = 1000000000L;
+	
+	private final Supplier<LifeEngine> engine;
+	private final Histogram steps = new Histogram();
+	private final Histogram frames = new Histogram();
+	private final com.sun.management.ThreadMXBean threads;
+	private volatile long generations;
+	private volatile long lastStep;
+	private volatile double generationRate;
+	private volatile double allocationRate = -1.0;
+	
+	//only touched by the thread that steps
+	private long windowStart;
+	private long windowGenerations;
+	private long windowAllocated;
+	
+	/**
+	 * @param engine
+	 * the engine being stepped, asked for again every time it is read so it
+	 * may be swapped out
+	 */
+	public Metrics(Supplier<LifeEngine> engine)
+	{
+		this.engine = engine;
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if(bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported())
+			threads = (com.sun.management.ThreadMXBean) bean;
+		else
+			threads = null;
+		windowStart = System.nanoTime();
+		windowAllocated = allocated();
+	}
+	
+	/**
+	 * Publishes these metrics on the platform MBean server under NAME,
+	 * replacing any published before.
+	 */
+	public void register()
+	{
+		try
+		{
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(NAME);
+			if(server.isRegistered(name))
+				server.unregisterMBean(name);
+			server.registerMBean(this, name);
+		}
+		catch(JMException ex)
+		{
+			ex.printStackTrace();
+		}
+	}
+	
+	/**
+	 * To be called by the thread that steps the engine, after every step.
+	 *
+	 * @param nanos
+	 * how long the step took
+	 *
+	 * @param generations
+	 * how many generations it moved
+	 */
+	public void recordStep(long nanos, long generations)
+	{
+		steps.record(nanos);
+		this.generations += generations;
+		long now = System.nanoTime();
+		lastStep = now;
+		
+		long elapsed = now - windowStart;
+		if(elapsed >= WINDOW)
+		{
+			long total = this.generations;
+			generationRate = (total - windowGenerations) * 1e9 / elapsed;
+			long allocated = allocated();
+			allocationRate = allocated < 0L || windowAllocated < 0L ? -1.0 : Math.max(0L, allocated - windowAllocated) * 1e9 / elapsed;
+			windowStart = now;
+			windowGenerations = total;
+			windowAllocated = allocated;
+		}
+	}
+	
+	/**
+	 * To be called after every frame is painted.
+	 *
+	 * @param nanos
+	 * how long the frame took
+	 */
+	public void recordFrame(long nanos)
+	{
+		frames.record(nanos);
+	}
+	
+	/**
+	 * @return
+	 * the bytes allocated by every live thread so far, or -1 if the JVM can
+	 * not say
+	 */
+	private long allocated()
+	{
+		if(threads == null || !threads.isThreadAllocatedMemoryEnabled())
+			return -1L;
+		long total = 0L;
+		for(long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds()))
+			total += Math.max(0L, bytes);
+		return total;
+	}
+	
+	/**
+	 * @return
+	 * true if no step has been taken for a whole window, the rates of the
+	 * last window are stale then
+	 */
+	private boolean idle()
+	{
+		return System.nanoTime() - lastStep > WINDOW;
+	}
+	
+	public long getGenerations()
+	{
+		return generations;
+	}
+	
+	public double getGenerationsPerSecond()
+	{
+		return idle() ? 0.0 : generationRate;
+	}
+	
+	public long getSteps()
+	{
+		return steps.getCount();
+	}
+	
+	public double getStepMillisMean()
+	{
+		return steps.getMean() / 1e6;
+	}
+	
+	public double getStepMillis50()
+	{
+		return steps.getValueAtPercentile(50.0) / 1e6;
+	}
+	
+	public double getStepMillis90()
+	{
+		return steps.getValueAtPercentile(90.0) / 1e6;
+	}
+	
+	public double getStepMillis99()
+	{
+		return steps.getValueAtPercentile(99.0) / 1e6;
+	}
+	
+	public double getStepMillisMax()
+	{
+		return steps.getMax() / 1e6;
+	}
+	
+	public long getFrames()
+	{
+		return frames.getCount();
+	}
+	
+	public double getFrameMillisMean()
+	{
+		return frames.getMean() / 1e6;
+	}
+	
+	public double getFrameMillis50()
+	{
+		return frames.getValueAtPercentile(50.0) / 1e6;
+	}
+	
+	public double getFrameMillis99()
+	{
+		return frames.getValueAtPercentile(99.0) / 1e6;
+	}
+	
+	public double getFrameMillisMax()
+	{
+		return frames.getMax() / 1e6;
+	}
+	
+	public long getPopulation()
+	{
+		return engine.get().getPopulation();
+	}
+	
+	public int getActiveTiles()
+	{
+		return engine.get().getActiveTileCount();
+	}
+	
+	public double getAllocationRate()
+	{
+		return idle() && allocationRate >= 0.0 ? 0.0 : allocationRate;
+	}
+	
+	public void reset()
+	{
+		steps.reset();
+		frames.reset();
+	}
+}
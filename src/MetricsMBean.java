@@ -0,0 +1,54 @@
+/**
+ * The attributes Metrics publishes over JMX, where jconsole or any other
+ * JMX client can read them off a running simulation. Durations are in
+ * milliseconds and rates are per second.
+ */
+public interface MetricsMBean
+{
+	public long getGenerations();
+	
+	public double getGenerationsPerSecond();
+	
+	public long getSteps();
+	
+	public double getStepMillisMean();
+	
+	public double getStepMillis50();
+	
+	public double getStepMillis90();
+	
+	public double getStepMillis99();
+	
+	public double getStepMillisMax();
+	
+	public long getFrames();
+	
+	public double getFrameMillisMean();
+	
+	public double getFrameMillis50();
+	
+	public double getFrameMillis99();
+	
+	public double getFrameMillisMax();
+	
+	public long getPopulation();
+	
+	/**
+	 * @return
+	 * the tiles the last tick computed, or -1 for engines that do not skip
+	 * tiles
+	 */
+	public int getActiveTiles();
+	
+	/**
+	 * @return
+	 * the bytes allocated per second by every thread while stepping, or -1
+	 * if the JVM can not measure it
+	 */
+	public double getAllocationRate();
+	
+	/**
+	 * Starts the histograms over.
+	 */
+	public void reset();
+}
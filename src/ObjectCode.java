@@ -0,0 +1,124 @@
+/**
+ * Names objects the same way other soup searchers do, so a census can be
+ * compared against theirs. A code is a prefix giving the kind of object,
+ * xs and the population for a still life, xp and the period for an
+ * oscillator or xq and the period for a spaceship, then an underscore and
+ * the cells of the object in extended Wechsler format. The block is xs4_33,
+ * the blinker xp2_7 and the glider xq4_153.
+ *
+ * Of every phase and every rotation and reflection of the object, the one
+ * with the shortest encoding is used, and of those the one that comes
+ * first alphabetically, so the code does not depend on how the object
+ * happened to be lying.
+ */
+public class ObjectCode
+{
+	private static final String DIGITS = "0123456789abcdefghijklmnopqrstuvwxyz";
+	
+	public static final String STILL_LIFE = "xs";
+	public static final String OSCILLATOR = "xp";
+	public static final String SPACESHIP = "xq";
+	
+	/**
+	 * @param prefix
+	 * the kind of object followed by its population or period, such as xs4
+	 * @param phases
+	 * the cells of every phase of the object, each trimmed to its bounding
+	 * box
+	 */
+	public static String of(String prefix, boolean[][][] phases)
+	{
+		String best = null;
+		for(boolean[][] phase : phases)
+		{
+			for(int orientation = 0; orientation < 8; orientation++)
+			{
+				String wechsler = wechsler(phase, orientation);
+				if(best == null || wechsler.length() < best.length()
+						|| (wechsler.length() == best.length() && wechsler.compareTo(best) < 0))
+					best = wechsler;
+			}
+		}
+		return prefix + "_" + best;
+	}
+	
+	/**
+	 * @return
+	 * the name of the kind of object a code stands for
+	 */
+	public static String kindOf(String code)
+	{
+		if(code.startsWith(STILL_LIFE))
+			return "still life";
+		else if(code.startsWith(OSCILLATOR))
+			return "oscillator";
+		else if(code.startsWith(SPACESHIP))
+			return "spaceship";
+		else
+			return "unknown";
+	}
+	
+	/**
+	 * Encodes the cells in strips five rows tall, one character per column
+	 * with the top row as the lowest bit, and a z between strips. Runs of
+	 * empty columns are shortened to w for two, x for three and y followed
+	 * by a digit for four to thirty nine, and empty columns at the end of a
+	 * strip are left out.
+	 *
+	 * @param orientation
+	 * bit 0 flips the rows, bit 1 flips the columns and bit 2 swaps rows
+	 * for columns before either flip
+	 */
+	private static String wechsler(boolean[][] cells, int orientation)
+	{
+		boolean transpose = (orientation & 4) != 0;
+		int height = transpose ? cells[0].length : cells.length;
+		int width = transpose ? cells.length : cells[0].length;
+		
+		StringBuilder code = new StringBuilder();
+		for(int strip = 0; strip * 5 < height; strip++)
+		{
+			if(strip > 0)
+				code.append('z');
+			
+			int zeros = 0;
+			for(int col = 0; col < width; col++)
+			{
+				int value = 0;
+				for(int bit = 0; bit < 5 && strip * 5 + bit < height; bit++)
+				{
+					int row = strip * 5 + bit;
+					int r = (orientation & 1) != 0 ? height - 1 - row : row;
+					int c = (orientation & 2) != 0 ? width - 1 - col : col;
+					if(transpose ? cells[c][r] : cells[r][c])
+						value |= 1 << bit;
+				}
+				
+				if(value == 0)
+					zeros++;
+				else
+				{
+					appendZeros(code, zeros);
+					zeros = 0;
+					code.append(DIGITS.charAt(value));
+				}
+			}
+		}
+		return code.toString();
+	}
+	
+	private static void appendZeros(StringBuilder code, int zeros)
+	{
+		for(; zeros > 39; zeros -= 39)
+			code.append("yz");
+		
+		if(zeros == 1)
+			code.append('0');
+		else if(zeros == 2)
+			code.append('w');
+		else if(zeros == 3)
+			code.append('x');
+		else if(zeros >= 4)
+			code.append('y').append(DIGITS.charAt(zeros - 4));
+	}
+}
@@ -1,299 +1,530 @@
-import java.awt.Color;
-import java.awt.Dimension;
-import java.awt.Graphics;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-
-import javax.swing.JPanel;
-
-/**
- * The view in our MVC design pattern.
- * Displays the model so the user can interact with it.
- * 
- * @author Jacob Cohen
- */
-public class PaintPanel extends JPanel
-{
-	private static final long serialVersionUID = 8915539899387579004L;
-	
-	private int cellSize;
-	private int gap;
-	private volatile Grid grid;
-	private boolean firstPaint = true;
-	
-	private Color aliveColor;
-	private Color deadColor;
-	private Color gapColor;
-	
-	public int shiftX;
-	public int shiftY;
-	int minSize;
-	
-	public PaintPanel(Grid toPaint, int cellSize, int gap, Color aliveColor, Color deadColor, Color gapColor)
-	{
-		this.cellSize = cellSize;
-		this.gap = gap;
-		minSize = cellSize;
-		
-		this.aliveColor = aliveColor;
-		this.deadColor = deadColor;
-		this.gapColor = gapColor;
-		
-		shiftX = 0;
-		shiftY = 0;
-		
-		grid = toPaint;
-	}
-	
-	public Dimension getPreferredSize()
-	{
-		int width = (cellSize + gap) * grid.getNumCols();
-		int height = (cellSize + gap) * grid.getNumRows();
-		return new Dimension(width, height);
-	}
-	
-	public void save(File file) throws FileNotFoundException, IOException
-	{
-		ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(file));
-		oos.writeObject(grid.getSaveableData());
-		oos.close();
-	}
-	
-	public void load(File file) throws FileNotFoundException, IOException, ClassNotFoundException
-	{
-		ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file));
-		grid.loadSaveableData((SaveableData)ois.readObject());
-		ois.close();
-	}
-	
-	public void tick(long millis)
-	{
-		long begin, end;
-		
-		begin = System.currentTimeMillis();
-		grid.tick();
-		end = System.currentTimeMillis();
-		millis -= end - begin;
-		pause(millis);
-	}
-	
-	private void pause(long millis)
-	{
-		if(millis > 0)
-		{
-			try {
-				Thread.sleep(millis);
-			} catch (InterruptedException e) {}
-		}
-	}
-	
-	public void resetFirstPaint()
-	{
-		firstPaint = true;
-	}
-	
-	public void paint(Graphics g)
-	{
-		if(firstPaint == true)
-		{
-			initBackground(g);
-			initCells(g);
-			firstPaint = false;
-		}
-		if(toRepaint != null)
-		{
-			g.setColor(color ? aliveColor : deadColor);
-			g.fillRect(toRepaint.x, toRepaint.y, cellSize, cellSize);
-			toRepaint = null;
-		}
-		else
-		{
-			initBackground(g);
-			
-			int startingRow = ((shiftY - getHeight()) / (gap + cellSize) - 1) + grid.getNumRows();
-			int startingCol = - shiftX / (gap + cellSize);
-			int finalRow = (shiftY / (gap + cellSize) - 1) + grid.getNumRows() + 1;
-			int finalCol = (getWidth() - shiftX) / (gap + cellSize) + 1;
-			
-			if(startingRow < 0)
-				startingRow = 0;
-			if(startingCol < 0)
-				startingCol = 0;
-			if(finalCol > grid.getNumCols())
-				finalCol = grid.getNumCols();
-			if(finalRow > grid.getNumRows())
-				finalRow = grid.getNumRows();
-			
-			for(int row = startingRow; row < finalRow; row++)
-			{
-				for(int col = startingCol; col < finalCol; col++)
-				{
-					Grid.Cell cell = grid.get(row, col);
-					paint(g, cell);
-				}
-			}
-		}
-	}
-	
-	private void initBackground(Graphics g)
-	{
-		g.setColor(gapColor);
-		g.fillRect(0, 0, getWidth(), getHeight());
-	}
-	
-	private void initCells(Graphics g)
-	{
-		int startingRow = ((shiftY - getHeight()) / (gap + cellSize) - 1) + grid.getNumRows();
-		int startingCol = - shiftX / (gap + cellSize);
-		int finalRow = (shiftY / (gap + cellSize) - 1) + grid.getNumRows() + 1;
-		int finalCol = (getWidth() - shiftX) / (gap + cellSize) + 1;
-		
-		if(startingRow < 0)
-			startingRow = 0;
-		if(startingCol < 0)
-			startingCol = 0;
-		if(finalCol > grid.getNumCols())
-			finalCol = grid.getNumCols();
-		if(finalRow > grid.getNumRows())
-			finalRow = grid.getNumRows();
-		
-		for(int row = startingRow; row < finalRow; row++)
-		{
-			for(int col = startingCol; col < finalCol; col++)
-			{
-				Grid.Cell cell = grid.get(row, col);
-				paint(g, cell);
-			}
-		}
-	}
-	
-	public boolean zoom(int amount, java.awt.Point p)
-	{
-		if(cellSize == minSize && amount >= 0)
-			return false;
-		Point maintainPosition = getPos(p);
-		Point oldCorner = ungetPos(maintainPosition);
-		cellSize -= amount;
-		if(cellSize <= minSize)
-			cellSize = minSize;
-		shiftX = p.x - maintainPosition.x * (gap + cellSize);
-		shiftY = (maintainPosition.y - grid.getNumRows() + 1) * (gap + cellSize) + p.y;
-		shiftX += oldCorner.x - p.x;
-		shiftY += oldCorner.y - p.y;
-		return true;
-	}
-	
-	public Point getPos(java.awt.Point p)
-	{
-		int x = (p.x - shiftX) / (gap + cellSize);
-		int y = ((shiftY - p.y) / (gap + cellSize) - 1) + grid.getNumRows();
-		return new Point(x, y);
-	}
-	
-	public Point getPos(Point p)
-	{
-		int x = (p.x - shiftX) / (gap + cellSize);
-		int y = ((shiftY - p.y) / (gap + cellSize) - 1) + grid.getNumRows();
-		return new Point(x, y);
-	}
-	
-	public Point ungetPos(java.awt.Point p)
-	{
-		int x = p.x * (gap + cellSize) + shiftX;
-		int y = shiftY - (p.y - grid.getNumRows()+ 1) * (gap + cellSize);
-		return new Point(x, y);
-	}
-	
-	public Point ungetPos(Point p)
-	{
-		int x = p.x * (gap + cellSize) + shiftX;
-		int y = shiftY - (p.y - grid.getNumRows() + 1) * (gap + cellSize);
-		return new Point(x, y);
-	}
-	
-	private void paint(Graphics g, Grid.Cell cell)
-	{		
-		int x = cell.pos.x * (gap + cellSize) + shiftX;
-		int y = shiftY - (cell.pos.y - grid.getNumRows() + 1) * (gap + cellSize);
-		g.setColor(grid.isAlive(cell) ? aliveColor : deadColor);
-		g.fillRect(x, y, cellSize, cellSize);
-	}
-	
-	public int getGap()
-	{
-		return gap;
-	}
-	
-	public int getCellSize()
-	{
-		return cellSize;
-	}
-	
-	public int getNumRows()
-	{
-		return grid.getNumRows();
-	}
-	
-	public int getNumCols()
-	{
-		return grid.getNumCols();
-	}
-	
-	public void toggle(int row, int col)
-	{
-		grid.toggle(row, col);
-	}
-	
-	public void toggle(Point pos)
-	{
-		toggle(pos.y, pos.x);
-	}
-	
-	public SaveableData getSaveableData()
-	{
-		SaveableData saveableData = grid.getSaveableData();
-		saveableData.cellSize = cellSize;
-		saveableData.shiftX = shiftX;
-		saveableData.shiftY = shiftY;
-		return saveableData;
-	}
-	
-	public void load(SaveableData saveableData)
-	{
-		grid.loadSaveableData(saveableData);
-		shiftX = saveableData.shiftX;
-		shiftY = saveableData.shiftY;
-		cellSize = saveableData.cellSize;
-		repaint();
-	}
-	
-	public void set(int row, int col, boolean status)
-	{
-		grid.setStatus(row, col, status);
-	}
-	
-	private Point toRepaint = null;
-	private boolean color = false;
-	
-	public void markStroke(java.awt.Point p, boolean status)
-	{
-		Point pt = getPos(p);
-		if(grid.isWithinRealBounds(pt.y, pt.x))
-		{
-			color = status;
-			grid.setStatus(pt, status);
-			toRepaint = ungetPos(pt);
-			repaint(100, toRepaint.x, toRepaint.y, cellSize, cellSize);
-		}
-	}
-	
-	public void set(Point pos, boolean status)
-	{
-		grid.setStatus(pos, status);
-	}
-}
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.swing.JPanel;
+
+/**
+ * The view in our MVC design pattern.
+ * Displays the model so the user can interact with it.
+ * 
+ * @author Jacob Cohen
+ */
+public class PaintPanel extends JPanel
+{
+	private static final long serialVersionUID = 8915539899387579004L;
+	/**
+	 * The most cells a pixel covers when zoomed out is 2^MAX_ZOOM_OUT on a
+	 * side
+	 */
+	private static final int MAX_ZOOM_OUT = 15;
+	/**
+	 * The fewest nanoseconds between two updates of the text of the HUD,
+	 * reading the population can take as long as a step
+	 */
+	private static final long HUD_PERIOD = 250000000L;
+	private static final Color HUD_BACKGROUND = new Color(0, 0, 0, 160);
+	/**
+	 * The population graph plots one generation per pixel
+	 */
+	private static final int GRAPH_WIDTH = 240;
+	private static final int GRAPH_HEIGHT = 60;
+	private static final Color GRAPH_LINE = new Color(120, 220, 120);
+	
+	private int cellSize;
+	private int gap;
+	private int zoomOut;
+	private volatile LifeEngine grid;
+	private Renderer renderer;
+	private boolean firstPaint = true;
+	
+	private Color aliveColor;
+	private Color deadColor;
+	private Color gapColor;
+	private Color dyingColor;
+	private int[] ramp;
+	private Metrics metrics;
+	private boolean hudVisible;
+	private String[] hud;
+	private long hudUpdated;
+	private boolean graphVisible;
+	private final long[] graphPopulations = new long[GRAPH_WIDTH];
+	private final int[] graphX = new int[GRAPH_WIDTH];
+	private final int[] graphY = new int[GRAPH_WIDTH];
+	
+	public int shiftX;
+	public int shiftY;
+	int minSize;
+	
+	public PaintPanel(LifeEngine toPaint, int cellSize, int gap, Color aliveColor, Color deadColor, Color gapColor, Color dyingColor)
+	{
+		this.cellSize = cellSize;
+		this.gap = gap;
+		minSize = cellSize;
+		
+		this.aliveColor = aliveColor;
+		this.deadColor = deadColor;
+		this.gapColor = gapColor;
+		this.dyingColor = dyingColor;
+		ramp = new int[] { deadColor.getRGB(), aliveColor.getRGB() };
+		renderer = new Renderer();
+		
+		shiftX = 0;
+		shiftY = 0;
+		
+		grid = toPaint;
+	}
+	
+	public Dimension getPreferredSize()
+	{
+		if(zoomOut > 0)
+			return new Dimension(blocks(grid.getNumCols()), blocks(grid.getNumRows()));
+		int width = (cellSize + gap) * grid.getNumCols();
+		int height = (cellSize + gap) * grid.getNumRows();
+		return new Dimension(width, height);
+	}
+	
+	/**
+	 * The view as it is now, to be saved with the board. Only the event
+	 * dispatch thread may call this.
+	 */
+	public SaveableData getView()
+	{
+		SaveableData view = new SaveableData();
+		view.cellSize = cellSize;
+		view.shiftX = shiftX;
+		view.shiftY = shiftY;
+		return view;
+	}
+	
+	/**
+	 * Saves the board and a view of it as a .gol file. Only the thread that
+	 * changes the board may call this, the view is taken beforehand on the
+	 * event dispatch thread with getView.
+	 */
+	public void save(File file, SaveableData view) throws IOException
+	{
+		GolFile.write(file.toPath(), grid, view.cellSize, view.shiftX, view.shiftY);
+	}
+	
+	/**
+	 * Loads a .gol file into the engine. Only the thread that changes the
+	 * board may call this, the view is restored afterwards on the event
+	 * dispatch thread with setView.
+	 *
+	 * @return
+	 * the view the file was saved with
+	 */
+	public SaveableData load(File file) throws IOException
+	{
+		return GolFile.load(file.toPath(), grid);
+	}
+	
+	/**
+	 * Moves and zooms the view to the one a file was saved with.
+	 */
+	public void setView(SaveableData view)
+	{
+		shiftX = view.shiftX;
+		shiftY = view.shiftY;
+		cellSize = Math.max(minSize, view.cellSize);
+		repaint();
+	}
+	
+	/**
+	 * Loads a pattern in any of the Patterns formats into the engine. Only
+	 * the thread that changes the board may call this, the pattern is
+	 * centered afterwards on the event dispatch thread with center.
+	 */
+	public void importPattern(File file) throws IOException
+	{
+		Patterns.load(file.toPath(), grid);
+	}
+	
+	/**
+	 * Moves the view so the board is in the middle of the panel.
+	 */
+	public void center()
+	{
+		Dimension d = getPreferredSize();
+		shiftX = (getWidth() - d.width) / 2;
+		shiftY = (getHeight() - d.height) / 2;
+		repaint();
+	}
+	
+	/**
+	 * Writes the pattern of the engine in the format its extension asks for.
+	 * Only the thread that changes the board may call this, as HashLife
+	 * rebuilds nodes of its table while it writes them out.
+	 */
+	public void exportPattern(File file) throws IOException
+	{
+		Patterns.save(grid, file.toPath());
+	}
+	
+	/**
+	 * Paints the whole of the next frame, rather than just the cells that
+	 * changed.
+	 */
+	public void resetFirstPaint()
+	{
+		firstPaint = true;
+		repaint();
+	}
+	
+	/**
+	 * Paints the cells that changed since the last frame into the back
+	 * buffer of the Renderer, or every visible cell if the engine can not
+	 * say which changed, and copies it to the screen in one drawImage. The
+	 * changes are drained before the snapshot is taken, so the snapshot is
+	 * never older than the changes painted from it.
+	 */
+	public void paint(Graphics g)
+	{
+		long start = System.nanoTime();
+		paintBoard(g);
+		if(hudVisible && metrics != null)
+			paintHud(g);
+		if(graphVisible)
+			paintGraph(g);
+		if(metrics != null)
+			metrics.recordFrame(System.nanoTime() - start);
+	}
+	
+	private void paintBoard(Graphics g)
+	{
+		LifeEngine engine = grid;
+		ChangeSet changes = engine.getChanges();
+		int[] changed = changes == null ? null : changes.drain();
+		if(firstPaint)
+		{
+			changed = null;
+			firstPaint = false;
+		}
+		
+		BufferedImage frame;
+		try(Snapshot snapshot = engine.snapshot())
+		{
+			if(zoomOut > 0)
+				frame = renderer.renderDensity(snapshot, zoomOut, engine.getNumRows(), engine.getNumCols(),
+						getWidth(), getHeight(), shiftX, shiftY, rampOf(engine.getRule().getStates()), gapColor.getRGB());
+			else
+				frame = renderer.render(snapshot, changed, engine.getNumRows(), engine.getNumCols(),
+						getWidth(), getHeight(), cellSize, gap, shiftX, shiftY,
+						rampOf(engine.getRule().getStates()), gapColor.getRGB());
+		}
+		g.drawImage(frame, 0, 0, null);
+	}
+	
+	/**
+	 * Paints the metrics over the top left corner of the board. The board
+	 * is copied whole from the back buffer every frame, so nothing has to
+	 * be done to paint over the HUD once it is hidden.
+	 */
+	private void paintHud(Graphics g)
+	{
+		long now = System.nanoTime();
+		if(hud == null || now - hudUpdated >= HUD_PERIOD)
+		{
+			hud = hudLines();
+			hudUpdated = now;
+		}
+		
+		FontMetrics font = g.getFontMetrics();
+		int width = 0;
+		for(String line : hud)
+			width = Math.max(width, font.stringWidth(line));
+		int lineHeight = font.getHeight();
+		g.setColor(HUD_BACKGROUND);
+		g.fillRect(4, 4, width + 12, hud.length * lineHeight + 8);
+		g.setColor(Color.WHITE);
+		for(int i = 0; i < hud.length; i++)
+			g.drawString(hud[i], 10, 8 + i * lineHeight + font.getAscent());
+	}
+	
+	private String[] hudLines()
+	{
+		int tiles = metrics.getActiveTiles();
+		double allocation = metrics.getAllocationRate();
+		return new String[] {
+			String.format("%.1f gen/s", metrics.getGenerationsPerSecond()),
+			String.format("step p50 %.2f  p99 %.2f  max %.2f ms", metrics.getStepMillis50(), metrics.getStepMillis99(), metrics.getStepMillisMax()),
+			String.format("frame p50 %.2f  p99 %.2f ms", metrics.getFrameMillis50(), metrics.getFrameMillis99()),
+			"population " + metrics.getPopulation(),
+			tiles < 0 ? "active tiles -" : "active tiles " + tiles,
+			allocation < 0.0 ? "alloc -" : String.format("alloc %.1f MB/s", allocation / (1 << 20))
+		};
+	}
+	
+	/**
+	 * Plots the population of the last GRAPH_WIDTH generations over the
+	 * bottom left corner of the board, scaled to fill the graph, with the
+	 * numbers of the newest one above it. Everything is read straight out
+	 * of the Statistics of the engine, so the graph costs the same however
+	 * big the board is.
+	 */
+	private void paintGraph(Graphics g)
+	{
+		Statistics statistics = grid.getStatistics();
+		int points = statistics == null ? 0 : statistics.getPopulations(graphPopulations);
+		String line;
+		if(points == 0)
+			line = statistics == null ? "no statistics for this engine" : "population -";
+		else
+		{
+			long population = graphPopulations[points - 1];
+			long last = statistics.getCount() - 1;
+			line = "population " + population + "  +" + statistics.getBirths(last) + " -" + statistics.getDeaths(last);
+			if(population > 0L)
+				line += "  " + (statistics.getRight(last) - statistics.getLeft(last) + 1) + "x" + (statistics.getBottom(last) - statistics.getTop(last) + 1);
+		}
+		
+		FontMetrics font = g.getFontMetrics();
+		int lineHeight = font.getHeight();
+		int left = 4;
+		int top = getHeight() - 4 - GRAPH_HEIGHT - lineHeight - 12;
+		g.setColor(HUD_BACKGROUND);
+		g.fillRect(left, top, Math.max(GRAPH_WIDTH, font.stringWidth(line)) + 12, GRAPH_HEIGHT + lineHeight + 12);
+		g.setColor(Color.WHITE);
+		g.drawString(line, left + 6, top + 4 + font.getAscent());
+		if(points == 0)
+			return;
+		
+		long min = Long.MAX_VALUE;
+		long max = Long.MIN_VALUE;
+		for(int i = 0; i < points; i++)
+		{
+			min = Math.min(min, graphPopulations[i]);
+			max = Math.max(max, graphPopulations[i]);
+		}
+		int bottom = top + lineHeight + 8 + GRAPH_HEIGHT - 1;
+		for(int i = 0; i < points; i++)
+		{
+			graphX[i] = left + 6 + i;
+			graphY[i] = bottom - (max == min ? 0 : (int) ((graphPopulations[i] - min) * (GRAPH_HEIGHT - 1) / (max - min)));
+		}
+		g.setColor(GRAPH_LINE);
+		g.drawPolyline(graphX, graphY, points);
+	}
+	
+	/**
+	 * Shows or hides the population graph. Showing it starts the engine
+	 * recording its Statistics, if it can.
+	 */
+	public void setGraphVisible(boolean graphVisible)
+	{
+		this.graphVisible = graphVisible;
+		if(graphVisible)
+			grid.getStatistics();
+		repaint();
+	}
+	
+	/**
+	 * @param metrics
+	 * where the time every frame takes is recorded, and what the HUD shows
+	 */
+	public void setMetrics(Metrics metrics)
+	{
+		this.metrics = metrics;
+	}
+	
+	public void setHudVisible(boolean hudVisible)
+	{
+		this.hudVisible = hudVisible;
+		hud = null;
+		repaint();
+	}
+	
+	/**
+	 * Builds the color of every state of the Rule being run, a dead cell
+	 * is painted deadColor, a living one aliveColor, and the dying states
+	 * fade from aliveColor to dyingColor as they get closer to dead.
+	 * 
+	 * @return
+	 * the RGB value of every state
+	 */
+	private int[] rampOf(int states)
+	{
+		if(ramp.length == states)
+			return ramp;
+		
+		int[] colors = new int[states];
+		colors[0] = deadColor.getRGB();
+		colors[1] = aliveColor.getRGB();
+		for(int state = 2; state < states; state++)
+		{
+			float t = (float) (state - 1) / (states - 2);
+			colors[state] = new Color(
+					Math.round(aliveColor.getRed() + t * (dyingColor.getRed() - aliveColor.getRed())),
+					Math.round(aliveColor.getGreen() + t * (dyingColor.getGreen() - aliveColor.getGreen())),
+					Math.round(aliveColor.getBlue() + t * (dyingColor.getBlue() - aliveColor.getBlue()))).getRGB();
+		}
+		ramp = colors;
+		return colors;
+	}
+	
+	/**
+	 * Zooming out past minSize makes every pixel stand for a block of cells
+	 * twice as wide each step, shaded by how many of them are alive.
+	 */
+	public boolean zoom(int amount, java.awt.Point p)
+	{
+		if((amount > 0 && cellSize == minSize) || (amount < 0 && zoomOut > 0))
+		{
+			int level = zoomOut + Integer.signum(amount);
+			if(level > MAX_ZOOM_OUT)
+				return false;
+			Point cell = getPos(p);
+			zoomOut = level;
+			placeAt(cell, p);
+			return true;
+		}
+		if(cellSize == minSize && amount >= 0)
+			return false;
+		Point maintainPosition = getPos(p);
+		Point oldCorner = ungetPos(maintainPosition);
+		cellSize -= amount;
+		if(cellSize <= minSize)
+			cellSize = minSize;
+		shiftX = p.x - maintainPosition.x * (gap + cellSize);
+		shiftY = (maintainPosition.y - grid.getNumRows() + 1) * (gap + cellSize) + p.y;
+		shiftX += oldCorner.x - p.x;
+		shiftY += oldCorner.y - p.y;
+		return true;
+	}
+	
+	/**
+	 * @return
+	 * the number of pixels n cells take up when zoomed out
+	 */
+	private int blocks(int n)
+	{
+		return ((n - 1) >> zoomOut) + 1;
+	}
+	
+	/**
+	 * Moves the view so the given cell is under the given point.
+	 */
+	private void placeAt(Point cell, java.awt.Point p)
+	{
+		if(zoomOut > 0)
+		{
+			shiftX = p.x - (cell.x >> zoomOut);
+			shiftY = p.y - (blocks(grid.getNumRows()) - 1 - (cell.y >> zoomOut));
+		}
+		else
+		{
+			shiftX = p.x - cell.x * (gap + cellSize);
+			shiftY = p.y + (cell.y - grid.getNumRows() + 1) * (gap + cellSize);
+		}
+	}
+	
+	public Point getPos(java.awt.Point p)
+	{
+		if(zoomOut > 0)
+			return new Point((p.x - shiftX) << zoomOut, (blocks(grid.getNumRows()) - 1 - (p.y - shiftY)) << zoomOut);
+		int x = (p.x - shiftX) / (gap + cellSize);
+		int y = ((shiftY - p.y) / (gap + cellSize) - 1) + grid.getNumRows();
+		return new Point(x, y);
+	}
+	
+	public Point getPos(Point p)
+	{
+		if(zoomOut > 0)
+			return new Point((p.x - shiftX) << zoomOut, (blocks(grid.getNumRows()) - 1 - (p.y - shiftY)) << zoomOut);
+		int x = (p.x - shiftX) / (gap + cellSize);
+		int y = ((shiftY - p.y) / (gap + cellSize) - 1) + grid.getNumRows();
+		return new Point(x, y);
+	}
+	
+	public Point ungetPos(java.awt.Point p)
+	{
+		if(zoomOut > 0)
+			return new Point(shiftX + (p.x >> zoomOut), shiftY + blocks(grid.getNumRows()) - 1 - (p.y >> zoomOut));
+		int x = p.x * (gap + cellSize) + shiftX;
+		int y = shiftY - (p.y - grid.getNumRows()+ 1) * (gap + cellSize);
+		return new Point(x, y);
+	}
+	
+	public Point ungetPos(Point p)
+	{
+		if(zoomOut > 0)
+			return new Point(shiftX + (p.x >> zoomOut), shiftY + blocks(grid.getNumRows()) - 1 - (p.y >> zoomOut));
+		int x = p.x * (gap + cellSize) + shiftX;
+		int y = shiftY - (p.y - grid.getNumRows() + 1) * (gap + cellSize);
+		return new Point(x, y);
+	}
+	
+	public LifeEngine getEngine()
+	{
+		return grid;
+	}
+	
+	public void setEngine(LifeEngine engine)
+	{
+		grid = engine;
+		repaint();
+	}
+	
+	public int getGap()
+	{
+		return gap;
+	}
+	
+	public int getCellSize()
+	{
+		return cellSize;
+	}
+	
+	public int getNumRows()
+	{
+		return grid.getNumRows();
+	}
+	
+	public int getNumCols()
+	{
+		return grid.getNumCols();
+	}
+	
+	public void toggle(int row, int col)
+	{
+		grid.toggle(row, col);
+	}
+	
+	public void toggle(Point pos)
+	{
+		toggle(pos.y, pos.x);
+	}
+	
+	public SaveableData getSaveableData()
+	{
+		SaveableData saveableData = grid.getSaveableData();
+		saveableData.cellSize = cellSize;
+		saveableData.shiftX = shiftX;
+		saveableData.shiftY = shiftY;
+		return saveableData;
+	}
+	
+	public void load(SaveableData saveableData)
+	{
+		grid.loadSaveableData(saveableData);
+		shiftX = saveableData.shiftX;
+		shiftY = saveableData.shiftY;
+		cellSize = saveableData.cellSize;
+		repaint();
+	}
+	
+	public void set(int row, int col, boolean status)
+	{
+		grid.setStatus(row, col, status);
+	}
+	
+	public void set(Point pos, boolean status)
+	{
+		grid.setStatus(pos, status);
+	}
+}
@@ -0,0 +1,202 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Picks the format of a pattern file by its extension, .rle for RLE, .lif
+ * or .life for Life 1.06, .mc for macrocell and anything else for a saved
+ * .gol board.
+ */
+public class Patterns
+{
+	public static final String[] EXTENSIONS = { "rle", "lif", "life", "mc" };
+	
+	/**
+	 * Streams the pattern straight into the engine, resizing it to fit.
+	 *
+	 * @throws IOException
+	 * if the file can not be read or is not in the format its extension
+	 * says it is
+	 */
+	public static void load(Path file, LifeEngine engine) throws IOException
+	{
+		load(file, engine, 0, 0);
+	}
+	
+	/**
+	 * Streams the pattern straight into the middle of a board of at least
+	 * numRows by numCols, never holding more of it than the format needs
+	 * to, so a pattern far bigger than the memory of a board of booleans
+	 * loads into an engine that can hold it.
+	 *
+	 * @throws IOException
+	 * if the file can not be read, is not in the format its extension says
+	 * it is or is too big for the engine
+	 */
+	public static void load(Path file, LifeEngine engine, int numRows, int numCols) throws IOException
+	{
+		String name = file.getFileName().toString().toLowerCase();
+		if(!isPattern(name))
+		{
+			GolFile.load(file, engine, numRows, numCols);
+			return;
+		}
+		
+		try(Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8))
+		{
+			if(name.endsWith(".rle"))
+				RLE.load(in, engine, numRows, numCols);
+			else if(name.endsWith(".mc"))
+				Macrocell.load(in, engine, numRows, numCols);
+			else
+				Life106.load(in, engine, numRows, numCols);
+		}
+	}
+	
+	/**
+	 * Reads no further than it has to, so an engine that can run the rule
+	 * can be picked before the pattern is loaded.
+	 *
+	 * @return
+	 * the rule of the pattern in the file, or null if the format has none
+	 *
+	 * @throws IOException
+	 * if the file can not be read or is not in the format its extension
+	 * says it is
+	 */
+	public static String readRule(Path file) throws IOException
+	{
+		String name = file.getFileName().toString().toLowerCase();
+		if(!isPattern(name))
+			return GolFile.readRule(file);
+		if(!name.endsWith(".rle") && !name.endsWith(".mc"))
+			return null;
+		
+		try(Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8))
+		{
+			return name.endsWith(".rle") ? RLE.readRule(in) : Macrocell.readRule(in);
+		}
+	}
+	
+	/**
+	 * Resizes the engine for a pattern the size of the header, to a board
+	 * of at least numRows by numCols, and gives it the rule of the header
+	 * if it has one.
+	 *
+	 * @return
+	 * the column and row of the board the top left corner of the pattern
+	 * goes at, to center it
+	 *
+	 * @throws IOException
+	 * if the engine can not hold a board that big, or can not run the rule
+	 */
+	static Point place(LifeEngine engine, SaveableData header, int numRows, int numCols) throws IOException
+	{
+		SaveableData board = header;
+		if(numRows > header.numRows || numCols > header.numCols)
+		{
+			board = new SaveableData();
+			board.numRows = Math.max(numRows, header.numRows);
+			board.numCols = Math.max(numCols, header.numCols);
+			board.rowPad = header.rowPad;
+			board.colPad = header.colPad;
+			board.rule = header.rule;
+		}
+		
+		try
+		{
+			engine.loadSaveableData(board);
+		}
+		catch(IllegalArgumentException ex)
+		{
+			throw new IOException(ex.getMessage(), ex);
+		}
+		return new Point((board.numCols - header.numCols) / 2, (board.numRows - header.numRows) / 2);
+	}
+	
+	/**
+	 * The window of an engine that keeps every cell in an array holds the
+	 * whole pattern, but on an unbounded engine cells drift out of it, so
+	 * the part of the plane written is the window grown to hold every
+	 * living cell of the generation.
+	 *
+	 * @return
+	 * the top, left, height and width of the part of the plane to write
+	 *
+	 * @throws IOException
+	 * if cells have drifted so far out that the part of the plane has more
+	 * than Integer.MAX_VALUE cells, too many to visit one at a time, which
+	 * a macrocell written by HashLife never does
+	 */
+	static int[] extent(LifeEngine engine, Snapshot snapshot) throws IOException
+	{
+		long top = 0L;
+		long left = 0L;
+		long bottom = engine.getNumRows() - 1L;
+		long right = engine.getNumCols() - 1L;
+		long[] bounds = snapshot.getBounds();
+		if(bounds == null || bounds[0] > bounds[2] || (top <= bounds[0] && left <= bounds[1] && bounds[2] <= bottom && bounds[3] <= right))
+			return new int[] { 0, 0, engine.getNumRows(), engine.getNumCols() };
+		
+		top = Math.min(top, bounds[0]);
+		left = Math.min(left, bounds[1]);
+		bottom = Math.max(bottom, bounds[2]);
+		right = Math.max(right, bounds[3]);
+		long height = bottom - top + 1L;
+		long width = right - left + 1L;
+		if(height > Integer.MAX_VALUE || width > Integer.MAX_VALUE / height)
+			throw new IOException("Cells have drifted over " + width + " by " + height + " cells, too many to write one at a time, save as .mc from HASHLIFE");
+		return new int[] { (int) top, (int) left, (int) height, (int) width };
+	}
+	
+	/**
+	 * @return
+	 * the whole pattern in the file, cells included
+	 */
+	public static SaveableData read(Path file) throws IOException
+	{
+		LifeEngine engine = new GenerationsGrid(1, 1);
+		load(file, engine);
+		return engine.getSaveableData();
+	}
+	
+	/**
+	 * Writes the pattern of the engine, replacing the file if it already
+	 * exists. Boards are saved with the default view.
+	 */
+	public static void save(LifeEngine engine, Path file) throws IOException
+	{
+		String name = file.getFileName().toString().toLowerCase();
+		if(!isPattern(name))
+		{
+			GolFile.write(file, engine, 1, 0, 0);
+			return;
+		}
+		
+		try(Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8))
+		{
+			if(name.endsWith(".rle"))
+				RLE.write(engine, out);
+			else if(name.endsWith(".mc"))
+				Macrocell.write(engine, out);
+			else
+				Life106.write(engine, out);
+		}
+	}
+	
+	/**
+	 * @return
+	 * true if the file name ends in one of the pattern EXTENSIONS
+	 */
+	public static boolean isPattern(String name)
+	{
+		String lower = name.toLowerCase();
+		for(String extension : EXTENSIONS)
+			if(lower.endsWith("." + extension))
+				return true;
+		return false;
+	}
+}
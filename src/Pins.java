@@ -0,0 +1,80 @@
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * The generation buffers of an engine that other threads are reading, so
+ * the thread that ticks never writes a new generation into a buffer while
+ * a frame is still being painted from it. A Snapshot pins the buffer of
+ * the generation it shows until it is closed. Before every tick the engine
+ * checks whether the buffer it is about to write into is pinned, and if it
+ * is writes into a spare buffer instead, so neither side ever waits on the
+ * other.
+ *
+ * Every pin is an entry of a lock free queue, a buffer pinned twice being
+ * in it twice, so pinning, releasing and checking never take a lock. Only
+ * a few Snapshots are ever open at once, so checking is a walk of a few
+ * entries.
+ */
+public class Pins
+{
+	private final Queue<Pin> pins = new ConcurrentLinkedQueue<Pin>();
+	
+	/**
+	 * One pin of a buffer, compared by identity so two pins of the same
+	 * buffer are two entries, each removed exactly once
+	 */
+	private static class Pin
+	{
+		private final Object buffer;
+		
+		public Pin(Object buffer)
+		{
+			this.buffer = buffer;
+		}
+	}
+	
+	/**
+	 * Pins the buffer of the current generation. The buffer is read again
+	 * once it is pinned, and if the engine has moved on in between the pin
+	 * is dropped and taken again on the new one, so the engine can never
+	 * have started writing into the buffer returned.
+	 *
+	 * @param current
+	 * reads the buffer of the current generation of the engine
+	 */
+	public <T> T pin(Supplier<T> current)
+	{
+		while(true)
+		{
+			T buffer = current.get();
+			pins.add(new Pin(buffer));
+			if(current.get() == buffer)
+				return buffer;
+			release(buffer);
+		}
+	}
+	
+	/**
+	 * Drops one pin of a buffer that was pinned, exactly once for every
+	 * pin. Any pin of it will do, and there is always one left while its
+	 * pin is being released, but other threads releasing the same buffer
+	 * may take the ones this walk finds, so the walk starts over until it
+	 * has removed one.
+	 */
+	public void release(Object buffer)
+	{
+		while(true)
+			for(Pin pin : pins)
+				if(pin.buffer == buffer && pins.remove(pin))
+					return;
+	}
+	
+	public boolean isPinned(Object buffer)
+	{
+		for(Pin pin : pins)
+			if(pin.buffer == buffer)
+				return true;
+		return false;
+	}
+}
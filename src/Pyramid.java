@@ -0,0 +1,114 @@
+/**
+ * Counts of living cells in square tiles of a board, along with every
+ * coarser level made of 2 by 2 blocks of the level below it, like the mip
+ * levels of a texture. Each coarser level is summed from the one below it
+ * the first time it is asked for, and from then on kept up to date as the
+ * tiles change, so a zoomed out view looks up one count per pixel however
+ * many cells that pixel covers.
+ *
+ * Only one thread changes the counts, while any number of others read
+ * them. A level is published whole, with its size, the moment it has been
+ * summed, so a reader never needs a lock.
+ */
+public class Pyramid
+{
+	private final int tileRows;
+	private final int tileCols;
+	private volatile Level[] levels = new Level[0];
+	
+	/**
+	 * The counts of one level, and how many blocks it has each way
+	 */
+	private static class Level
+	{
+		private final int rows;
+		private final int cols;
+		private final int[] counts;
+		
+		public Level(int rows, int cols)
+		{
+			this.rows = rows;
+			this.cols = cols;
+			counts = new int[rows * cols];
+		}
+	}
+	
+	/**
+	 * Makes a pyramid of empty tiles, tileRows rows of tileCols tiles each.
+	 */
+	public Pyramid(int tileRows, int tileCols)
+	{
+		this.tileRows = tileRows;
+		this.tileCols = tileCols;
+		levels = new Level[] { new Level(tileRows, tileCols) };
+	}
+	
+	/**
+	 * @return
+	 * the living cells in the block at row and col of the given level, a
+	 * block of level n covering 2^n by 2^n tiles, or 0 if the block is
+	 * past the edge of the board
+	 */
+	public int get(int level, int row, int col)
+	{
+		Level[] levels = this.levels;
+		Level counts = level < levels.length ? levels[level] : build(level);
+		if(row < 0 || col < 0 || row >= counts.rows || col >= counts.cols)
+			return 0;
+		return counts.counts[row * counts.cols + col];
+	}
+	
+	/**
+	 * Changes the count of a tile by delta, along with every block above it
+	 * that has already been summed.
+	 */
+	public synchronized void add(int row, int col, int delta)
+	{
+		for(Level level : levels)
+		{
+			level.counts[row * level.cols + col] += delta;
+			row >>= 1;
+			col >>= 1;
+		}
+	}
+	
+	/**
+	 * Replaces the count of every tile, changing the blocks above only for
+	 * the tiles whose count changed, so a pattern that moves in a few places
+	 * costs little more than comparing the tiles.
+	 *
+	 * @param tiles
+	 * the count of every tile, tileRows rows of tileCols tiles each
+	 */
+	public synchronized void setTiles(int[] tiles)
+	{
+		int[] counts = levels[0].counts;
+		for(int i = 0; i < counts.length; i++)
+		{
+			int delta = tiles[i] - counts[i];
+			if(delta != 0)
+				add(i / tileCols, i % tileCols, delta);
+		}
+	}
+	
+	private synchronized Level build(int level)
+	{
+		Level[] built = levels;
+		if(level < built.length)
+			return built[level];
+		
+		Level[] grown = new Level[level + 1];
+		System.arraycopy(built, 0, grown, 0, built.length);
+		for(int i = built.length; i <= level; i++)
+		{
+			Level below = grown[i - 1];
+			Level counts = new Level((below.rows + 1) >> 1, (below.cols + 1) >> 1);
+			for(int row = 0; row < below.rows; row++)
+				for(int col = 0; col < below.cols; col++)
+					counts.counts[(row >> 1) * counts.cols + (col >> 1)] += below.counts[row * below.cols + col];
+			grown[i] = counts;
+		}
+		levels = grown;
+		return grown[level];
+	}
+}
@@ -0,0 +1,291 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Reads and writes patterns in the run length encoded format used by most
+ * other Life programs. A pattern is a header such as
+ *
+ * x = 3, y = 3, rule = B3/S23
+ *
+ * followed by runs of cells, where b is dead, o is alive, $ ends a row and
+ * ! ends the pattern, and any of them may be preceded by a count. Patterns
+ * of Generations rules use . for dead and A to X for states 1 to 24, with
+ * a prefix of p to y adding another 24 states for each letter past p.
+ */
+public class RLE
+{
+	private static final int LINE_LENGTH = 70;
+	
+	/**
+	 * Reads a pattern into SaveableData exactly as big as the pattern, with
+	 * its rule, which is B3/S23 if the header does not give one. Lines
+	 * starting with # are comments.
+	 * 
+	 * @throws IOException
+	 * if the pattern can not be read or is not valid RLE
+	 */
+	public static SaveableData read(Reader in) throws IOException
+	{
+		SaveableData data = readHeader(in);
+		readCells(in, data, Rows.of(data));
+		return data;
+	}
+	
+	/**
+	 * Streams a pattern straight into the engine, which is resized to fit
+	 * it, or to numRows by numCols with the pattern in the middle if that
+	 * is bigger. Only the row being read is ever held in memory, finished
+	 * rows are handed to the engine whole and empty rows are skipped.
+	 * 
+	 * @throws IOException
+	 * if the pattern can not be read, is not valid RLE or is too big for
+	 * the engine
+	 */
+	public static void load(Reader in, LifeEngine engine, int numRows, int numCols) throws IOException
+	{
+		SaveableData header = readHeader(in);
+		Point corner = Patterns.place(engine, header, numRows, numCols);
+		readCells(in, header, Rows.offset(engine, corner.y, corner.x, engine.getNumCols()));
+	}
+	
+	/**
+	 * Reads no further than the header of the pattern.
+	 *
+	 * @return
+	 * the rule of the pattern, B3/S23 if the header does not give one
+	 */
+	public static String readRule(Reader in) throws IOException
+	{
+		return readHeader(in).rule;
+	}
+	
+	/**
+	 * @return
+	 * SaveableData with the size and rule of the pattern but no cells
+	 */
+	private static SaveableData readHeader(Reader in) throws IOException
+	{
+		String header = nextHeader(in);
+		SaveableData data = new SaveableData();
+		data.rule = Rule.CONWAY.toString();
+		for(String field : header.split(","))
+		{
+			String[] pair = field.split("=");
+			if(pair.length != 2)
+				throw new IOException("Not an RLE header: " + header);
+			String key = pair[0].trim();
+			String value = pair[1].trim();
+			try
+			{
+				if(key.equals("x"))
+					data.numCols = Integer.parseInt(value);
+				else if(key.equals("y"))
+					data.numRows = Integer.parseInt(value);
+				else if(key.equals("rule"))
+					//a suffix such as :T100,100 describes a bounded plane, which is not kept
+					data.rule = Rule.parse(value.split(":")[0]).toString();
+			}
+			catch(IllegalArgumentException ex)
+			{
+				throw new IOException("Not an RLE header: " + header, ex);
+			}
+		}
+		if(data.numRows < 0 || data.numCols < 0)
+			throw new IOException("Not an RLE header: " + header);
+		return data;
+	}
+	
+	/**
+	 * Reads the runs of cells a row at a time into the rows, as states if
+	 * the rule has dying states and as words of living cells if not.
+	 */
+	private static void readCells(Reader in, SaveableData data, Rows rows) throws IOException
+	{
+		boolean multiState = Rule.parse(data.rule).getStates() > 2;
+		long[] words = multiState ? null : new long[(data.numCols + 63) >>> 6];
+		byte[] states = multiState ? new byte[data.numCols] : null;
+		boolean empty = true;
+		
+		int row = 0;
+		int col = 0;
+		long count = 0L;
+		int prefix = 0;
+		for(int c = in.read(); c != -1 && c != '!'; c = in.read())
+		{
+			//no run can be longer than the pattern is wide or high, so a
+			//count is given up on before it could ever overflow
+			if('0' <= c && c <= '9')
+			{
+				count = count * 10 + c - '0';
+				if(count > Math.max(data.numRows, data.numCols))
+					throw new IOException("Run longer than the " + data.numCols + " by " + data.numRows + " pattern in RLE");
+				continue;
+			}
+			else if('p' <= c && c <= 'y')
+			{
+				prefix = c - 'p' + 1;
+				continue;
+			}
+			
+			int run = count == 0L ? 1 : (int) count;
+			count = 0L;
+			if(c == '$')
+			{
+				if(run > data.numRows - row)
+					throw new IOException("Row outside of the " + data.numCols + " by " + data.numRows + " pattern");
+				if(!empty)
+					flush(rows, row, words, states, multiState);
+				empty = true;
+				row += run;
+				col = 0;
+			}
+			else if(c == 'b' || c == '.')
+			{
+				if(run > data.numCols - col)
+					throw new IOException("Cell outside of the " + data.numCols + " by " + data.numRows + " pattern");
+				col += run;
+			}
+			else if(c == 'o' || ('A' <= c && c <= 'X'))
+			{
+				int state = c == 'o' ? 1 : prefix * 24 + c - 'A' + 1;
+				prefix = 0;
+				if(state > 255 || (state > 1 && !multiState))
+					throw new IOException("State out of range for " + data.rule + " in RLE: " + state);
+				if(row >= data.numRows || run > data.numCols - col)
+					throw new IOException("Cell outside of the " + data.numCols + " by " + data.numRows + " pattern");
+				for(; run > 0; run--, col++)
+				{
+					if(multiState)
+						states[col] = (byte) state;
+					else
+						words[col >>> 6] |= 1L << col;
+				}
+				empty = false;
+			}
+			else if(!Character.isWhitespace(c))
+				throw new IOException("Unexpected character in RLE: " + (char) c);
+		}
+		
+		if(!empty)
+			flush(rows, row, words, states, multiState);
+	}
+	
+	/**
+	 * Hands a finished row over and clears it for the next one.
+	 */
+	private static void flush(Rows rows, int row, long[] words, byte[] states, boolean multiState)
+	{
+		if(multiState)
+		{
+			rows.setStates(row, states);
+			Arrays.fill(states, (byte) 0);
+		}
+		else
+		{
+			rows.setRow(row, words);
+			Arrays.fill(words, 0L);
+		}
+	}
+	
+	/**
+	 * @return
+	 * the first line that is not a comment, without its line terminator
+	 */
+	private static String nextHeader(Reader in) throws IOException
+	{
+		StringBuilder line = new StringBuilder();
+		for(int c = in.read(); c != -1; c = in.read())
+		{
+			if(c == '\n')
+			{
+				if(line.length() > 0 && line.charAt(0) != '#')
+					return line.toString().trim();
+				line.setLength(0);
+			}
+			else if(c != '\r')
+				line.append((char) c);
+		}
+		throw new IOException("No RLE header");
+	}
+	
+	/**
+	 * Writes every cell in the window of the engine, numRows by numCols,
+	 * grown to hold any living cells that have drifted out of it, leaving
+	 * out the dead cells at the end of each row and the empty rows at the
+	 * end of the pattern.
+	 */
+	public static void write(LifeEngine engine, Writer out) throws IOException
+	{
+		Rule rule = engine.getRule();
+		boolean multiState = rule.getStates() > 2;
+		StringBuilder line = new StringBuilder();
+		try(Snapshot snapshot = engine.snapshot())
+		{
+			int[] extent = Patterns.extent(engine, snapshot);
+			int numRows = extent[2];
+			int numCols = extent[3];
+			out.write("x = " + numCols + ", y = " + numRows + ", rule = " + rule + "\n");
+			
+			byte[] states = new byte[numCols];
+			int emptyRows = 0;
+			for(int row = 0; row < numRows; row++)
+			{
+				snapshot.getStates(extent[0] + row, extent[1], numCols, states);
+				int col = 0;
+				while(col < numCols)
+				{
+					int state = states[col] & 0xFF;
+					int run = 1;
+					while(col + run < numCols && states[col + run] == states[col])
+						run++;
+					col += run;
+					if(state == 0 && col == numCols)
+						break;
+					
+					if(emptyRows > 0)
+					{
+						append(out, line, emptyRows, "$");
+						emptyRows = 0;
+					}
+					append(out, line, run, symbolOf(state, multiState));
+				}
+				emptyRows++;
+			}
+		}
+		
+		line.append('!');
+		out.write(line.toString());
+		out.write('\n');
+		out.flush();
+	}
+	
+	private static String symbolOf(int state, boolean multiState)
+	{
+		if(!multiState)
+			return state == 0 ? "b" : "o";
+		else if(state == 0)
+			return ".";
+		else if(state <= 24)
+			return String.valueOf((char) ('A' + state - 1));
+		else
+			return String.valueOf((char) ('p' + (state - 25) / 24)) + (char) ('A' + (state - 25) % 24);
+	}
+	
+	/**
+	 * Appends a run to the line being written, starting a new line first if
+	 * the run would not fit in this one.
+	 */
+	private static void append(Writer out, StringBuilder line, int run, String symbol) throws IOException
+	{
+		String token = (run > 1 ? Integer.toString(run) : "") + symbol;
+		if(line.length() + token.length() > LINE_LENGTH)
+		{
+			out.write(line.toString());
+			out.write('\n');
+			line.setLength(0);
+		}
+		line.append(token);
+	}
+}
@@ -0,0 +1,244 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * Paints a Snapshot into the int[] raster of a BufferedImage instead of
+ * through Graphics, so a whole frame costs one drawImage. Every visible
+ * row of cells is read out of the Snapshot at once and turned into a
+ * single scanline of pixels, which is then copied down the cellSize
+ * pixel rows it covers.
+ *
+ * The image is kept between frames, so when the view has not moved only
+ * the cells in the ChangeSet of the engine need painting again.
+ *
+ * Zoomed out past one pixel per cell, every pixel stands for a square
+ * block of cells and is shaded by how many of them are alive, counted by
+ * the Snapshot where it can and cell by cell where it can not.
+ */
+public class Renderer
+{
+	private BufferedImage image;
+	private int[] pixels;
+	private int[] line;
+	private byte[] states;
+	
+	private int numRows;
+	private int numCols;
+	private int cellSize;
+	private int gap;
+	private int shiftX;
+	private int shiftY;
+	private int[] colors;
+	private int gapColor;
+	
+	private int[] counts;
+	private int[] shades;
+	
+	/**
+	 * Paints the cells of the snapshot that are on screen, with the gap
+	 * color everywhere else.
+	 *
+	 * @param changed
+	 * the index, row * numCols + col, of every cell that changed since the
+	 * last frame, or null to paint the whole frame. The whole frame is also
+	 * painted if the view is not the one the last frame was painted with.
+	 * 
+	 * @param colors
+	 * the RGB color of every state, states past the end are painted the
+	 * last color
+	 *
+	 * @return
+	 * the image, width by height, which is reused by the next frame
+	 */
+	public BufferedImage render(Snapshot snapshot, int[] changed, int numRows, int numCols, int width, int height,
+			int cellSize, int gap, int shiftX, int shiftY, int[] colors, int gapColor)
+	{
+		boolean sameView = image != null && image.getWidth() == width && image.getHeight() == height
+				&& this.numRows == numRows && this.numCols == numCols && this.cellSize == cellSize && this.gap == gap
+				&& this.shiftX == shiftX && this.shiftY == shiftY && this.colors == colors && this.gapColor == gapColor;
+		if(changed != null && sameView)
+		{
+			for(int index : changed)
+				paintCell(snapshot, index / numCols, index % numCols);
+			return image;
+		}
+		
+		this.numRows = numRows;
+		this.numCols = numCols;
+		this.cellSize = cellSize;
+		this.gap = gap;
+		this.shiftX = shiftX;
+		this.shiftY = shiftY;
+		this.colors = colors;
+		this.gapColor = gapColor;
+		resize(width, height);
+		paintAll(snapshot);
+		return image;
+	}
+	
+	/**
+	 * Paints one pixel for every block of 2^level by 2^level cells, the top
+	 * left corner of the board at shiftX and shiftY, shaded from the dead
+	 * color for an empty block to the alive color for a full one.
+	 * 
+	 * @param colors
+	 * the RGB colors of dead and living cells
+	 */
+	public BufferedImage renderDensity(Snapshot snapshot, int level, int numRows, int numCols, int width, int height,
+			int shiftX, int shiftY, int[] colors, int gapColor)
+	{
+		//the next call to render paints the whole frame
+		this.colors = null;
+		resize(width, height);
+		width = image.getWidth();
+		height = image.getHeight();
+		Arrays.fill(pixels, gapColor);
+		
+		int blockRows = ((numRows - 1) >> level) + 1;
+		int blockCols = ((numCols - 1) >> level) + 1;
+		int firstCol = Math.max(0, -shiftX);
+		int lastCol = Math.min(blockCols, width - shiftX);
+		//the last block row is at the top of the screen
+		int firstLine = Math.max(0, -shiftY);
+		int lastLine = Math.min(blockRows, height - shiftY);
+		if(firstCol >= lastCol || firstLine >= lastLine)
+			return image;
+		
+		int length = lastCol - firstCol;
+		if(counts == null || counts.length < length)
+			counts = new int[length];
+		int[] shades = shadesOf(colors[0], colors[Math.min(1, colors.length - 1)]);
+		double area = Math.pow(4.0, level);
+		
+		for(int k = firstLine; k < lastLine; k++)
+		{
+			int row = blockRows - 1 - k;
+			if(!snapshot.getCounts(level, row, firstCol, length, counts))
+				countCells(snapshot, level, row, firstCol, length, numRows, numCols);
+			
+			int offset = (k + shiftY) * width + shiftX + firstCol;
+			for(int i = 0; i < length; i++)
+			{
+				int count = counts[i];
+				pixels[offset + i] = count == 0 ? shades[0] : shades[64 + (int) (191 * Math.sqrt(Math.min(1.0, count / area)))];
+			}
+		}
+		return image;
+	}
+	
+	/**
+	 * Counts the living cells of a row of blocks a row of cells at a time,
+	 * for snapshots that can not count them any faster.
+	 */
+	private void countCells(Snapshot snapshot, int level, int row, int firstCol, int length, int numRows, int numCols)
+	{
+		Arrays.fill(counts, 0, length, 0);
+		int col = firstCol << level;
+		int cells = Math.min(numCols, (firstCol + length) << level) - col;
+		if(states.length < cells)
+			states = new byte[cells];
+		
+		int lastRow = Math.min(numRows, (row + 1) << level);
+		for(int r = row << level; r < lastRow; r++)
+		{
+			snapshot.getStates(r, col, cells, states);
+			for(int i = 0; i < cells; i++)
+				if(states[i] == 1)
+					counts[i >> level]++;
+		}
+	}
+	
+	/**
+	 * @return
+	 * 256 shades from the dead color to the alive color, the square root
+	 * of the density picks the shade, and any block with a living cell in
+	 * it is at least a quarter of the way along so it stays visible
+	 */
+	private int[] shadesOf(int dead, int alive)
+	{
+		if(shades != null && shades[0] == dead && shades[255] == alive)
+			return shades;
+		
+		shades = new int[256];
+		for(int i = 0; i < 256; i++)
+		{
+			int red = ((dead >> 16) & 0xFF) + (((alive >> 16) & 0xFF) - ((dead >> 16) & 0xFF)) * i / 255;
+			int green = ((dead >> 8) & 0xFF) + (((alive >> 8) & 0xFF) - ((dead >> 8) & 0xFF)) * i / 255;
+			int blue = (dead & 0xFF) + ((alive & 0xFF) - (dead & 0xFF)) * i / 255;
+			shades[i] = 0xFF000000 | (red << 16) | (green << 8) | blue;
+		}
+		return shades;
+	}
+	
+	private void paintAll(Snapshot snapshot)
+	{
+		int width = image.getWidth();
+		int height = image.getHeight();
+		Arrays.fill(pixels, gapColor);
+		
+		int pitch = cellSize + gap;
+		int firstCol = Math.max(0, Math.floorDiv(-shiftX, pitch));
+		int lastCol = Math.min(numCols, Math.floorDiv(width - 1 - shiftX, pitch) + 1);
+		//rows are painted bottom up, the last row is at the top of the screen
+		int firstLine = Math.max(0, Math.floorDiv(-shiftY, pitch));
+		int lastLine = Math.min(numRows, Math.floorDiv(height - 1 - shiftY, pitch) + 1);
+		if(firstCol >= lastCol || firstLine >= lastLine)
+			return;
+		
+		int length = lastCol - firstCol;
+		if(states.length < length)
+			states = new byte[length];
+		Arrays.fill(line, gapColor);
+		
+		for(int k = firstLine; k < lastLine; k++)
+		{
+			snapshot.getStates(numRows - 1 - k, firstCol, length, states);
+			for(int i = 0; i < length; i++)
+			{
+				int x = (firstCol + i) * pitch + shiftX;
+				Arrays.fill(line, Math.max(0, x), Math.min(width, x + cellSize), colorOf(states[i] & 0xFF));
+			}
+			
+			int y = k * pitch + shiftY;
+			for(int py = Math.max(0, y); py < Math.min(height, y + cellSize); py++)
+				System.arraycopy(line, 0, pixels, py * width, width);
+		}
+	}
+	
+	/**
+	 * Paints a single cell over the last frame, if it is on screen.
+	 */
+	private void paintCell(Snapshot snapshot, int row, int col)
+	{
+		int width = image.getWidth();
+		int height = image.getHeight();
+		int pitch = cellSize + gap;
+		int x = col * pitch + shiftX;
+		int y = (numRows - 1 - row) * pitch + shiftY;
+		int left = Math.max(0, x);
+		int right = Math.min(width, x + cellSize);
+		if(left >= right || y >= height || y + cellSize <= 0)
+			return;
+		
+		int color = colorOf(snapshot.getState(row, col));
+		for(int py = Math.max(0, y); py < Math.min(height, y + cellSize); py++)
+			Arrays.fill(pixels, py * width + left, py * width + right, color);
+	}
+	
+	private int colorOf(int state)
+	{
+		return colors[Math.min(state, colors.length - 1)];
+	}
+	
+	private void resize(int width, int height)
+	{
+		if(image != null && image.getWidth() == width && image.getHeight() == height)
+			return;
+		
+		image = new BufferedImage(Math.max(1, width), Math.max(1, height), BufferedImage.TYPE_INT_RGB);
+		pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		line = new int[image.getWidth()];
+		states = new byte[image.getWidth()];
+	}
+}
@@ -0,0 +1,91 @@
+import java.util.Arrays;
+
+/**
+ * Somewhere whole rows of cells can be written, either an engine or the
+ * arrays of SaveableData, so the readers of every file format can fill
+ * either one a row at a time.
+ */
+public interface Rows
+{
+	/**
+	 * Sets a whole row at once, 64 cells to a word with the first column in
+	 * the lowest bit of the first word.
+	 */
+	public void setRow(int row, long[] words);
+	
+	/**
+	 * Sets the state of every cell in a row at once, for boards under
+	 * Generations rules.
+	 */
+	public void setStates(int row, byte[] states);
+	
+	/**
+	 * @return
+	 * rows that write the rows of a pattern into a board numCols wide with
+	 * the top left corner of the pattern at the given row and column, so a
+	 * pattern can be read straight into the middle of a bigger board
+	 */
+	public static Rows offset(Rows board, int top, int left, int numCols)
+	{
+		if(top == 0 && left == 0)
+			return board;
+		
+		return new Rows()
+		{
+			private long[] wide;
+			private byte[] wideStates;
+			
+			public void setRow(int row, long[] words)
+			{
+				if(wide == null)
+					wide = new long[(numCols + 63) >>> 6];
+				Arrays.fill(wide, 0L);
+				int first = left >>> 6;
+				int shift = left & 63;
+				for(int i = 0; i < words.length && first + i < wide.length; i++)
+				{
+					wide[first + i] |= words[i] << shift;
+					if(shift != 0 && first + i + 1 < wide.length)
+						wide[first + i + 1] |= words[i] >>> (64 - shift);
+				}
+				board.setRow(top + row, wide);
+			}
+			
+			public void setStates(int row, byte[] states)
+			{
+				if(wideStates == null)
+					wideStates = new byte[numCols];
+				Arrays.fill(wideStates, (byte) 0);
+				System.arraycopy(states, 0, wideStates, left, Math.min(states.length, numCols - left));
+				board.setStates(top + row, wideStates);
+			}
+		};
+	}
+	
+	/**
+	 * @return
+	 * the rows of the SaveableData, whose alive array is allocated here
+	 * and whose states array is only allocated once a row of states is set
+	 */
+	public static Rows of(SaveableData data)
+	{
+		data.alive = new boolean[data.numRows][data.numCols];
+		return new Rows()
+		{
+			public void setRow(int row, long[] words)
+			{
+				for(int col = 0; col < data.numCols; col++)
+					data.alive[row][col] = ((words[col >>> 6] >>> col) & 1L) != 0L;
+			}
+			
+			public void setStates(int row, byte[] states)
+			{
+				if(data.states == null)
+					data.states = new byte[data.numRows][data.numCols];
+				System.arraycopy(states, 0, data.states[row], 0, data.numCols);
+				for(int col = 0; col < data.numCols; col++)
+					data.alive[row][col] = states[col] == 1;
+			}
+		};
+	}
+}
@@ -0,0 +1,212 @@
+/**
+ * An outer totalistic rule written in B/S notation, such as B3/S23 for
+ * Conway's Game of Life or B36/S23 for HighLife. The rule is parsed once
+ * into a transition table indexed by the status of a cell and its number
+ * of living neighbors, so engines pay one array lookup per cell no matter
+ * which rule is running.
+ * 
+ * Rules of the Generations family add a third part giving the number of
+ * states, such as B2/S/C3 for Brian's Brain. State 0 is dead and state 1
+ * is alive, a living cell that does not survive moves to state 2 and then
+ * decays one state per generation until it wraps back around to dead.
+ * Only living cells count as neighbors.
+ */
+public class Rule
+{
+	public static final Rule CONWAY = parse("B3/S23");
+	
+	private String notation;
+	private int births;
+	private int survivals;
+	private int states;
+	private boolean[] table;
+	private byte[] transitions;
+	
+	private Rule(int births, int survivals, int states)
+	{
+		this.births = births;
+		this.survivals = survivals;
+		this.states = states;
+		
+		table = new boolean[18];
+		for(int count = 0; count <= 8; count++)
+		{
+			table[count] = isBirth(count);
+			table[9 + count] = isSurvival(count);
+		}
+		
+		transitions = new byte[states * 9];
+		for(int count = 0; count <= 8; count++)
+		{
+			transitions[count] = (byte) (isBirth(count) ? 1 : 0);
+			transitions[9 + count] = (byte) (isSurvival(count) ? 1 : (2 % states));
+			for(int state = 2; state < states; state++)
+				transitions[state * 9 + count] = (byte) ((state + 1) % states);
+		}
+		
+		notation = "B" + digits(births) + "/S" + digits(survivals);
+		if(states > 2)
+			notation += "/C" + states;
+	}
+	
+	private static String digits(int counts)
+	{
+		String digits = "";
+		for(int count = 0; count <= 8; count++)
+			if((counts & (1 << count)) != 0)
+				digits += count;
+		return digits;
+	}
+	
+	/**
+	 * Parses a rule written as B3/S23, in either case and any order, or in
+	 * the older S/B form 23/3. Generations rules are written B2/S/C3 or in
+	 * the older S/B/C form /2/3.
+	 *
+	 * @throws IllegalArgumentException
+	 * if the notation is not a valid rule
+	 */
+	public static Rule parse(String notation)
+	{
+		String[] parts = notation.trim().toUpperCase().split("/", -1);
+		if(parts.length != 2 && parts.length != 3)
+			throw new IllegalArgumentException("Not a B/S rule: " + notation);
+		
+		int births = 0;
+		int survivals = 0;
+		int states = 2;
+		if(parts[0].startsWith("B") || parts[0].startsWith("S"))
+		{
+			for(String part : parts)
+			{
+				if(part.startsWith("B"))
+					births = parseCounts(part.substring(1), notation);
+				else if(part.startsWith("S"))
+					survivals = parseCounts(part.substring(1), notation);
+				else if(part.startsWith("C") || part.startsWith("G"))
+					states = parseStates(part.substring(1), notation);
+				else
+					throw new IllegalArgumentException("Not a B/S rule: " + notation);
+			}
+		}
+		else
+		{
+			survivals = parseCounts(parts[0], notation);
+			births = parseCounts(parts[1], notation);
+			if(parts.length == 3)
+				states = parseStates(parts[2], notation);
+		}
+		
+		return new Rule(births, survivals, states);
+	}
+	
+	private static int parseStates(String digits, String notation)
+	{
+		try
+		{
+			int states = Integer.parseInt(digits);
+			if(states >= 2 && states <= 256)
+				return states;
+		}
+		catch(NumberFormatException ex)
+		{
+			
+		}
+		throw new IllegalArgumentException("Not a B/S rule: " + notation);
+	}
+	
+	private static int parseCounts(String digits, String notation)
+	{
+		int counts = 0;
+		for(char c : digits.toCharArray())
+		{
+			if(c < '0' || c > '8')
+				throw new IllegalArgumentException("Not a B/S rule: " + notation);
+			counts |= 1 << (c - '0');
+		}
+		return counts;
+	}
+	
+	/**
+	 * @return
+	 * the transition table, the status of a dead cell with n living
+	 * neighbors is at index n and that of a living one at index 9 + n
+	 */
+	public boolean[] getTable()
+	{
+		return table.clone();
+	}
+	
+	/**
+	 * @return
+	 * the transition table for every state, the next state of a cell in
+	 * state s with n living neighbors is at index s * 9 + n
+	 */
+	public byte[] getTransitions()
+	{
+		return transitions.clone();
+	}
+	
+	/**
+	 * @return
+	 * the number of states a cell can be in, 2 for everything but the
+	 * Generations family
+	 */
+	public int getStates()
+	{
+		return states;
+	}
+	
+	public boolean next(boolean status, int numLivingNeighbors)
+	{
+		return table[(status ? 9 : 0) + numLivingNeighbors];
+	}
+	
+	public boolean isBirth(int numLivingNeighbors)
+	{
+		return (births & (1 << numLivingNeighbors)) != 0;
+	}
+	
+	public boolean isSurvival(int numLivingNeighbors)
+	{
+		return (survivals & (1 << numLivingNeighbors)) != 0;
+	}
+	
+	/**
+	 * @return
+	 * a bit set of every neighbor count that brings a dead cell to life
+	 */
+	public int getBirths()
+	{
+		return births;
+	}
+	
+	/**
+	 * @return
+	 * a bit set of every neighbor count that keeps a living cell alive
+	 */
+	public int getSurvivals()
+	{
+		return survivals;
+	}
+	
+	public boolean equals(Object obj)
+	{
+		if(this == obj)
+			return true;
+		else if(obj instanceof Rule)
+			return ((Rule) obj).births == births && ((Rule) obj).survivals == survivals && ((Rule) obj).states == states;
+		else
+			return false;
+	}
+	
+	public int hashCode()
+	{
+		return (states * 512 + births) * 512 + survivals;
+	}
+	
+	public String toString()
+	{
+		return notation;
+	}
+}
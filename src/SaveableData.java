@@ -1,15 +1,17 @@
-import java.io.Serializable;
-
-public class SaveableData implements Serializable
-{
-	private static final long serialVersionUID = 3034086311795590653L;
-	
-	public boolean[][] alive;
-	public int numRows;
-	public int numCols;
-	public int rowPad;
-	public int colPad;
-	public int cellSize;
-	public int shiftX;
-	public int shiftY;
-}
+import java.io.Serializable;
+
+public class SaveableData implements Serializable
+{
+	private static final long serialVersionUID = 3034086311795590653L;
+	
+	public boolean[][] alive;
+	public int numRows;
+	public int numCols;
+	public int rowPad;
+	public int colPad;
+	public String rule;
+	public byte[][] states;
+	public int cellSize;
+	public int shiftX;
+	public int shiftY;
+}
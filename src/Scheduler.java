@@ -0,0 +1,215 @@
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs the simulation and the repainting of the view on threads of their
+ * own, so neither ever waits on the other. The simulation steps as fast as
+ * it can, or on a fixed period when given one, and after every step asks
+ * for a frame. The frames are paced on their own clock, at most one per
+ * frame period however many steps were taken since the last one, so the
+ * view always shows the latest generation and skips the ones in between.
+ *
+ * Work that has to happen between generations, such as making the edits
+ * the view has queued, is done by the simulation thread before every step
+ * and whenever it is woken, playing or not. Anything else that changes the
+ * board, such as loading a file, swapping the engine or moving through the
+ * history, is handed to that thread with invoke, so only that thread ever
+ * changes the board, paused or not.
+ *
+ * A thread with nothing to do parks until it is woken, a paused simulation
+ * or a board that has not changed costs no CPU at all.
+ */
+public class Scheduler
+{
+	private final BooleanSupplier step;
+	private final BooleanSupplier boundary;
+	private final Runnable frame;
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+	private final long framePeriod;
+	private volatile long stepPeriod;
+	private volatile boolean running;
+	private volatile boolean frameWanted;
+	private final Thread simulation;
+	private final Thread render;
+	
+	/**
+	 * @param step
+	 * advances the simulation one step, returning false to pause it
+	 *
+	 * @param boundary
+	 * does the work due between generations, returning true if it changed
+	 * the board and a frame should be painted
+	 *
+	 * @param frame
+	 * asks for the view to be painted, it is called from the render thread
+	 * and should only hand the painting off, as Component.repaint does
+	 *
+	 * @param stepPeriod
+	 * the nanoseconds from the start of one step to the start of the next,
+	 * or 0 to step as fast as possible
+	 *
+	 * @param framePeriod
+	 * the fewest nanoseconds between two frames
+	 */
+	public Scheduler(BooleanSupplier step, BooleanSupplier boundary, Runnable frame, long stepPeriod, long framePeriod)
+	{
+		this.step = step;
+		this.boundary = boundary;
+		this.frame = frame;
+		this.stepPeriod = stepPeriod;
+		this.framePeriod = framePeriod;
+		simulation = new Thread(this::simulate, "Simulation");
+		simulation.setDaemon(true);
+		render = new Thread(this::render, "Render");
+		render.setDaemon(true);
+	}
+	
+	public void start()
+	{
+		simulation.start();
+		render.start();
+	}
+	
+	/**
+	 * Starts stepping. A step still being taken when the simulation was
+	 * last paused is finished first.
+	 */
+	public void play()
+	{
+		running = true;
+		LockSupport.unpark(simulation);
+	}
+	
+	/**
+	 * Stops stepping once the step being taken, if any, is finished.
+	 */
+	public void pause()
+	{
+		running = false;
+		LockSupport.unpark(simulation);
+	}
+	
+	public boolean isPlaying()
+	{
+		return running;
+	}
+	
+	/**
+	 * @param stepPeriod
+	 * the nanoseconds from the start of one step to the start of the next,
+	 * or 0 to step as fast as possible
+	 */
+	public void setStepPeriod(long stepPeriod)
+	{
+		this.stepPeriod = stepPeriod;
+		LockSupport.unpark(simulation);
+	}
+	
+	/**
+	 * Has the simulation thread do the work due between generations as
+	 * soon as the step being taken, if any, is finished.
+	 */
+	public void wake()
+	{
+		LockSupport.unpark(simulation);
+	}
+	
+	/**
+	 * Has the simulation thread run a task between generations, after the
+	 * step being taken, if any, is finished and the work due between
+	 * generations is done. Tasks run in the order they were handed over,
+	 * and a task handed over before play is called runs before the first
+	 * step. A frame is painted after them.
+	 */
+	public void invoke(Runnable task)
+	{
+		tasks.add(task);
+		LockSupport.unpark(simulation);
+	}
+	
+	/**
+	 * Asks for a frame, painted no sooner than a frame period after the
+	 * last one. Any number of requests before then make a single frame.
+	 */
+	public void requestFrame()
+	{
+		frameWanted = true;
+		LockSupport.unpark(render);
+	}
+	
+	private void simulate()
+	{
+		long deadline = System.nanoTime();
+		while(true)
+		{
+			boundary();
+			if(!running)
+			{
+				LockSupport.park(this);
+				deadline = System.nanoTime();
+				continue;
+			}
+			//tasks handed over just before play run before the step
+			if(!tasks.isEmpty())
+				continue;
+			
+			if(!step.getAsBoolean())
+				running = false;
+			requestFrame();
+			
+			//a step that ran late moves the schedule along rather than
+			//being made up for with a burst of steps
+			long period = stepPeriod;
+			long now = System.nanoTime();
+			deadline = period > 0L && now - deadline < period ? deadline + period : now;
+			for(long wait = deadline - now; wait > 0L && running && stepPeriod == period; wait = deadline - System.nanoTime())
+			{
+				LockSupport.parkNanos(this, wait);
+				boundary();
+			}
+		}
+	}
+	
+	/**
+	 * Does the work due between generations and runs the tasks handed
+	 * over, asking for a frame if either changed the board.
+	 */
+	private void boundary()
+	{
+		boolean changed = boundary.getAsBoolean();
+		for(Runnable task = tasks.poll(); task != null; task = tasks.poll())
+		{
+			try
+			{
+				task.run();
+			}
+			catch(RuntimeException ex)
+			{
+				ex.printStackTrace();
+			}
+			changed = true;
+		}
+		if(changed)
+			requestFrame();
+	}
+	
+	private void render()
+	{
+		while(true)
+		{
+			if(!frameWanted)
+			{
+				LockSupport.park(this);
+				continue;
+			}
+			
+			frameWanted = false;
+			long deadline = System.nanoTime() + framePeriod;
+			frame.run();
+			for(long wait = framePeriod; wait > 0L; wait = deadline - System.nanoTime())
+				LockSupport.parkNanos(this, wait);
+		}
+	}
+}
@@ -0,0 +1,70 @@
+/**
+ * A read only view of one completed generation of a model. Painting a
+ * whole frame from a Snapshot never mixes cells from two generations, even
+ * while the simulation thread is computing the next ones. Engines that
+ * reuse their generation buffers keep the buffer of an open Snapshot out
+ * of use until it is closed, so a Snapshot should be closed, exactly once,
+ * as soon as it has been read, best with try with resources.
+ */
+public interface Snapshot extends AutoCloseable
+{
+	public boolean getStatus(int row, int col);
+	
+	/**
+	 * Lets the engine write into the buffer of this generation again.
+	 */
+	public default void close()
+	{
+	}
+	
+	/**
+	 * @return
+	 * the state of the cell under a Generations rule, 0 for dead, 1 for
+	 * alive and anything higher for dying
+	 */
+	public default int getState(int row, int col)
+	{
+		return getStatus(row, col) ? 1 : 0;
+	}
+	
+	/**
+	 * Copies the states of length cells of a row out at once, starting at
+	 * col, so a frame can be painted a row at a time. Engines that keep
+	 * their cells in arrays override it with a straight walk of the row.
+	 */
+	public default void getStates(int row, int col, int length, byte[] states)
+	{
+		for(int i = 0; i < length; i++)
+			states[i] = (byte) getState(row, col + i);
+	}
+	
+	/**
+	 * Only engines whose cells can drift out of their window, onto an
+	 * unbounded plane, override this.
+	 * 
+	 * @return
+	 * the top, left, bottom and right of the living cells, all inclusive
+	 * and the top greater than the bottom once everything has died, or
+	 * null if every living cell is always within the window
+	 */
+	public default long[] getBounds()
+	{
+		return null;
+	}
+	
+	/**
+	 * Counts the living cells in a row of square blocks 2^level cells on a
+	 * side, the block at row and col covering rows row * 2^level up to
+	 * (row + 1) * 2^level and the same columns, so a zoomed out view can
+	 * shade every pixel by how crowded its block is. Blocks past the edge
+	 * of the board count as empty.
+	 * 
+	 * @return
+	 * false if counting blocks here would be no faster than reading every
+	 * cell with getStates, in which case counts is left alone
+	 */
+	public default boolean getCounts(int level, int row, int col, int length, int[] counts)
+	{
+		return false;
+	}
+}
@@ -0,0 +1,438 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runs random soups one after another on the same pooled boards and counts
+ * the objects each one settles into. Every worker thread of a Census keeps
+ * its own Soup, so once the boards, the scratch arrays and the cache of
+ * object codes are warm a soup allocates next to nothing.
+ *
+ * A soup is a square of random cells in the middle of a larger BitGrid. It
+ * is run until the population has been periodic for long enough, then the
+ * board is split into clusters of cells no more than two apart and each
+ * cluster is run again on its own to find out what it is. Spaceships that
+ * reach the edge of the board are counted and removed before they can
+ * crash into it.
+ */
+public class Soup
+{
+	/**
+	 * The code of clusters that are not periodic on their own, usually two
+	 * objects close enough to still be interacting.
+	 */
+	public static final String UNKNOWN = "unknown";
+	
+	/**
+	 * The code of clusters too large to be run on their own.
+	 */
+	public static final String OVERSIZED = "oversized";
+	
+	private static final int ISOLATION_SIZE = 64;
+	private static final int ISOLATION_PAD = 16;
+	private static final int MARGIN = 8;
+	private static final int HARVEST_INTERVAL = 8;
+	private static final int CHECK_INTERVAL = 32;
+	private static final int CACHE_LIMIT = 1 << 16;
+	
+	private int size;
+	private int soupSize;
+	private int maxPeriod;
+	private int maxGenerations;
+	private int window;
+	
+	private BitGrid board;
+	private BitGrid isolation;
+	
+	private long[] populations;
+	private int historyMask;
+	
+	private boolean[] visited;
+	private int[] marked;
+	private int markedSize;
+	private int[] stack;
+	private int[] cluster;
+	private int clusterSize;
+	private int minRow;
+	private int minCol;
+	private int maxRow;
+	private int maxCol;
+	private int[] bounds = new int[4];
+	
+	private Map<Long, String> codes = new HashMap<Long, String>();
+	private Map<String, long[]> tally = new HashMap<String, long[]>();
+	private long soups;
+	private long unstable;
+	private long generations;
+	
+	/**
+	 * @param size
+	 * the height and width of the board
+	 * @param soupSize
+	 * the height and width of the random square in the middle of it
+	 * @param maxPeriod
+	 * the longest period of the population that counts as settled, and of
+	 * any object that can be recognized
+	 * @param maxGenerations
+	 * how long a soup may run before it is given up on and counted as it is
+	 */
+	public Soup(int size, int soupSize, int maxPeriod, int maxGenerations)
+	{
+		this.size = size;
+		this.soupSize = soupSize;
+		this.maxPeriod = maxPeriod;
+		this.maxGenerations = maxGenerations;
+		window = 4 * maxPeriod;
+		
+		board = new BitGrid(size, size);
+		isolation = new BitGrid(ISOLATION_SIZE, ISOLATION_SIZE);
+		
+		int history = Integer.highestOneBit(window + maxPeriod) << 1;
+		populations = new long[history];
+		historyMask = history - 1;
+		
+		visited = new boolean[size * size];
+		marked = new int[size * size];
+		stack = new int[size * size];
+		cluster = new int[size * size];
+	}
+	
+	/**
+	 * Runs the soup grown from the given seed and adds its objects to the
+	 * tally of this Soup.
+	 */
+	public void run(long seed)
+	{
+		board.clear();
+		long random = mix(seed);
+		int corner = (size - soupSize) / 2;
+		for(int row = 0; row < soupSize; row++)
+		{
+			for(int col = 0; col < soupSize; col += 64)
+			{
+				random += 0x9E3779B97F4A7C15L;
+				long bits = mix(random);
+				for(int bit = 0; bit < 64 && col + bit < soupSize; bit++)
+					if(((bits >>> bit) & 1L) != 0L)
+						board.setStatus(corner + row, corner + col + bit, Grid.ALIVE);
+			}
+		}
+		
+		boolean settled = false;
+		int historyStart = 0;
+		int generation;
+		for(generation = 1; generation <= maxGenerations && !settled; generation++)
+		{
+			board.tick();
+			populations[generation & historyMask] = board.getPopulation();
+			
+			if(generation % HARVEST_INTERVAL == 0 && harvestSpaceships())
+				historyStart = generation;
+			if(generation % CHECK_INTERVAL == 0 && generation - historyStart > window + maxPeriod)
+				settled = isPeriodic(generation);
+		}
+		
+		soups++;
+		generations += generation - 1;
+		if(!settled)
+			unstable++;
+		countObjects();
+	}
+	
+	/**
+	 * The SplitMix64 finalizer, which turns consecutive seeds into
+	 * unrelated random words.
+	 */
+	private static long mix(long z)
+	{
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+	
+	/**
+	 * @return
+	 * whether the population over the last window generations repeats with
+	 * some period no longer than maxPeriod
+	 */
+	private boolean isPeriodic(int generation)
+	{
+		for(int period = 1; period <= maxPeriod; period++)
+		{
+			boolean periodic = true;
+			for(int i = 0; i < window && periodic; i++)
+				periodic = populations[(generation - i) & historyMask] == populations[(generation - i - period) & historyMask];
+			if(periodic)
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Counts and erases every spaceship with a cell within MARGIN of the
+	 * edge of the board.
+	 *
+	 * @return
+	 * whether anything was erased
+	 */
+	private boolean harvestSpaceships()
+	{
+		if(!board.getBounds(bounds) || (bounds[0] >= MARGIN && bounds[1] >= MARGIN
+				&& bounds[2] < size - MARGIN && bounds[3] < size - MARGIN))
+			return false;
+		
+		boolean harvested = false;
+		for(int row = 0; row < size; row++)
+		{
+			boolean band = row < MARGIN || row >= size - MARGIN;
+			for(int col = 0; col < size; col = band || col < MARGIN - 1 || col >= size - MARGIN ? col + 1 : size - MARGIN)
+			{
+				if(visited[row * size + col] || !board.getStatus(row, col))
+					continue;
+				
+				gather(row, col);
+				String code = classify();
+				if(code.startsWith(ObjectCode.SPACESHIP))
+				{
+					count(code);
+					for(int i = 0; i < clusterSize; i++)
+					{
+						board.setStatus(cluster[i] / size, cluster[i] % size, Grid.DEAD);
+						visited[cluster[i]] = false;
+					}
+					harvested = true;
+				}
+			}
+		}
+		clearVisited();
+		return harvested;
+	}
+	
+	private void countObjects()
+	{
+		for(int row = 0; row < size; row++)
+		{
+			for(int col = 0; col < size; col++)
+			{
+				if(!visited[row * size + col] && board.getStatus(row, col))
+				{
+					gather(row, col);
+					count(classify());
+				}
+			}
+		}
+		clearVisited();
+	}
+	
+	private void count(String code)
+	{
+		long[] count = tally.get(code);
+		if(count == null)
+			tally.put(code, new long[] { 1L });
+		else
+			count[0]++;
+	}
+	
+	/**
+	 * Collects the living cells within two cells of each other, starting
+	 * from the given one, into cluster and marks them visited.
+	 */
+	private void gather(int row, int col)
+	{
+		clusterSize = 0;
+		minRow = maxRow = row;
+		minCol = maxCol = col;
+		
+		int top = 0;
+		stack[top++] = row * size + col;
+		visited[row * size + col] = true;
+		while(top > 0)
+		{
+			int index = stack[--top];
+			cluster[clusterSize++] = index;
+			marked[markedSize++] = index;
+			int r = index / size;
+			int c = index % size;
+			minRow = Math.min(minRow, r);
+			maxRow = Math.max(maxRow, r);
+			minCol = Math.min(minCol, c);
+			maxCol = Math.max(maxCol, c);
+			
+			for(int i = Math.max(0, r - 2); i <= Math.min(size - 1, r + 2); i++)
+			{
+				for(int j = Math.max(0, c - 2); j <= Math.min(size - 1, c + 2); j++)
+				{
+					if(!visited[i * size + j] && board.getStatus(i, j))
+					{
+						visited[i * size + j] = true;
+						stack[top++] = i * size + j;
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Unmarks every cell marked by gather since the last time.
+	 */
+	private void clearVisited()
+	{
+		for(int i = 0; i < markedSize; i++)
+			visited[marked[i]] = false;
+		markedSize = 0;
+	}
+	
+	/**
+	 * Looks the cluster up in the cache before running it. A cluster that
+	 * fits in an 8 by 8 square is keyed by its cells exactly, a larger one
+	 * by a hash of its cells, where a collision is vanishingly unlikely.
+	 * Larger clusters are only cached once recognized, so the debris of
+	 * unsettled soups does not fill the cache.
+	 *
+	 * @return
+	 * the code of the cluster
+	 */
+	private String classify()
+	{
+		int height = maxRow - minRow + 1;
+		int width = maxCol - minCol + 1;
+		boolean small = height <= 8 && width <= 8;
+		
+		long key = 0L;
+		for(int i = 0; i < clusterSize; i++)
+		{
+			int row = cluster[i] / size - minRow;
+			int col = cluster[i] % size - minCol;
+			if(small)
+				key |= 1L << ((row << 3) | col);
+			else
+				key += mix(((long) row << 32) | col);
+		}
+		if(!small)
+			key ^= mix(((long) height << 32) | width);
+		
+		String code = codes.get(key);
+		if(code == null)
+		{
+			code = identify(height, width);
+			if(small || (code != UNKNOWN && code != OVERSIZED))
+			{
+				if(codes.size() >= CACHE_LIMIT)
+					codes.clear();
+				codes.put(key, code);
+			}
+		}
+		return code;
+	}
+	
+	/**
+	 * Runs the cluster on its own until it comes back to the same cells,
+	 * possibly somewhere else, and names it from every phase it went
+	 * through.
+	 */
+	private String identify(int height, int width)
+	{
+		if(height > ISOLATION_SIZE - 2 * ISOLATION_PAD || width > ISOLATION_SIZE - 2 * ISOLATION_PAD)
+			return OVERSIZED;
+		
+		isolate();
+		int period = 0;
+		for(int generation = 1; generation <= maxPeriod && period == 0; generation++)
+		{
+			isolation.tick();
+			if(!boundsOf(bounds))
+				return UNKNOWN;
+			if(isolation.getPopulation() == clusterSize && bounds[2] - bounds[0] + 1 == height
+					&& bounds[3] - bounds[1] + 1 == width && matches(bounds[0], bounds[1]))
+				period = generation;
+		}
+		if(period == 0)
+			return UNKNOWN;
+		
+		String prefix;
+		if(bounds[0] != ISOLATION_PAD || bounds[1] != ISOLATION_PAD)
+			prefix = ObjectCode.SPACESHIP + period;
+		else if(period > 1)
+			prefix = ObjectCode.OSCILLATOR + period;
+		else
+			prefix = ObjectCode.STILL_LIFE + clusterSize;
+		
+		isolate();
+		boolean[][][] phases = new boolean[period][][];
+		for(int phase = 0; phase < period; phase++)
+		{
+			boundsOf(bounds);
+			phases[phase] = new boolean[bounds[2] - bounds[0] + 1][bounds[3] - bounds[1] + 1];
+			for(int row = bounds[0]; row <= bounds[2]; row++)
+				for(int col = bounds[1]; col <= bounds[3]; col++)
+					phases[phase][row - bounds[0]][col - bounds[1]] = isolation.getStatus(row, col);
+			isolation.tick();
+		}
+		return ObjectCode.of(prefix, phases);
+	}
+	
+	/**
+	 * Copies the cluster onto the empty isolation board, with its top left
+	 * corner ISOLATION_PAD cells in from the edges.
+	 */
+	private void isolate()
+	{
+		isolation.clear();
+		for(int i = 0; i < clusterSize; i++)
+			isolation.setStatus(cluster[i] / size - minRow + ISOLATION_PAD, cluster[i] % size - minCol + ISOLATION_PAD, Grid.ALIVE);
+	}
+	
+	/**
+	 * Finds the top, left, bottom and right of the living cells on the
+	 * isolation board.
+	 *
+	 * @return
+	 * false if the board is empty or the cells have reached its edge, where
+	 * they no longer behave as they would on an open plane
+	 */
+	private boolean boundsOf(int[] bounds)
+	{
+		return isolation.getBounds(bounds) && bounds[0] > 0 && bounds[1] > 0
+				&& bounds[2] < ISOLATION_SIZE - 1 && bounds[3] < ISOLATION_SIZE - 1;
+	}
+	
+	/**
+	 * @return
+	 * whether every cell of the cluster is alive on the isolation board
+	 * when its top left corner is moved to the given row and column
+	 */
+	private boolean matches(int top, int left)
+	{
+		for(int i = 0; i < clusterSize; i++)
+			if(!isolation.getStatus(cluster[i] / size - minRow + top, cluster[i] % size - minCol + left))
+				return false;
+		return true;
+	}
+	
+	/**
+	 * @return
+	 * how many of each object have been counted, by code
+	 */
+	public Map<String, long[]> getTally()
+	{
+		return tally;
+	}
+	
+	public long getSoups()
+	{
+		return soups;
+	}
+	
+	/**
+	 * @return
+	 * how many soups were still not periodic after maxGenerations
+	 */
+	public long getUnstable()
+	{
+		return unstable;
+	}
+	
+	public long getGenerations()
+	{
+		return generations;
+	}
+}
@@ -0,0 +1,300 @@
+/**
+ * A model of an unbounded plane that only stores the living cells, so
+ * gliders and guns never run into an edge and memory follows the size of
+ * the pattern instead of the size of the board. The living cells are kept
+ * in a CellTable, and every generation the neighbors of each living cell
+ * are counted into a second CellTable.
+ *
+ * Rows and columns outside of the window reported by getNumRows and
+ * getNumCols are still simulated.
+ */
+public class SparseGrid implements LifeEngine
+{
+	private int numRows;
+	private int numCols;
+	
+	private volatile CellTable current;
+	private CellTable next;
+	private CellTable spare;
+	private final Pins pins = new Pins();
+	private CellTable counts;
+	private long hash;
+	private Rule rule;
+	private volatile Statistics statistics;
+	private final Statistics.Tally tally = new Statistics.Tally();
+	
+	public SparseGrid(int numRows, int numCols)
+	{
+		this.numRows = numRows;
+		this.numCols = numCols;
+		current = new CellTable();
+		next = new CellTable();
+		hash = 0L;
+		counts = new CellTable();
+		rule = Rule.CONWAY;
+	}
+	
+	public Rule getRule()
+	{
+		return rule;
+	}
+	
+	/**
+	 * @throws IllegalArgumentException
+	 * for rules with B0, which would fill the whole unbounded plane, and
+	 * for Generations rules
+	 */
+	public void setRule(Rule rule)
+	{
+		if(rule.isBirth(0))
+			throw new IllegalArgumentException("SparseGrid can not run B0 rules: " + rule);
+		if(rule.getStates() > 2)
+			throw new IllegalArgumentException("SparseGrid can not run Generations rules: " + rule);
+		this.rule = rule;
+	}
+	
+	public int getNumRows()
+	{
+		return numRows;
+	}
+	
+	public int getNumCols()
+	{
+		return numCols;
+	}
+	
+	public long getPopulation()
+	{
+		return current.size();
+	}
+	
+	public boolean isWithinRealBounds(int row, int col)
+	{
+		return 0 <= row && 0 <= col && row < numRows && col < numCols;
+	}
+	
+	public boolean getStatus(int row, int col)
+	{
+		return current.contains(CellTable.pack(row, col));
+	}
+	
+	/**
+	 * The table of the generation is pinned, so neither a tick nor an edit
+	 * changes it while the Snapshot is open.
+	 */
+	public Snapshot snapshot()
+	{
+		CellTable generation = pins.pin(() -> current);
+		return new Snapshot()
+		{
+			public void close()
+			{
+				pins.release(generation);
+			}
+			
+			public boolean getStatus(int row, int col)
+			{
+				return generation.contains(CellTable.pack(row, col));
+			}
+			
+			/**
+			 * Found with one pass over the living cells.
+			 */
+			public long[] getBounds()
+			{
+				long[] bounds = { Long.MAX_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, Long.MIN_VALUE };
+				for(int slot = 0; slot < generation.capacity(); slot++)
+				{
+					if(generation.valueAt(slot) == 0)
+						continue;
+					long key = generation.keyAt(slot);
+					bounds[0] = Math.min(bounds[0], CellTable.rowOf(key));
+					bounds[1] = Math.min(bounds[1], CellTable.colOf(key));
+					bounds[2] = Math.max(bounds[2], CellTable.rowOf(key));
+					bounds[3] = Math.max(bounds[3], CellTable.colOf(key));
+				}
+				return bounds;
+			}
+		};
+	}
+	
+	/**
+	 * Adding or removing a key can resize the table, so while a Snapshot is
+	 * reading the current table the edit is made to a copy, which then
+	 * replaces it.
+	 */
+	public void setStatus(int row, int col, boolean status)
+	{
+		long key = CellTable.pack(row, col);
+		if(status == getStatus(row, col))
+			return;
+		
+		CellTable generation = pins.isPinned(current) ? current.copy() : current;
+		if(status == Grid.ALIVE)
+			generation.add(key, 1);
+		else
+			generation.remove(key);
+		hash ^= Zobrist.key(key, 1L);
+		current = generation;
+	}
+	
+	/**
+	 * @return
+	 * the hash of every living cell, worked out while the cells of each
+	 * generation are added, so it costs nothing beyond the population
+	 */
+	public long getHash()
+	{
+		return hash;
+	}
+	
+	public void toggle(int row, int col)
+	{
+		setStatus(row, col, !getStatus(row, col));
+	}
+	
+	/**
+	 * Moves forward 1 generation. Only the living cells and their
+	 * neighbors are ever visited, and both tables are resized to fit the
+	 * pattern as it grows and shrinks.
+	 */
+	public void tick()
+	{
+		CellTable live = current;
+		Statistics statistics = this.statistics;
+		Statistics.Tally tally = statistics == null ? null : this.tally;
+		if(tally != null)
+			tally.clear();
+		counts.clear(live.size() * 4);
+		
+		for(int slot = 0; slot < live.capacity(); slot++)
+		{
+			if(live.valueAt(slot) == 0)
+				continue;
+			
+			long key = live.keyAt(slot);
+			int row = CellTable.rowOf(key);
+			int col = CellTable.colOf(key);
+			for(int i = -1; i <= 1; i++)
+				for(int j = -1; j <= 1; j++)
+					if(i != 0 || j != 0)
+						counts.add(CellTable.pack(row + i, col + j), 1);
+		}
+		
+		claimNext();
+		next.clear(live.size());
+		long nextHash = 0L;
+		long births = 0L;
+		for(int slot = 0; slot < counts.capacity(); slot++)
+		{
+			int count = counts.valueAt(slot);
+			if(count == 0)
+				continue;
+			
+			long key = counts.keyAt(slot);
+			boolean alive = live.contains(key);
+			if(rule.next(alive, count))
+			{
+				next.add(key, 1);
+				nextHash ^= Zobrist.key(key, 1L);
+				if(tally != null)
+				{
+					if(!alive)
+						births++;
+					tally.include(CellTable.rowOf(key), CellTable.colOf(key), CellTable.rowOf(key), CellTable.colOf(key));
+				}
+			}
+		}
+		
+		//living cells without any living neighbors never made it into counts
+		if(rule.isSurvival(0))
+		{
+			for(int slot = 0; slot < live.capacity(); slot++)
+			{
+				long key = live.keyAt(slot);
+				if(live.valueAt(slot) != 0 && !counts.contains(key))
+				{
+					next.add(key, 1);
+					nextHash ^= Zobrist.key(key, 1L);
+					if(tally != null)
+						tally.include(CellTable.rowOf(key), CellTable.colOf(key), CellTable.rowOf(key), CellTable.colOf(key));
+				}
+			}
+		}
+		
+		hash = nextHash;
+		current = next;
+		next = live;
+		if(tally != null)
+		{
+			//every living cell of the next generation was either born or survived
+			tally.add(births, live.size() - (current.size() - births));
+			statistics.record(current.size(), tally);
+		}
+	}
+	
+	/**
+	 * Recording starts with the first call. The births are counted as the
+	 * next generation is written, and the deaths follow from them and the
+	 * populations before and after. The bounds can reach far outside the
+	 * window, wherever cells have drifted on the plane.
+	 */
+	public Statistics getStatistics()
+	{
+		if(statistics == null)
+			statistics = new Statistics();
+		return statistics;
+	}
+	
+	/**
+	 * Swaps in the spare table if a Snapshot is still reading the one the
+	 * next generation was going to be written into. The next generation is
+	 * cleared before it is written, so whatever the spare held does not
+	 * matter.
+	 */
+	private void claimNext()
+	{
+		if(!pins.isPinned(next))
+			return;
+		CellTable pinned = next;
+		next = spare != null && !pins.isPinned(spare) ? spare : new CellTable();
+		spare = pinned;
+	}
+	
+	public SaveableData getSaveableData()
+	{
+		SaveableData data = new SaveableData();
+		data.alive = new boolean[numRows][numCols];
+		
+		for(int i = 0; i < data.alive.length; i++)
+			for(int j = 0; j < data.alive[i].length; j++)
+				data.alive[i][j] = getStatus(i, j);
+		
+		data.numRows = numRows;
+		data.numCols = numCols;
+		data.rowPad = 0;
+		data.colPad = 0;
+		data.rule = rule.toString();
+		
+		return data;
+	}
+	
+	public void loadSaveableData(SaveableData data)
+	{
+		numRows = data.numRows;
+		numCols = data.numCols;
+		current = new CellTable();
+		next = new CellTable();
+		spare = null;
+		hash = 0L;
+		
+		if(data.alive != null)
+			for(int i = 0; i < data.alive.length; i++)
+				for(int j = 0; j < data.alive[i].length; j++)
+					if(data.alive[i][j])
+						setStatus(i, j, Grid.ALIVE);
+		
+		if(data.rule != null)
+			setRule(Rule.parse(data.rule));
+	}
+}
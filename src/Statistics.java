@@ -0,0 +1,230 @@
+/**
+ * The population, births, deaths and bounding box of the living cells of
+ * every generation an engine ticks, kept in a ring of primitive arrays so
+ * recording a generation allocates nothing. The engine counts the births
+ * and deaths of a generation into a Tally while it ticks, as it writes the
+ * cells, and records the Tally once the generation is current, so nothing
+ * is ever found by scanning the board again.
+ *
+ * Generations are numbered from 0, the first one ticked since recording
+ * started, and only the last CAPACITY of them are kept. Only the thread
+ * that ticks the engine records. Any other thread can read while it does,
+ * a reader that falls more than the capacity behind may read a row that
+ * was overwritten while it was reading.
+ */
+public class Statistics
+{
+	public static final int CAPACITY = 4096;
+	
+	private final int capacity;
+	private final long[] populations;
+	private final long[] births;
+	private final long[] deaths;
+	private final int[] tops;
+	private final int[] lefts;
+	private final int[] bottoms;
+	private final int[] rights;
+	private volatile long count;
+	
+	public Statistics(int capacity)
+	{
+		this.capacity = capacity;
+		populations = new long[capacity];
+		births = new long[capacity];
+		deaths = new long[capacity];
+		tops = new int[capacity];
+		lefts = new int[capacity];
+		bottoms = new int[capacity];
+		rights = new int[capacity];
+	}
+	
+	public Statistics()
+	{
+		this(CAPACITY);
+	}
+	
+	/**
+	 * Records the next generation, to be called by the engine once it is
+	 * current.
+	 *
+	 * @param population
+	 * the living cells of the generation
+	 *
+	 * @param tally
+	 * the births, deaths and bounding box counted while ticking it
+	 */
+	public void record(long population, Tally tally)
+	{
+		long generation = count;
+		int slot = (int) (generation % capacity);
+		populations[slot] = population;
+		births[slot] = tally.births;
+		deaths[slot] = tally.deaths;
+		tops[slot] = tally.top;
+		lefts[slot] = tally.left;
+		bottoms[slot] = tally.bottom;
+		rights[slot] = tally.right;
+		count = generation + 1;
+	}
+	
+	/**
+	 * @return
+	 * the number of generations recorded, one more than the newest
+	 */
+	public long getCount()
+	{
+		return count;
+	}
+	
+	/**
+	 * @return
+	 * the oldest generation still kept
+	 */
+	public long getFirst()
+	{
+		return Math.max(0L, count - capacity);
+	}
+	
+	public int getCapacity()
+	{
+		return capacity;
+	}
+	
+	public long getPopulation(long generation)
+	{
+		return populations[slotOf(generation)];
+	}
+	
+	/**
+	 * @return
+	 * the cells that came alive in the tick to the generation
+	 */
+	public long getBirths(long generation)
+	{
+		return births[slotOf(generation)];
+	}
+	
+	/**
+	 * @return
+	 * the cells that died in the tick to the generation
+	 */
+	public long getDeaths(long generation)
+	{
+		return deaths[slotOf(generation)];
+	}
+	
+	/**
+	 * The bounds are in the coordinates of the window of the engine, and
+	 * reach into its padding if cells have drifted there. They mean
+	 * nothing once the population is 0, the top is then greater than the
+	 * bottom.
+	 */
+	public int getTop(long generation)
+	{
+		return tops[slotOf(generation)];
+	}
+	
+	public int getLeft(long generation)
+	{
+		return lefts[slotOf(generation)];
+	}
+	
+	public int getBottom(long generation)
+	{
+		return bottoms[slotOf(generation)];
+	}
+	
+	public int getRight(long generation)
+	{
+		return rights[slotOf(generation)];
+	}
+	
+	/**
+	 * Copies the populations of the newest generations kept, oldest first,
+	 * without ever failing on a generation overwritten while copying.
+	 *
+	 * @return
+	 * how many were copied, at most the length of populations
+	 */
+	public int getPopulations(long[] populations)
+	{
+		long end = count;
+		int length = (int) Math.min(end - getFirst(), populations.length);
+		for(int i = 0; i < length; i++)
+			populations[i] = this.populations[(int) ((end - length + i) % capacity)];
+		return length;
+	}
+	
+	private int slotOf(long generation)
+	{
+		if(generation < getFirst() || generation >= count)
+			throw new IndexOutOfBoundsException("Generation " + generation + " is not kept");
+		return (int) (generation % capacity);
+	}
+	
+	/**
+	 * The births, deaths and bounding box of the rows one thread ticked,
+	 * kept apart from those of every other band until they are added
+	 * together.
+	 */
+	public static class Tally
+	{
+		private long births;
+		private long deaths;
+		private int top;
+		private int left;
+		private int bottom;
+		private int right;
+		
+		public Tally()
+		{
+			clear();
+		}
+		
+		public void clear()
+		{
+			births = 0L;
+			deaths = 0L;
+			top = Integer.MAX_VALUE;
+			left = Integer.MAX_VALUE;
+			bottom = Integer.MIN_VALUE;
+			right = Integer.MIN_VALUE;
+		}
+		
+		public void add(long births, long deaths)
+		{
+			this.births += births;
+			this.deaths += deaths;
+		}
+		
+		/**
+		 * Grows the bounding box to hold a rectangle of living cells.
+		 */
+		public void include(int top, int left, int bottom, int right)
+		{
+			this.top = Math.min(this.top, top);
+			this.left = Math.min(this.left, left);
+			this.bottom = Math.max(this.bottom, bottom);
+			this.right = Math.max(this.right, right);
+		}
+		
+		/**
+		 * Adds the counts of another band of rows to this one.
+		 */
+		public void addAll(Tally other)
+		{
+			add(other.births, other.deaths);
+			include(other.top, other.left, other.bottom, other.right);
+		}
+		
+		public long getBirths()
+		{
+			return births;
+		}
+		
+		public long getDeaths()
+		{
+			return deaths;
+		}
+	}
+}
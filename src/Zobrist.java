@@ -0,0 +1,42 @@
+/**
+ * Keys for Zobrist hashing a board. The hash of a board is the exclusive or
+ * of the keys of everything living on it, so when a cell changes the hash
+ * changes by exactly the key of that cell, and an engine can keep its hash
+ * up to date while it ticks instead of hashing the whole board again.
+ *
+ * The keys are computed from the position rather than looked up in a table
+ * of random numbers as big as the board. Every engine numbers its positions
+ * its own way, so hashes are only comparable between boards of the same
+ * engine and size.
+ */
+public class Zobrist
+{
+	private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+	
+	/**
+	 * @param position
+	 * where the contents are, in whatever numbering the engine uses
+	 * 
+	 * @param contents
+	 * a state, or a word of cells, with 0 meaning nothing is alive there
+	 * 
+	 * @return
+	 * the key of the contents at the position, 0 if the contents are 0 so
+	 * dead cells leave the hash alone
+	 */
+	public static long key(long position, long contents)
+	{
+		return contents == 0L ? 0L : mix(mix(position * GOLDEN) + contents);
+	}
+	
+	/**
+	 * The SplitMix64 finalizer, every bit of the input affects every bit of
+	 * the output.
+	 */
+	public static long mix(long z)
+	{
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,102 @@
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Patterns to seed engines with, and the living cells of an engine in a
+ * form two engines can be compared by.
+ */
+public class Cells
+{
+	/**
+	 * Fills a square of the engine at random, a third of its cells alive.
+	 */
+	public static void soup(LifeEngine engine, long seed, int top, int left, int size)
+	{
+		Random random = new Random(seed);
+		for(int row = top; row < top + size; row++)
+			for(int col = left; col < left + size; col++)
+				if(random.nextInt(3) == 0)
+					engine.setStatus(row, col, true);
+	}
+	
+	/**
+	 * Puts a glider heading down and to the right with its top left corner
+	 * at row and col.
+	 */
+	public static void glider(LifeEngine engine, int row, int col)
+	{
+		engine.setStatus(row, col + 1, true);
+		engine.setStatus(row + 1, col + 2, true);
+		engine.setStatus(row + 2, col, true);
+		engine.setStatus(row + 2, col + 1, true);
+		engine.setStatus(row + 2, col + 2, true);
+	}
+	
+	/**
+	 * @return
+	 * the state of every cell that is not dead, as "row,col=state", taken
+	 * from wherever the engine keeps cells, its padding and the plane
+	 * around its window included
+	 */
+	public static Set<String> of(LifeEngine engine)
+	{
+		Set<String> cells = new TreeSet<String>();
+		try(Snapshot snapshot = engine.snapshot())
+		{
+			long[] bounds = snapshot.getBounds();
+			if(bounds == null)
+				bounds = new long[] { 0L, 0L, engine.getNumRows() - 1L, engine.getNumCols() - 1L };
+			for(long row = bounds[0]; row <= bounds[2]; row++)
+				for(long col = bounds[1]; col <= bounds[3]; col++)
+				{
+					int state = snapshot.getState((int) row, (int) col);
+					if(state != 0)
+						cells.add(row + "," + col + "=" + state);
+				}
+		}
+		return cells;
+	}
+	
+	/**
+	 * @return
+	 * the state of every cell of the window that is not dead, as
+	 * "row,col=state"
+	 */
+	public static Set<String> window(LifeEngine engine)
+	{
+		Set<String> cells = new TreeSet<String>();
+		for(int row = 0; row < engine.getNumRows(); row++)
+			for(int col = 0; col < engine.getNumCols(); col++)
+				if(engine.getState(row, col) != 0)
+					cells.add(row + "," + col + "=" + engine.getState(row, col));
+		return cells;
+	}
+	
+	/**
+	 * @return
+	 * the cells of the engine moved so the topmost living cell is in row 0
+	 * and the leftmost in column 0, so the same pattern loaded into windows
+	 * of different sizes compares equal
+	 */
+	public static Set<String> normalized(LifeEngine engine)
+	{
+		Set<String> cells = of(engine);
+		long top = Long.MAX_VALUE;
+		long left = Long.MAX_VALUE;
+		for(String cell : cells)
+		{
+			top = Math.min(top, Long.parseLong(cell.substring(0, cell.indexOf(','))));
+			left = Math.min(left, Long.parseLong(cell.substring(cell.indexOf(',') + 1, cell.indexOf('='))));
+		}
+		
+		Set<String> moved = new TreeSet<String>();
+		for(String cell : cells)
+		{
+			long row = Long.parseLong(cell.substring(0, cell.indexOf(','))) - top;
+			long col = Long.parseLong(cell.substring(cell.indexOf(',') + 1, cell.indexOf('='))) - left;
+			moved.add(row + "," + col + cell.substring(cell.indexOf('=')));
+		}
+		return moved;
+	}
+}
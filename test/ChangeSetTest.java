@@ -0,0 +1,200 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * A ChangeSet lists every cell that changed since it was last drained, or
+ * gives up and says everything did, and never lists less than changed.
+ */
+public class ChangeSetTest
+{
+	/**
+	 * @return
+	 * a set already drained once, so it starts out with no changes
+	 */
+	private static ChangeSet drained(int numRows, int numCols)
+	{
+		ChangeSet changes = new ChangeSet(numRows, numCols);
+		assertNull(changes.drain());
+		assertArrayEquals(new int[0], changes.drain());
+		return changes;
+	}
+	
+	@Test
+	public void editsAndBatchesAreDrainedInOrder()
+	{
+		ChangeSet changes = drained(10, 10);
+		changes.add(3);
+		ChangeSet.Batch batch = changes.newBatch();
+		batch.add(5);
+		batch.add(7);
+		changes.publish(batch);
+		assertArrayEquals(new int[] { 3, 5, 7 }, changes.drain());
+		assertArrayEquals(new int[0], changes.drain());
+	}
+	
+	/**
+	 * The bands of a generation are added up in the order of their rows.
+	 */
+	@Test
+	public void bandsAreAddedTogether()
+	{
+		ChangeSet changes = drained(10, 10);
+		ChangeSet.Batch top = changes.newBatch();
+		ChangeSet.Batch bottom = changes.newBatch();
+		top.add(1);
+		bottom.add(90);
+		bottom.add(99);
+		top.addAll(bottom);
+		changes.publish(top);
+		assertArrayEquals(new int[] { 1, 90, 99 }, changes.drain());
+	}
+	
+	/**
+	 * Past an eighth of the board, or 1024 cells on a small one, a full
+	 * repaint is cheaper than listing cells.
+	 */
+	@Test
+	public void tooManyChangesMeanEverything()
+	{
+		ChangeSet changes = drained(100, 100);
+		for(int i = 0; i <= 100 * 100 / 8; i++)
+			changes.add(i);
+		assertNull(changes.drain());
+		assertArrayEquals(new int[0], changes.drain());
+		
+		ChangeSet.Batch batch = changes.newBatch();
+		for(int i = 0; i <= 100 * 100 / 8; i++)
+			batch.add(i);
+		changes.publish(batch);
+		assertNull(changes.drain());
+		
+		ChangeSet.Batch top = changes.newBatch();
+		ChangeSet.Batch bottom = changes.newBatch();
+		for(int i = 0; i < 1000; i++)
+		{
+			top.add(i);
+			bottom.add(i + 1000);
+		}
+		top.addAll(bottom);
+		changes.publish(top);
+		assertNull(changes.drain());
+	}
+	
+	@Test
+	public void invalidatingAndResettingMeanEverything()
+	{
+		ChangeSet changes = drained(10, 10);
+		changes.add(1);
+		changes.invalidate();
+		assertNull(changes.drain());
+		changes.reset(20, 20);
+		assertNull(changes.drain());
+		assertArrayEquals(new int[0], changes.drain());
+	}
+	
+	/**
+	 * A board with more cells than an int can index always repaints whole.
+	 */
+	@Test
+	public void hugeBoardsAreNeverTracked()
+	{
+		ChangeSet changes = new ChangeSet(1 << 16, 1 << 16);
+		assertNull(changes.newBatch());
+		assertNull(changes.drain());
+		assertNull(changes.drain());
+	}
+	
+	@Test
+	public void followersGetEveryChange()
+	{
+		ChangeSet changes = drained(10, 10);
+		ChangeSet follower = drained(10, 10);
+		changes.forward(follower);
+		changes.add(4);
+		ChangeSet.Batch batch = changes.newBatch();
+		batch.add(6);
+		changes.publish(batch);
+		assertArrayEquals(new int[] { 4, 6 }, changes.drain());
+		assertArrayEquals(new int[] { 4, 6 }, follower.drain());
+		
+		changes.invalidate();
+		assertNull(follower.drain());
+		changes.forward(null);
+		changes.add(8);
+		assertArrayEquals(new int[0], follower.drain());
+	}
+	
+	/**
+	 * @return
+	 * the state of every cell of the window, at the index a ChangeSet
+	 * lists it by
+	 */
+	private static int[] states(LifeEngine engine)
+	{
+		int[] states = new int[engine.getNumRows() * engine.getNumCols()];
+		for(int row = 0; row < engine.getNumRows(); row++)
+			for(int col = 0; col < engine.getNumCols(); col++)
+				states[row * engine.getNumCols() + col] = engine.getState(row, col);
+		return states;
+	}
+	
+	/**
+	 * Every cell an engine changes, by ticking or by being edited, is
+	 * listed, and every cell listed really changed. Several threads tick
+	 * the engines that can, so their bands are added up too.
+	 */
+	@ParameterizedTest
+	@ValueSource(strings = { Engines.GRID, Engines.BITGRID, Engines.GENERATIONS })
+	public void enginesListWhatChanged(String name)
+	{
+		int oldThreads = Engines.threads;
+		Engines.threads = 4;
+		LifeEngine engine;
+		try
+		{
+			engine = Engines.create(name, 300, 130);
+		}
+		finally
+		{
+			Engines.threads = oldThreads;
+		}
+		ChangeSet changes = engine.getChanges();
+		assertNotNull(changes);
+		Cells.soup(engine, 31L, 120, 30, 60);
+		changes.drain();
+		
+		int[] before = states(engine);
+		for(int generation = 1; generation <= 30; generation++)
+		{
+			if(generation == 10)
+			{
+				engine.toggle(0, 129);
+				assertArrayEquals(new int[] { 129 }, changes.drain());
+				before = states(engine);
+			}
+			engine.tick();
+			int[] after = states(engine);
+			int[] changed = changes.drain();
+			assertNotNull(changed, "gave up at generation " + generation);
+			
+			Set<Integer> listed = new TreeSet<Integer>();
+			for(int index : changed)
+				listed.add(index);
+			Set<Integer> expected = new TreeSet<Integer>();
+			for(int i = 0; i < after.length; i++)
+				if(after[i] != before[i])
+					expected.add(i);
+			assertEquals(expected, listed, "generation " + generation);
+			before = after;
+		}
+	}
+}
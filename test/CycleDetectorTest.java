@@ -0,0 +1,123 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * A board is found to repeat once its hash comes round again, and the
+ * hashes every engine keeps come round exactly when its board does.
+ */
+public class CycleDetectorTest
+{
+	static Stream<String> engines()
+	{
+		return Arrays.stream(Engines.NAMES);
+	}
+	
+	@Test
+	public void periodsAreTheGenerationsBetweenEqualHashes()
+	{
+		CycleDetector detector = new CycleDetector(4);
+		assertEquals(0L, detector.record(0L, 10L));
+		assertEquals(0L, detector.record(1L, 11L));
+		assertEquals(0L, detector.record(2L, 12L));
+		assertEquals(2L, detector.record(3L, 11L));
+		assertEquals(1L, detector.record(4L, 11L));
+	}
+	
+	/**
+	 * The most recent equal hash is the one that counts, and boards more
+	 * than maxPeriod records back are forgotten.
+	 */
+	@Test
+	public void onlyTheLastBoardsAreRemembered()
+	{
+		CycleDetector detector = new CycleDetector(3);
+		for(long generation = 0L; generation < 3L; generation++)
+			assertEquals(0L, detector.record(generation, generation));
+		assertEquals(3L, detector.record(3L, 0L));
+		
+		detector = new CycleDetector(3);
+		for(long generation = 0L; generation < 4L; generation++)
+			assertEquals(0L, detector.record(generation, generation));
+		assertEquals(0L, detector.record(4L, 0L));
+	}
+	
+	/**
+	 * Boards recorded further apart than one generation give periods in
+	 * generations, not in records.
+	 */
+	@Test
+	public void stepsLongerThanAGeneration()
+	{
+		CycleDetector detector = new CycleDetector(2);
+		assertEquals(0L, detector.record(0L, 5L));
+		assertEquals(0L, detector.record(8L, 6L));
+		assertEquals(16L, detector.record(16L, 5L));
+	}
+	
+	@Test
+	public void resetForgetsEverything()
+	{
+		CycleDetector detector = new CycleDetector();
+		detector.record(0L, 1L);
+		detector.reset();
+		assertEquals(0L, detector.record(1L, 1L));
+		assertEquals(CycleDetector.DEFAULT_MAX_PERIOD, detector.getMaxPeriod());
+		assertThrows(IllegalArgumentException.class, () -> new CycleDetector(0));
+	}
+	
+	/**
+	 * A blinker beside a block has period 2, once it dies the board has
+	 * period 1, and a glider on an unbounded plane never repeats.
+	 */
+	@ParameterizedTest
+	@MethodSource("engines")
+	public void enginesHashTheirPeriods(String name)
+	{
+		LifeEngine engine = Engines.create(name, 32, 32);
+		engine.setStatus(10, 10, true);
+		engine.setStatus(10, 11, true);
+		engine.setStatus(10, 12, true);
+		engine.setStatus(20, 20, true);
+		engine.setStatus(20, 21, true);
+		engine.setStatus(21, 20, true);
+		engine.setStatus(21, 21, true);
+		assertEquals(2L, periodOf(engine));
+		
+		engine.setStatus(9, 11, false);
+		engine.setStatus(10, 10, false);
+		engine.setStatus(10, 11, false);
+		engine.setStatus(10, 12, false);
+		engine.setStatus(11, 11, false);
+		assertEquals(1L, periodOf(engine));
+		
+		if(!name.equals(Engines.SPARSE) && !name.equals(Engines.HASHLIFE))
+			return;
+		engine = Engines.create(name, 32, 32);
+		Cells.glider(engine, 0, 0);
+		assertEquals(0L, periodOf(engine));
+	}
+	
+	/**
+	 * @return
+	 * the period the board settles into within 20 generations, or 0 if it
+	 * does not
+	 */
+	private static long periodOf(LifeEngine engine)
+	{
+		CycleDetector detector = new CycleDetector(8);
+		long period = detector.record(0L, engine.getHash());
+		for(long generation = 1L; generation <= 20L && period == 0L; generation++)
+		{
+			engine.tick();
+			period = detector.record(generation, engine.getHash());
+		}
+		return period;
+	}
+}
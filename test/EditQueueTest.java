@@ -0,0 +1,89 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Edits added from any thread are all made, in the order they were added,
+ * by the one thread that drains the queue.
+ */
+public class EditQueueTest
+{
+	@Test
+	public void editsAreMadeInOrder()
+	{
+		LifeEngine engine = new BitGrid(8, 8);
+		EditQueue edits = new EditQueue();
+		assertFalse(edits.drain(engine));
+		
+		edits.add(1, 1, 1);
+		edits.add(1, 1, EditQueue.TOGGLE);
+		edits.add(2, 2, EditQueue.TOGGLE);
+		edits.add(3, 3, 1);
+		edits.add(3, 3, 0);
+		edits.add(4, 4, 0);
+		edits.add(4, 4, 1);
+		assertTrue(edits.drain(engine));
+		assertFalse(edits.drain(engine));
+		
+		assertFalse(engine.getStatus(1, 1));
+		assertTrue(engine.getStatus(2, 2));
+		assertFalse(engine.getStatus(3, 3));
+		assertTrue(engine.getStatus(4, 4));
+		assertEquals(2L, engine.getPopulation());
+	}
+	
+	@Test
+	public void editsOutsideTheWindowAreSkipped()
+	{
+		LifeEngine engine = new GenerationsGrid(8, 8);
+		engine.setRule(Rule.parse("B2/S/C3"));
+		EditQueue edits = new EditQueue();
+		edits.add(-1, 0, 1);
+		edits.add(0, 8, 1);
+		edits.add(8, 0, EditQueue.TOGGLE);
+		edits.add(7, 7, 2);
+		assertTrue(edits.drain(engine));
+		assertEquals(2, engine.getState(7, 7));
+		assertEquals(1, Cells.of(engine).size());
+	}
+	
+	/**
+	 * Threads adding edits while another drains them never lose one, so
+	 * every cell each thread set is alive in the end.
+	 */
+	@Test
+	public void concurrentEditsAreNeverLost() throws InterruptedException
+	{
+		LifeEngine engine = new BitGrid(64, 256);
+		EditQueue edits = new EditQueue();
+		AtomicBoolean adding = new AtomicBoolean(true);
+		Thread[] threads = new Thread[4];
+		for(int t = 0; t < threads.length; t++)
+		{
+			int row = t * 16;
+			threads[t] = new Thread(() ->
+			{
+				for(int i = 0; i < 16 * 256; i++)
+					edits.add(row + i / 256, i % 256, 1);
+			});
+			threads[t].start();
+		}
+		
+		Thread drainer = new Thread(() ->
+		{
+			while(adding.get())
+				edits.drain(engine);
+		});
+		drainer.start();
+		for(Thread thread : threads)
+			thread.join();
+		adding.set(false);
+		drainer.join();
+		edits.drain(engine);
+		assertEquals(64L * 256L, engine.getPopulation());
+	}
+}
@@ -0,0 +1,256 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Every engine runs the same pattern as Grid, the simplest of them, and has
+ * to end up with the same cells generation after generation.
+ */
+public class EngineTest
+{
+	private static final int SIZE = 256;
+	
+	static Stream<String> engines()
+	{
+		return Arrays.stream(Engines.NAMES);
+	}
+	
+	/**
+	 * The engines that take a Boundary, other than Grid itself
+	 */
+	static Stream<String> bounded()
+	{
+		return Stream.of(Engines.BITGRID, Engines.GENERATIONS);
+	}
+	
+	private static LifeEngine create(String name, Rule rule, Boundary boundary, int threads, int numRows, int numCols)
+	{
+		Rule oldRule = Engines.rule;
+		Boundary oldBoundary = Engines.boundary;
+		int oldThreads = Engines.threads;
+		Engines.rule = rule;
+		Engines.boundary = boundary;
+		Engines.threads = threads;
+		try
+		{
+			return Engines.create(name, numRows, numCols);
+		}
+		finally
+		{
+			Engines.rule = oldRule;
+			Engines.boundary = oldBoundary;
+			Engines.threads = oldThreads;
+		}
+	}
+	
+	private static LifeEngine create(String name, Rule rule, Boundary boundary, int threads)
+	{
+		return create(name, rule, boundary, threads, SIZE, SIZE);
+	}
+	
+	private static LifeEngine create(String name, Rule rule, Boundary boundary)
+	{
+		return create(name, rule, boundary, 1);
+	}
+	
+	/**
+	 * The soup is small enough in the middle of the board that nothing it
+	 * throws off reaches the edge, where the unbounded engines would differ.
+	 */
+	private static void compare(String name, Rule rule)
+	{
+		LifeEngine expected = new Grid(SIZE, SIZE, Boundary.DEAD);
+		expected.setRule(rule);
+		LifeEngine actual = create(name, rule, Boundary.DEAD);
+		Cells.soup(expected, 42L, 112, 112, 32);
+		Cells.soup(actual, 42L, 112, 112, 32);
+		
+		for(int generation = 1; generation <= 100; generation++)
+		{
+			expected.tick();
+			actual.tick();
+			if(generation % 10 == 0)
+				assertEquals(Cells.of(expected), Cells.of(actual), name + " differs at generation " + generation);
+		}
+	}
+	
+	@ParameterizedTest
+	@MethodSource("engines")
+	public void conwayMatchesGrid(String name)
+	{
+		compare(name, Rule.CONWAY);
+	}
+	
+	@ParameterizedTest
+	@MethodSource("engines")
+	public void highLifeMatchesGrid(String name)
+	{
+		compare(name, Rule.parse("B36/S23"));
+	}
+	
+	@ParameterizedTest
+	@MethodSource("engines")
+	public void advanceMatchesTicks(String name)
+	{
+		LifeEngine ticked = create(name, Rule.CONWAY, Boundary.DEAD);
+		LifeEngine advanced = create(name, Rule.CONWAY, Boundary.DEAD);
+		Cells.soup(ticked, 7L, 112, 112, 32);
+		Cells.soup(advanced, 7L, 112, 112, 32);
+		
+		for(int i = 0; i < 64; i++)
+			ticked.tick();
+		advanced.advance(6);
+		assertEquals(Cells.of(ticked), Cells.of(advanced));
+	}
+	
+	/**
+	 * The whole board is soup, so every edge and corner of the topology is
+	 * crossed many times. Grid pads a dead boundary unless told not to, the
+	 * others end at the edge of the window.
+	 */
+	@ParameterizedTest
+	@MethodSource("bounded")
+	public void boundariesMatchGrid(String name)
+	{
+		for(Boundary boundary : Boundary.values())
+		{
+			LifeEngine expected = new Grid(SIZE, SIZE, 0, 0, boundary);
+			LifeEngine actual = create(name, Rule.CONWAY, boundary);
+			Cells.soup(expected, 3L, 0, 0, SIZE);
+			Cells.soup(actual, 3L, 0, 0, SIZE);
+			
+			for(int generation = 1; generation <= 50; generation++)
+			{
+				expected.tick();
+				actual.tick();
+			}
+			assertEquals(Cells.of(expected), Cells.of(actual), name + " differs on " + boundary);
+		}
+	}
+	
+	/**
+	 * Boards whose width is not a whole number of words end in a partly
+	 * used word, whose spare bits must never come alive or be seen as
+	 * neighbors, however the edges are joined up.
+	 */
+	@ParameterizedTest
+	@MethodSource("bounded")
+	public void oddSizesMatchGrid(String name)
+	{
+		int[][] sizes = { { 100, 130 }, { 65, 63 }, { 37, 1 }, { 3, 200 } };
+		for(int[] size : sizes)
+		{
+			for(Boundary boundary : Boundary.values())
+			{
+				LifeEngine expected = new Grid(size[0], size[1], 0, 0, boundary);
+				LifeEngine actual = create(name, Rule.CONWAY, boundary, 1, size[0], size[1]);
+				Cells.soup(expected, 4L, 0, 0, Math.min(size[0], size[1]));
+				Cells.soup(actual, 4L, 0, 0, Math.min(size[0], size[1]));
+				//cells along the right edge, next to the spare bits of the last word
+				for(int row = 0; row < size[0]; row += 2)
+				{
+					expected.setStatus(row, size[1] - 1, true);
+					actual.setStatus(row, size[1] - 1, true);
+				}
+				
+				for(int generation = 1; generation <= 40; generation++)
+				{
+					expected.tick();
+					actual.tick();
+				}
+				String where = name + " differs at " + size[1] + " by " + size[0] + " on " + boundary;
+				assertEquals(Cells.of(expected), Cells.of(actual), where);
+				assertEquals(expected.getPopulation(), actual.getPopulation(), where);
+			}
+		}
+	}
+	
+	/**
+	 * Bands ticked by several threads have to add up to the same cells,
+	 * hash and statistics as one thread ticking the whole board. The whole
+	 * board is soup, so every band has cells changing along its edges.
+	 */
+	@ParameterizedTest
+	@ValueSource(strings = { Engines.GRID, Engines.BITGRID })
+	public void threadsMatchOneThread(String name)
+	{
+		for(Boundary boundary : Boundary.values())
+		{
+			LifeEngine expected = create(name, Rule.CONWAY, boundary, 1);
+			LifeEngine actual = create(name, Rule.CONWAY, boundary, 4);
+			Statistics expectedStatistics = expected.getStatistics();
+			Statistics actualStatistics = actual.getStatistics();
+			Cells.soup(expected, 9L, 0, 0, SIZE);
+			Cells.soup(actual, 9L, 0, 0, SIZE);
+			
+			for(int generation = 1; generation <= 50; generation++)
+			{
+				expected.tick();
+				actual.tick();
+				long n = generation - 1;
+				assertEquals(expectedStatistics.getBirths(n), actualStatistics.getBirths(n));
+				assertEquals(expectedStatistics.getDeaths(n), actualStatistics.getDeaths(n));
+				assertEquals(expectedStatistics.getTop(n), actualStatistics.getTop(n));
+				assertEquals(expectedStatistics.getLeft(n), actualStatistics.getLeft(n));
+				assertEquals(expectedStatistics.getBottom(n), actualStatistics.getBottom(n));
+				assertEquals(expectedStatistics.getRight(n), actualStatistics.getRight(n));
+			}
+			assertEquals(Cells.of(expected), Cells.of(actual), name + " differs on " + boundary);
+			assertEquals(expected.getHash(), actual.getHash(), name + " hashes differ on " + boundary);
+			assertEquals(expected.getPopulation(), actual.getPopulation());
+		}
+	}
+	
+	/**
+	 * A HashLife whose table is far too small for the steps it is asked to
+	 * take has to split them, and end up where one with room to spare does
+	 * without ever holding much more than twice its limit.
+	 */
+	@Test
+	public void hashLifeSplitsStepsThatOverflow()
+	{
+		HashLife roomy = new HashLife(64, 64);
+		HashLife cramped = new HashLife(64, 64, 1 << 10);
+		Cells.soup(roomy, 5L, 0, 0, 64);
+		Cells.soup(cramped, 5L, 0, 0, 64);
+		for(int i = 0; i < 4; i++)
+		{
+			roomy.advance(10);
+			cramped.advance(10);
+			assertTrue(cramped.getNodeCount() < 3 << 10, "kept " + cramped.getNodeCount());
+		}
+		assertEquals(roomy.getGeneration(), cramped.getGeneration());
+		assertEquals(roomy.getHash(), cramped.getHash());
+		assertEquals(Cells.normalized(roomy), Cells.normalized(cramped));
+	}
+	
+	/**
+	 * Brian's Brain, where every cell that dies spends a generation dying
+	 */
+	@ParameterizedTest
+	@MethodSource("engines")
+	public void generationsRulesRunOnGenerations(String name)
+	{
+		Rule rule = Rule.parse("B2/S/C3");
+		LifeEngine expected = new GenerationsGrid(SIZE, SIZE);
+		expected.setRule(rule);
+		LifeEngine actual = create(name, rule, Boundary.DEAD);
+		assertEquals(GenerationsGrid.class, actual.getClass());
+		
+		Cells.soup(expected, 5L, 120, 120, 16);
+		Cells.soup(actual, 5L, 120, 120, 16);
+		for(int generation = 1; generation <= 20; generation++)
+		{
+			expected.tick();
+			actual.tick();
+		}
+		assertEquals(Cells.of(expected), Cells.of(actual));
+	}
+}
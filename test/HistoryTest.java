@@ -0,0 +1,111 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Seeking anywhere in a History has to bring back the board exactly as it
+ * was recorded, whether the engine hands the History its changes or the
+ * History has to find them itself. Only the window is recorded, so only
+ * the window is compared.
+ */
+public class HistoryTest
+{
+	private static final int FRAMES = 200;
+	
+	private static LifeEngine soup(String name)
+	{
+		LifeEngine engine = Engines.create(name, 96, 80);
+		Cells.soup(engine, 17L, 24, 24, 32);
+		return engine;
+	}
+	
+	@ParameterizedTest
+	@ValueSource(strings = { Engines.GRID, Engines.BITGRID, Engines.SPARSE, Engines.GENERATIONS })
+	public void seekBringsBackEveryFrame(String name)
+	{
+		LifeEngine engine = soup(name);
+		History history = new History();
+		List<Set<String>> frames = new ArrayList<Set<String>>();
+		history.record(engine, 0L);
+		frames.add(Cells.window(engine));
+		for(int i = 1; i < FRAMES; i++)
+		{
+			engine.tick();
+			history.record(engine, 1L);
+			frames.add(Cells.window(engine));
+		}
+		assertEquals(FRAMES, history.size());
+		assertEquals(FRAMES - 1, history.getPosition());
+		
+		//far jumps rebuild from a keyframe, short ones walk the deltas
+		for(int frame : new int[] { 0, 5, 130, 129, 64, 63, FRAMES - 1, 1 })
+		{
+			history.seek(engine, frame);
+			assertEquals(frame, history.getPosition());
+			assertEquals(frame, history.getGeneration());
+			assertEquals(frames.get(frame), Cells.window(engine), "frame " + frame);
+		}
+	}
+	
+	/**
+	 * An edit after seeking back becomes a frame of its own and drops the
+	 * frames after it.
+	 */
+	@ParameterizedTest
+	@ValueSource(strings = { Engines.BITGRID, Engines.SPARSE })
+	public void editsDropTheFutureAndCanBeUndone(String name)
+	{
+		LifeEngine engine = soup(name);
+		History history = new History();
+		history.record(engine, 0L);
+		for(int i = 0; i < 10; i++)
+		{
+			engine.tick();
+			history.record(engine, 1L);
+		}
+		
+		history.seek(engine, 3);
+		Set<String> before = Cells.window(engine);
+		engine.setStatus(0, 0, !engine.getStatus(0, 0));
+		Set<String> edited = Cells.window(engine);
+		history.seek(engine, 3);
+		assertEquals(5, history.size());
+		assertEquals(before, Cells.window(engine));
+		history.seek(engine, 4);
+		assertEquals(edited, Cells.window(engine));
+		assertEquals(3, history.getGeneration());
+	}
+	
+	/**
+	 * With a budget too small for everything, the oldest segments go and
+	 * what is left still seeks correctly.
+	 */
+	@ParameterizedTest
+	@ValueSource(strings = { Engines.BITGRID, Engines.SPARSE })
+	public void oldFramesAreDroppedOverBudget(String name)
+	{
+		LifeEngine engine = soup(name);
+		History history = new History(96 * 80 + 64 * 1024);
+		List<Set<String>> frames = new ArrayList<Set<String>>();
+		history.record(engine, 0L);
+		frames.add(Cells.window(engine));
+		for(int i = 1; i < 1000; i++)
+		{
+			engine.tick();
+			history.record(engine, 1L);
+			frames.add(Cells.window(engine));
+		}
+		
+		int size = history.size();
+		assertTrue(size < 1000 && size >= History.KEYFRAME_INTERVAL, "kept " + size);
+		history.seek(engine, 0);
+		assertEquals(frames.get(1000 - size), Cells.window(engine));
+		assertEquals(1000 - size, history.getGeneration());
+	}
+}
@@ -0,0 +1,202 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Every format is saved from every engine and loaded back into every
+ * engine, and has to hold the same cells afterwards.
+ */
+public class PatternFileTest
+{
+	private static final int SIZE = 128;
+	
+	@TempDir
+	Path directory;
+	
+	static Stream<String> engines()
+	{
+		return Arrays.stream(Engines.NAMES);
+	}
+	
+	/**
+	 * A soup run for a while, all of it still inside the window
+	 */
+	private static LifeEngine soup(String name)
+	{
+		LifeEngine engine = Engines.create(name, SIZE, SIZE);
+		Cells.soup(engine, 11L, 48, 48, 32);
+		for(int i = 0; i < 30; i++)
+			engine.tick();
+		return engine;
+	}
+	
+	/**
+	 * Pattern formats keep only the living cells, so a pattern may come back
+	 * in a window of another size and is compared wherever it lands.
+	 */
+	@ParameterizedTest
+	@MethodSource("engines")
+	public void patternsRoundTrip(String name) throws IOException
+	{
+		LifeEngine saved = soup(name);
+		for(String extension : new String[] { "rle", "lif", "mc" })
+		{
+			Path file = directory.resolve(name + "." + extension);
+			Patterns.save(saved, file);
+			for(String other : Engines.NAMES)
+			{
+				LifeEngine loaded = Engines.create(other, 1, 1);
+				Patterns.load(file, loaded);
+				assertEquals(Cells.normalized(saved), Cells.normalized(loaded), name + " to " + other + " through ." + extension);
+			}
+		}
+	}
+	
+	/**
+	 * A .gol is a whole board, so it comes back cell for cell in a window
+	 * of the same size.
+	 */
+	@ParameterizedTest
+	@MethodSource("engines")
+	public void boardsRoundTrip(String name) throws IOException
+	{
+		LifeEngine saved = soup(name);
+		Path file = directory.resolve(name + ".gol");
+		Patterns.save(saved, file);
+		for(String other : Engines.NAMES)
+		{
+			LifeEngine loaded = Engines.create(other, 1, 1);
+			Patterns.load(file, loaded);
+			assertEquals(saved.getNumRows(), loaded.getNumRows());
+			assertEquals(saved.getNumCols(), loaded.getNumCols());
+			assertEquals(Cells.of(saved), Cells.of(loaded), name + " to " + other);
+		}
+	}
+	
+	/**
+	 * Gliders run far out of the window of the engines on an unbounded
+	 * plane, and every pattern format has to keep them.
+	 */
+	@ParameterizedTest
+	@ValueSource(strings = { Engines.SPARSE, Engines.HASHLIFE })
+	public void driftedCellsRoundTrip(String name) throws IOException
+	{
+		LifeEngine saved = Engines.create(name, 64, 64);
+		Cells.glider(saved, 30, 30);
+		Cells.soup(saved, 2L, 8, 8, 16);
+		for(int i = 0; i < 400; i++)
+			saved.tick();
+		
+		for(String extension : new String[] { "rle", "lif", "mc" })
+		{
+			Path file = directory.resolve(name + "." + extension);
+			Patterns.save(saved, file);
+			for(String other : Engines.NAMES)
+			{
+				LifeEngine loaded = Engines.create(other, 1, 1);
+				Patterns.load(file, loaded);
+				assertEquals(Cells.normalized(saved), Cells.normalized(loaded), name + " to " + other + " through ." + extension);
+			}
+		}
+	}
+	
+	/**
+	 * Dying states only survive the formats that can hold them.
+	 */
+	@ParameterizedTest
+	@ValueSource(strings = { "rle", "gol" })
+	public void generationsRoundTrip(String extension) throws IOException
+	{
+		LifeEngine saved = new GenerationsGrid(SIZE, SIZE);
+		saved.setRule(Rule.parse("B2/S/C3"));
+		Cells.soup(saved, 13L, 56, 56, 16);
+		for(int i = 0; i < 10; i++)
+			saved.tick();
+		
+		Path file = directory.resolve("brain." + extension);
+		Patterns.save(saved, file);
+		LifeEngine loaded = new GenerationsGrid(1, 1);
+		Patterns.load(file, loaded);
+		assertEquals(saved.getRule(), loaded.getRule());
+		assertEquals(Cells.normalized(saved), Cells.normalized(loaded));
+	}
+	
+	@Test
+	public void truncatedBoardFails() throws IOException
+	{
+		Path file = directory.resolve("board.gol");
+		Patterns.save(soup(Engines.GRID), file);
+		byte[] bytes = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+		assertThrows(IOException.class, () -> Patterns.load(file, Engines.create(Engines.GRID, 1, 1)));
+	}
+	
+	/**
+	 * Runs that reach past the pattern, or that would overflow if counted
+	 * in an int, fail as bad RLE rather than with an index out of bounds.
+	 */
+	@Test
+	public void overlongRunsFail()
+	{
+		for(String cells : new String[] { "4o!", "99999999999o!", "4294967297bo!", "2147483647bo!", "3$o!", "o2147483647$o!" })
+			assertThrows(IOException.class, () -> RLE.read(new StringReader("x = 3, y = 3\n" + cells)), cells);
+	}
+	
+	@Test
+	public void fullRunsFit() throws IOException
+	{
+		SaveableData data = RLE.read(new StringReader("x = 3, y = 3\n3o$3b$2bo$!"));
+		assertEquals(3, data.numCols);
+		assertTrue(data.alive[0][2]);
+		assertTrue(data.alive[2][2]);
+	}
+	
+	/**
+	 * Writes the header of a .gol with the given sizes and length of the
+	 * rule, followed by the rule B3/S23 and nothing else.
+	 */
+	private Path forge(int numRows, int numCols, int ruleLength) throws IOException
+	{
+		byte[] rule = Rule.CONWAY.toString().getBytes("UTF-8");
+		ByteBuffer buffer = ByteBuffer.allocate(40 + rule.length).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(0x214C4F47).putInt(1);
+		buffer.putInt(numRows).putInt(numCols);
+		buffer.putInt(0).putInt(0).putInt(1).putInt(0).putInt(0);
+		buffer.putInt(ruleLength).put(rule);
+		Path file = directory.resolve("forged.gol");
+		Files.write(file, buffer.array());
+		return file;
+	}
+	
+	/**
+	 * A header is never trusted to say how much to allocate.
+	 */
+	@Test
+	public void forgedHeadersFail() throws IOException
+	{
+		int length = Rule.CONWAY.toString().length();
+		for(Path file : new Path[] { forge(4, 4, Integer.MAX_VALUE), forge(4, 4, -1), forge(4, 4, length + 1),
+				forge(Integer.MAX_VALUE, 64, length), forge(-4, 4, length), forge(1 << 30, 1 << 30, length) })
+		{
+			assertThrows(IOException.class, () -> GolFile.readRule(file));
+			assertThrows(IOException.class, () -> GolFile.read(file));
+			assertThrows(IOException.class, () -> Patterns.load(file, Engines.create(Engines.BITGRID, 1, 1)));
+		}
+		assertEquals(Rule.CONWAY.toString(), GolFile.readRule(forge(0, 0, length)));
+	}
+}
@@ -0,0 +1,107 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * A pinned buffer stays pinned until every pin of it is released, and an
+ * open Snapshot shows the same generation however far the engine ticks.
+ */
+public class PinsTest
+{
+	@Test
+	public void everyPinIsReleasedOnce()
+	{
+		Pins pins = new Pins();
+		long[] a = new long[1];
+		long[] b = new long[1];
+		assertSame(a, pins.pin(() -> a));
+		assertSame(a, pins.pin(() -> a));
+		assertTrue(pins.isPinned(a));
+		assertFalse(pins.isPinned(b));
+		pins.release(a);
+		assertTrue(pins.isPinned(a));
+		pins.release(a);
+		assertFalse(pins.isPinned(a));
+	}
+	
+	/**
+	 * Buffers are told apart by identity, never by equals.
+	 */
+	@Test
+	public void equalBuffersAreNotTheSame()
+	{
+		Pins pins = new Pins();
+		String a = new String("buffer");
+		String b = new String("buffer");
+		pins.pin(() -> a);
+		pins.pin(() -> b);
+		assertTrue(pins.isPinned(b));
+		pins.release(b);
+		assertFalse(pins.isPinned(b));
+		assertTrue(pins.isPinned(a));
+	}
+	
+	/**
+	 * Threads pinning and releasing the same buffers at once never lose or
+	 * leave behind a pin.
+	 */
+	@Test
+	public void concurrentPinsBalance() throws InterruptedException
+	{
+		Pins pins = new Pins();
+		long[][] buffers = { new long[1], new long[1], new long[1] };
+		AtomicReference<long[]> current = new AtomicReference<long[]>(buffers[0]);
+		Thread[] threads = new Thread[4];
+		for(int t = 0; t < threads.length; t++)
+		{
+			threads[t] = new Thread(() ->
+			{
+				for(int i = 0; i < 20000; i++)
+				{
+					long[] pinned = pins.pin(current::get);
+					current.set(buffers[i % buffers.length]);
+					pins.release(pinned);
+				}
+			});
+			threads[t].start();
+		}
+		for(Thread thread : threads)
+			thread.join();
+		for(long[] buffer : buffers)
+			assertFalse(pins.isPinned(buffer));
+	}
+	
+	@ParameterizedTest
+	@ValueSource(strings = { Engines.GRID, Engines.BITGRID, Engines.SPARSE, Engines.GENERATIONS })
+	public void snapshotsOutliveTicks(String name)
+	{
+		LifeEngine engine = Engines.create(name, 64, 70);
+		Cells.soup(engine, 23L, 16, 16, 32);
+		Set<String> shown = Cells.window(engine);
+		try(Snapshot snapshot = engine.snapshot())
+		{
+			for(int i = 0; i < 5; i++)
+				engine.tick();
+			int alive = 0;
+			for(int row = 0; row < 64; row++)
+				for(int col = 0; col < 70; col++)
+					if(snapshot.getStatus(row, col))
+						alive++;
+			assertEquals(shown.size(), alive);
+			for(String cell : shown)
+			{
+				int row = Integer.parseInt(cell.substring(0, cell.indexOf(',')));
+				int col = Integer.parseInt(cell.substring(cell.indexOf(',') + 1, cell.indexOf('=')));
+				assertTrue(snapshot.getStatus(row, col), cell);
+			}
+		}
+	}
+}
@@ -0,0 +1,87 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Soups are named the way other soup searchers name them, and the census
+ * of a range of soups is the same however the soups are shared out among
+ * the pooled boards of the workers.
+ */
+public class SoupTest
+{
+	private static final int SOUPS = 60;
+	
+	private static Soup soup()
+	{
+		return new Soup(128, 16, 30, 1 << 15);
+	}
+	
+	private static Map<String, Long> tally(Soup... soups)
+	{
+		Map<String, Long> tally = new HashMap<String, Long>();
+		for(Soup soup : soups)
+			for(Map.Entry<String, long[]> entry : soup.getTally().entrySet())
+				tally.merge(entry.getKey(), entry.getValue()[0], Long::sum);
+		return tally;
+	}
+	
+	@Test
+	public void codesMatchOtherSearchers()
+	{
+		boolean[][] block = { { true, true }, { true, true } };
+		assertEquals("xs4_33", ObjectCode.of("xs4", new boolean[][][] { block }));
+		
+		boolean[][] across = { { true, true, true } };
+		boolean[][] down = { { true }, { true }, { true } };
+		assertEquals("xp2_7", ObjectCode.of("xp2", new boolean[][][] { across, down }));
+		assertEquals("xp2_7", ObjectCode.of("xp2", new boolean[][][] { down, across }));
+		assertEquals("spaceship", ObjectCode.kindOf("xq4_153"));
+	}
+	
+	/**
+	 * A board reused for one soup after another must not carry anything
+	 * over from the soups before, so splitting a range of soups between
+	 * two workers counts the same objects as running it all on one.
+	 */
+	@Test
+	public void soupsDoNotDependOnTheirWorker()
+	{
+		Soup whole = soup();
+		for(long seed = 0L; seed < SOUPS; seed++)
+			whole.run(seed);
+		
+		Soup first = soup();
+		Soup second = soup();
+		for(long seed = 0L; seed < SOUPS; seed++)
+			(seed % 3 == 0 ? first : second).run(seed);
+		
+		assertEquals(tally(whole), tally(first, second));
+		assertEquals(SOUPS, whole.getSoups());
+		assertEquals(SOUPS, first.getSoups() + second.getSoups());
+		assertEquals(whole.getGenerations(), first.getGenerations() + second.getGenerations());
+		assertEquals(whole.getUnstable(), first.getUnstable() + second.getUnstable());
+	}
+	
+	/**
+	 * As in every census of random soups, the block is the most common
+	 * object, and blinkers and gliders turn up too.
+	 */
+	@Test
+	public void blocksAreTheMostCommon()
+	{
+		Soup soup = soup();
+		for(long seed = 0L; seed < SOUPS; seed++)
+			soup.run(seed);
+		Map<String, Long> tally = tally(soup);
+		
+		long blocks = tally.get("xs4_33");
+		for(Map.Entry<String, Long> entry : tally.entrySet())
+			assertTrue(entry.getValue() <= blocks, entry.getKey() + " outnumbers the block");
+		assertTrue(tally.containsKey("xp2_7"));
+		assertTrue(tally.containsKey("xq4_153"));
+	}
+}
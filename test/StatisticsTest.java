@@ -0,0 +1,127 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * The statistics an engine records while it ticks have to agree with the
+ * cells it holds afterwards, generation after generation.
+ */
+public class StatisticsTest
+{
+	/**
+	 * @return
+	 * the living cells of the engine, dying ones left out
+	 */
+	private static Set<String> living(LifeEngine engine)
+	{
+		Set<String> cells = new TreeSet<String>();
+		for(String cell : Cells.of(engine))
+			if(cell.endsWith("=1"))
+				cells.add(cell.substring(0, cell.indexOf('=')));
+		return cells;
+	}
+	
+	private static int rowOf(String cell)
+	{
+		return Integer.parseInt(cell.substring(0, cell.indexOf(',')));
+	}
+	
+	private static int colOf(String cell)
+	{
+		return Integer.parseInt(cell.substring(cell.indexOf(',') + 1));
+	}
+	
+	private static void check(LifeEngine engine)
+	{
+		Cells.soup(engine, 19L, 48, 48, 32);
+		Statistics statistics = engine.getStatistics();
+		Set<String> before = living(engine);
+		for(int generation = 1; generation <= 60; generation++)
+		{
+			engine.tick();
+			Set<String> after = living(engine);
+			long n = statistics.getCount() - 1;
+			assertEquals(generation - 1, n);
+			assertEquals(after.size(), statistics.getPopulation(n), "population at " + generation);
+			assertEquals(after.size(), engine.getPopulation(), "population at " + generation);
+			
+			Set<String> born = new TreeSet<String>(after);
+			born.removeAll(before);
+			Set<String> died = new TreeSet<String>(before);
+			died.removeAll(after);
+			assertEquals(born.size(), statistics.getBirths(n), "births at " + generation);
+			assertEquals(died.size(), statistics.getDeaths(n), "deaths at " + generation);
+			
+			int top = Integer.MAX_VALUE;
+			int left = Integer.MAX_VALUE;
+			int bottom = Integer.MIN_VALUE;
+			int right = Integer.MIN_VALUE;
+			for(String cell : after)
+			{
+				top = Math.min(top, rowOf(cell));
+				left = Math.min(left, colOf(cell));
+				bottom = Math.max(bottom, rowOf(cell));
+				right = Math.max(right, colOf(cell));
+			}
+			assertArrayEquals(new int[] { top, left, bottom, right }, new int[] { statistics.getTop(n), statistics.getLeft(n),
+					statistics.getBottom(n), statistics.getRight(n) }, "bounds at " + generation);
+			before = after;
+		}
+	}
+	
+	@ParameterizedTest
+	@ValueSource(strings = { Engines.GRID, Engines.BITGRID, Engines.SPARSE, Engines.GENERATIONS })
+	public void statisticsMatchTheCells(String name)
+	{
+		check(Engines.create(name, 128, 128));
+	}
+	
+	/**
+	 * Brian's Brain, where a dying cell is neither born nor killed as it
+	 * passes through its dying state
+	 */
+	@Test
+	public void dyingCellsAreNotCounted()
+	{
+		LifeEngine engine = new GenerationsGrid(128, 128);
+		engine.setRule(Rule.parse("B2/S/C3"));
+		check(engine);
+	}
+	
+	@Test
+	public void hashLifeKeepsNone()
+	{
+		assertNull(Engines.create(Engines.HASHLIFE, 64, 64).getStatistics());
+	}
+	
+	/**
+	 * Only the newest generations are kept, and the ones that are gone can
+	 * no longer be read.
+	 */
+	@Test
+	public void oldGenerationsAreOverwritten()
+	{
+		Statistics statistics = new Statistics(4);
+		Statistics.Tally tally = new Statistics.Tally();
+		for(long population = 0L; population < 10L; population++)
+			statistics.record(population, tally);
+		assertEquals(10L, statistics.getCount());
+		assertEquals(6L, statistics.getFirst());
+		assertEquals(9L, statistics.getPopulation(9L));
+		assertThrows(IndexOutOfBoundsException.class, () -> statistics.getPopulation(5L));
+		assertThrows(IndexOutOfBoundsException.class, () -> statistics.getPopulation(10L));
+		
+		long[] populations = new long[8];
+		assertEquals(4, statistics.getPopulations(populations));
+		assertArrayEquals(new long[] { 6L, 7L, 8L, 9L }, Arrays.copyOf(populations, 4));
+	}
+}